@@ -17,7 +17,7 @@ public abstract class Client {
     public static final String MODEL_URI = "/-/";
     private URI endpoint;
     private Model model;
-    private boolean connected;
+    private volatile boolean connected;
     private Authentication authentication;
 
     /**
@@ -0,0 +1,172 @@
+package cz.cesnet.cloud.occi.api;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable memory efficient list of resource locations. Locations are split
+ * into a prefix (everything up to the last '/' of the path, e.g.
+ * "https://remote.server.net/compute/") which is stored only once and a suffix
+ * (e.g. resource ID) stored as UTF-8 bytes in one shared array. URI instances
+ * are created on demand when elements are accessed, so callers holding on to
+ * large lists should avoid materializing all of them at once. Lookups via
+ * {@link #indexOf(Object)} and {@link #contains(Object)} compare string forms
+ * of the locations.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class CompactLocationList extends AbstractList<URI> implements RandomAccess {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private final String[] prefixes;
+    private final int[] prefixIndices;
+    private final int[] offsets;
+    private final byte[] suffixes;
+
+    /**
+     * Constructor.
+     *
+     * @param locations locations to store, cannot be null or contain null
+     * elements
+     */
+    public CompactLocationList(Collection<URI> locations) {
+        if (locations == null) {
+            throw new NullPointerException("locations cannot be null");
+        }
+
+        Map<String, Integer> prefixMap = new HashMap<>();
+        List<String> prefixList = new ArrayList<>();
+        ByteArrayOutputStream suffixBuffer = new ByteArrayOutputStream();
+        prefixIndices = new int[locations.size()];
+        offsets = new int[locations.size() + 1];
+
+        int i = 0;
+        for (URI location : locations) {
+            if (location == null) {
+                throw new NullPointerException("location cannot be null");
+            }
+
+            String text = location.toString();
+            int split = splitIndex(text);
+            String prefix = text.substring(0, split);
+            Integer prefixIndex = prefixMap.get(prefix);
+            if (prefixIndex == null) {
+                prefixIndex = prefixList.size();
+                prefixMap.put(prefix, prefixIndex);
+                prefixList.add(prefix);
+            }
+
+            byte[] suffix = text.substring(split).getBytes(UTF_8);
+            suffixBuffer.write(suffix, 0, suffix.length);
+            prefixIndices[i] = prefixIndex;
+            offsets[i + 1] = suffixBuffer.size();
+            i++;
+        }
+
+        prefixes = prefixList.toArray(new String[prefixList.size()]);
+        suffixes = suffixBuffer.toByteArray();
+    }
+
+    private static int splitIndex(String location) {
+        int end = location.length();
+        int query = location.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = location.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+
+        return end == 0 ? 0 : location.lastIndexOf('/', end - 1) + 1;
+    }
+
+    /**
+     * Returns number of distinct location prefixes.
+     *
+     * @return number of prefixes
+     */
+    public int getPrefixCount() {
+        return prefixes.length;
+    }
+
+    @Override
+    public URI get(int index) {
+        if (index < 0 || index >= prefixIndices.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + prefixIndices.length);
+        }
+
+        String suffix = new String(suffixes, offsets[index], offsets[index + 1] - offsets[index], UTF_8);
+        return URI.create(prefixes[prefixIndices[index]] + suffix);
+    }
+
+    @Override
+    public int size() {
+        return prefixIndices.length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return find(o, false);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return find(o, true);
+    }
+
+    private int find(Object o, boolean last) {
+        if (!(o instanceof URI)) {
+            return -1;
+        }
+
+        String text = o.toString();
+        int split = splitIndex(text);
+        int prefixIndex = Arrays.asList(prefixes).indexOf(text.substring(0, split));
+        if (prefixIndex < 0) {
+            return -1;
+        }
+
+        byte[] suffix = text.substring(split).getBytes(UTF_8);
+        int found = -1;
+        for (int i = 0; i < prefixIndices.length; i++) {
+            if (prefixIndices[i] == prefixIndex && suffixEquals(i, suffix)) {
+                if (!last) {
+                    return i;
+                }
+                found = i;
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    private boolean suffixEquals(int index, byte[] suffix) {
+        int start = offsets[index];
+        if (offsets[index + 1] - start != suffix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < suffix.length; i++) {
+            if (suffixes[start + i] != suffix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
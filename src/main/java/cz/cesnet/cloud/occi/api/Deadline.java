@@ -0,0 +1,89 @@
+package cz.cesnet.cloud.occi.api;
+
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which an operation has to finish. Deadline is measured by
+ * a monotonic clock, so it isn't affected by changes of the system time.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * List<Entity> entities = client.describe("compute", Deadline.after(2, TimeUnit.SECONDS));}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public final class Deadline {
+
+    private final long nanoTime;
+
+    private Deadline(long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Creates deadline given time from now.
+     *
+     * @param duration time budget, can be negative
+     * @param unit unit of the duration, cannot be null
+     * @return deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("unit cannot be null");
+        }
+
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Returns time remaining until the deadline.
+     *
+     * @param unit unit of the result
+     * @return remaining time, zero or negative if the deadline passed
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(nanoTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns whether the deadline passed.
+     *
+     * @return true if the deadline passed, false otherwise
+     */
+    public boolean isExpired() {
+        return nanoTime - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Throws exception if the deadline passed.
+     *
+     * @throws DeadlineExceededException if the deadline passed
+     */
+    public void check() throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException("deadline exceeded");
+        }
+    }
+
+    /**
+     * Returns the earlier of this and the other deadline.
+     *
+     * @param other other deadline, can be null
+     * @return earlier deadline
+     */
+    public Deadline min(Deadline other) {
+        if (other == null || nanoTime - other.nanoTime <= 0) {
+            return this;
+        }
+
+        return other;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms}";
+    }
+}
@@ -2,8 +2,10 @@ package cz.cesnet.cloud.occi.api;
 
 import cz.cesnet.cloud.occi.Model;
 import cz.cesnet.cloud.occi.api.exception.EntityBuildingException;
+import cz.cesnet.cloud.occi.api.id.SecureRandomIdGenerator;
 import cz.cesnet.cloud.occi.core.Action;
 import cz.cesnet.cloud.occi.core.ActionInstance;
+import cz.cesnet.cloud.occi.core.Entity;
 import cz.cesnet.cloud.occi.core.Kind;
 import cz.cesnet.cloud.occi.core.Link;
 import cz.cesnet.cloud.occi.core.Mixin;
@@ -18,7 +20,6 @@ import cz.cesnet.cloud.occi.infrastructure.NetworkInterface;
 import cz.cesnet.cloud.occi.infrastructure.Storage;
 import cz.cesnet.cloud.occi.infrastructure.StorageLink;
 import java.net.URI;
-import java.util.UUID;
 
 /**
  * Builder class that helps with creation of OCCI entities.
@@ -28,6 +29,8 @@ import java.util.UUID;
 public class EntityBuilder {
 
     private Model model;
+    private volatile ModelIndex index;
+    private volatile IdGenerator idGenerator = new SecureRandomIdGenerator();
 
     /**
      * Default constructor.
@@ -40,10 +43,30 @@ public class EntityBuilder {
         }
 
         this.model = model;
+        this.index = new ModelIndex(model);
+    }
+
+    /**
+     * Returns index over builder's model. Index is rebuilt only when the model
+     * is swapped via {@link #setModel(Model)} or on {@link #refresh()}.
+     *
+     * @return index over the model
+     */
+    private ModelIndex index() {
+        return index;
+    }
+
+    /**
+     * Rebuilds indices over the model. Has to be called when kinds, mixins or
+     * actions are added to or removed from the builder's model after the
+     * builder was created, lookups use a snapshot of the model otherwise.
+     */
+    public void refresh() {
+        this.index = model == null ? null : new ModelIndex(model);
     }
 
     private Kind getKind(String type) throws EntityBuildingException, AmbiguousIdentifierException {
-        Kind kind = model.findKind(type);
+        Kind kind = index().findKind(type);
         if (kind == null) {
             throw new EntityBuildingException("unknown type '" + type + "'");
         }
@@ -52,7 +75,7 @@ public class EntityBuilder {
     }
 
     private Kind getKind(URI identifier) throws EntityBuildingException {
-        Kind kind = model.findKind(identifier);
+        Kind kind = index().findKind(identifier);
         if (kind == null) {
             throw new EntityBuildingException("unknown identifier '" + identifier + "'");
         }
@@ -61,40 +84,16 @@ public class EntityBuilder {
     }
 
     private Kind getKind(Class resourceClass) throws EntityBuildingException {
-        URI uri = null;
-        Kind defaultKind = null;
-
-        if (resourceClass.equals(Compute.class)) {
-            uri = URI.create(Compute.KIND_IDENTIFIER_DEFAULT);
-            defaultKind = Compute.getDefaultKind();
-        } else if (resourceClass.equals(Network.class)) {
-            uri = URI.create(Network.KIND_IDENTIFIER_DEFAULT);
-            defaultKind = Network.getDefaultKind();
-        } else if (resourceClass.equals(Storage.class)) {
-            uri = URI.create(Storage.KIND_IDENTIFIER_DEFAULT);
-            defaultKind = Storage.getDefaultKind();
-        } else if (resourceClass.equals(StorageLink.class)) {
-            uri = URI.create(StorageLink.KIND_IDENTIFIER_DEFAULT);
-            defaultKind = StorageLink.getDefaultKind();
-        } else if (resourceClass.equals(NetworkInterface.class)) {
-            uri = URI.create(NetworkInterface.KIND_IDENTIFIER_DEFAULT);
-            defaultKind = NetworkInterface.getDefaultKind();
-        } else {
+        Kind kind = index().findKind(resourceClass);
+        if (kind == null) {
             throw new EntityBuildingException("unknown class '" + resourceClass.getName() + "'");
         }
 
-        Kind kind;
-        try {
-            kind = getKind(uri);
-        } catch (EntityBuildingException ex) {
-            kind = defaultKind;
-        }
-
         return kind;
     }
 
     private Mixin getMixin(URI identifier) throws EntityBuildingException {
-        Mixin mixin = model.findMixin(identifier);
+        Mixin mixin = index().findMixin(identifier);
         if (mixin == null) {
             throw new EntityBuildingException("unknown identifier '" + identifier + "'");
         }
@@ -103,7 +102,7 @@ public class EntityBuilder {
     }
 
     private Action getAction(String type) throws EntityBuildingException, AmbiguousIdentifierException {
-        Action action = model.findAction(type);
+        Action action = index().findAction(type);
         if (action == null) {
             throw new EntityBuildingException("unknown type '" + type + "'");
         }
@@ -112,7 +111,7 @@ public class EntityBuilder {
     }
 
     private Action getAction(URI identifier) throws EntityBuildingException {
-        Action action = model.findAction(identifier);
+        Action action = index().findAction(identifier);
         if (action == null) {
             throw new EntityBuildingException("unknown identifier '" + identifier + "'");
         }
@@ -337,16 +336,8 @@ public class EntityBuilder {
      * @throws EntityBuildingException
      */
     public IPNetwork getIPNetwork() throws EntityBuildingException {
-        Kind kind = getKind(Network.class);
-
-        Mixin mixin;
-        try {
-            mixin = getMixin(URI.create(IPNetwork.MIXIN_IDENTIFIER_DEFAULT));
-        } catch (EntityBuildingException ex) {
-            mixin = IPNetwork.getDefaultMixin();
-        }
-
-        return createIPNetwork(kind, mixin);
+        ModelIndex current = index();
+        return createIPNetwork(current.findKind(Network.class), current.findMixin(IPNetwork.class));
     }
 
     /**
@@ -370,21 +361,33 @@ public class EntityBuilder {
      * @throws EntityBuildingException
      */
     public IPNetworkInterface getIPNetworkInterface() throws EntityBuildingException {
-        Kind kind = getKind(NetworkInterface.class);
+        ModelIndex current = index();
+        return createIPNetworkInterface(current.findKind(NetworkInterface.class), current.findMixin(IPNetworkInterface.class));
+    }
 
-        Mixin mixin;
-        try {
-            mixin = getMixin(URI.create(IPNetworkInterface.MIXIN_IDENTIFIER_DEFAULT));
-        } catch (EntityBuildingException ex) {
-            mixin = IPNetworkInterface.getDefaultMixin();
+    /**
+     * Creates a template for mass creation of entities similar to the given
+     * prototype. Prototype is usually created by one of the builder's methods
+     * and filled with mixins and attributes shared by all instances. Instances
+     * get the builder's model if the prototype has none, prototype itself is
+     * not modified.
+     *
+     * @param <T> type of the prototype
+     * @param prototype prototype entity, cannot be null
+     * @return template creating copies of the prototype with new IDs
+     * @throws EntityBuildingException
+     */
+    public <T extends Entity> EntityTemplate<T> getTemplate(T prototype) throws EntityBuildingException {
+        if (prototype == null) {
+            throw new NullPointerException("prototype cannot be null");
         }
 
-        return createIPNetworkInterface(kind, mixin);
+        return new EntityTemplate<>(prototype, idGenerator, model);
     }
 
     private Resource createResource(Kind kind) {
         try {
-            Resource resource = new Resource(UUID.randomUUID().toString(), kind);
+            Resource resource = new Resource(idGenerator.generate(), kind);
             resource.setModel(model);
             return resource;
         } catch (InvalidAttributeValueException ex) {
@@ -394,7 +397,7 @@ public class EntityBuilder {
 
     private Link createLink(Kind kind) {
         try {
-            Link link = new Link(UUID.randomUUID().toString(), kind);
+            Link link = new Link(idGenerator.generate(), kind);
             link.setModel(model);
             return link;
         } catch (InvalidAttributeValueException ex) {
@@ -410,7 +413,7 @@ public class EntityBuilder {
 
     private Compute createCompute(Kind kind) {
         try {
-            Compute compute = new Compute(UUID.randomUUID().toString(), kind);
+            Compute compute = new Compute(idGenerator.generate(), kind);
             compute.setModel(model);
             return compute;
         } catch (InvalidAttributeValueException ex) {
@@ -420,7 +423,7 @@ public class EntityBuilder {
 
     private Network createNetwork(Kind kind) {
         try {
-            Network network = new Network(UUID.randomUUID().toString(), kind);
+            Network network = new Network(idGenerator.generate(), kind);
             network.setModel(model);
             return network;
         } catch (InvalidAttributeValueException ex) {
@@ -430,7 +433,7 @@ public class EntityBuilder {
 
     private Storage createStorage(Kind kind) {
         try {
-            Storage storage = new Storage(UUID.randomUUID().toString(), kind);
+            Storage storage = new Storage(idGenerator.generate(), kind);
             storage.setModel(model);
             return storage;
         } catch (InvalidAttributeValueException ex) {
@@ -440,7 +443,7 @@ public class EntityBuilder {
 
     private StorageLink createStorageLink(Kind kind) {
         try {
-            StorageLink storageLink = new StorageLink(UUID.randomUUID().toString(), kind);
+            StorageLink storageLink = new StorageLink(idGenerator.generate(), kind);
             storageLink.setModel(model);
             return storageLink;
         } catch (InvalidAttributeValueException ex) {
@@ -450,7 +453,7 @@ public class EntityBuilder {
 
     private NetworkInterface createNetworkInterface(Kind kind) {
         try {
-            NetworkInterface networkInterface = new NetworkInterface(UUID.randomUUID().toString(), kind);
+            NetworkInterface networkInterface = new NetworkInterface(idGenerator.generate(), kind);
             networkInterface.setModel(model);
             return networkInterface;
         } catch (InvalidAttributeValueException ex) {
@@ -460,7 +463,7 @@ public class EntityBuilder {
 
     private IPNetwork createIPNetwork(Kind kind, Mixin mixin) {
         try {
-            IPNetwork ipnetwork = new IPNetwork(UUID.randomUUID().toString(), kind);
+            IPNetwork ipnetwork = new IPNetwork(idGenerator.generate(), kind);
             ipnetwork.setModel(model);
             ipnetwork.addMixin(mixin);
             return ipnetwork;
@@ -471,7 +474,7 @@ public class EntityBuilder {
 
     private IPNetworkInterface createIPNetworkInterface(Kind kind, Mixin mixin) {
         try {
-            IPNetworkInterface ipnetworkInterface = new IPNetworkInterface(UUID.randomUUID().toString(), kind);
+            IPNetworkInterface ipnetworkInterface = new IPNetworkInterface(idGenerator.generate(), kind);
             ipnetworkInterface.setModel(model);
             ipnetworkInterface.addMixin(mixin);
             return ipnetworkInterface;
@@ -490,11 +493,37 @@ public class EntityBuilder {
     }
 
     /**
-     * Sets model.
+     * Sets model. Indices over the model are rebuilt.
      *
      * @param model model
      */
     public void setModel(Model model) {
         this.model = model;
+        this.index = model == null ? null : new ModelIndex(model);
+    }
+
+    /**
+     * Returns generator used to assign IDs to new entities.
+     *
+     * @return ID generator
+     */
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Sets generator used to assign IDs to new entities. Default generator
+     * produces random UUIDs from a shared SecureRandom instance. Bulk
+     * creation from multiple threads can use one of the generators from
+     * package {@code cz.cesnet.cloud.occi.api.id} that don't contend on it.
+     *
+     * @param idGenerator ID generator, cannot be null
+     */
+    public void setIdGenerator(IdGenerator idGenerator) {
+        if (idGenerator == null) {
+            throw new NullPointerException("idGenerator cannot be null");
+        }
+
+        this.idGenerator = idGenerator;
     }
 }
@@ -0,0 +1,253 @@
+package cz.cesnet.cloud.occi.api;
+
+import cz.cesnet.cloud.occi.Model;
+import cz.cesnet.cloud.occi.api.exception.EntityBuildingException;
+import cz.cesnet.cloud.occi.api.id.SecureRandomIdGenerator;
+import cz.cesnet.cloud.occi.core.Action;
+import cz.cesnet.cloud.occi.core.Attribute;
+import cz.cesnet.cloud.occi.core.Entity;
+import cz.cesnet.cloud.occi.core.Kind;
+import cz.cesnet.cloud.occi.core.Mixin;
+import cz.cesnet.cloud.occi.core.Resource;
+import cz.cesnet.cloud.occi.exception.InvalidAttributeValueException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template for mass creation of entities that share kind, mixins and most of
+ * their attributes.
+ *
+ * <p>
+ * Template is created from a prototype entity. Kind, mixins, actions and
+ * attribute definitions are resolved once and all instances created from the
+ * template share them. Prototype's attribute values are validated once when
+ * the template is created, only values that differ between instances (e.g.
+ * hostname) are validated per instance. Later changes of the prototype are not
+ * reflected in the template. Template is immutable and can be used from
+ * multiple threads.</p>
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * Compute prototype = entityBuilder.getCompute();
+ *prototype.addMixin(model.findMixin("debian7", "os_tpl"));
+ *prototype.setCores(4);
+ *EntityTemplate<Compute> template = entityBuilder.getTemplate(prototype);
+ *Compute compute = template.newInstance(Collections.singletonMap(Compute.HOSTNAME_ATTRIBUTE_NAME, "node-1"));}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ * @param <T> type of created entities
+ */
+public class EntityTemplate<T extends Entity> {
+
+    private final IdGenerator idGenerator;
+    private final Constructor<T> constructor;
+    private final Kind kind;
+    private final Model model;
+    private final List<Mixin> mixins;
+    private final List<Action> actions;
+    private final Map<Attribute, String> attributes;
+    private final Kind validatedKind;
+
+    /**
+     * Constructor. Instances get random UUIDs as their IDs.
+     *
+     * @param prototype entity the template is created from, cannot be null
+     * @throws EntityBuildingException if prototype's class cannot be
+     * instantiated
+     */
+    public EntityTemplate(T prototype) throws EntityBuildingException {
+        this(prototype, new SecureRandomIdGenerator());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prototype entity the template is created from, cannot be null
+     * @param idGenerator generator of instance IDs, cannot be null
+     * @throws EntityBuildingException if prototype's class cannot be
+     * instantiated or some of prototype's attribute values is invalid
+     */
+    public EntityTemplate(T prototype, IdGenerator idGenerator) throws EntityBuildingException {
+        this(prototype, idGenerator, null);
+    }
+
+    /**
+     * Constructor used by {@link EntityBuilder}, instances get given model
+     * when the prototype has none. Prototype is not modified.
+     *
+     * @param prototype entity the template is created from, cannot be null
+     * @param idGenerator generator of instance IDs, cannot be null
+     * @param model model of the instances if the prototype has none
+     * @throws EntityBuildingException if prototype's class cannot be
+     * instantiated or some of prototype's attribute values is invalid
+     */
+    @SuppressWarnings("unchecked")
+    EntityTemplate(T prototype, IdGenerator idGenerator, Model model) throws EntityBuildingException {
+        if (prototype == null) {
+            throw new NullPointerException("prototype cannot be null");
+        }
+
+        if (idGenerator == null) {
+            throw new NullPointerException("idGenerator cannot be null");
+        }
+
+        this.idGenerator = idGenerator;
+
+        try {
+            this.constructor = (Constructor<T>) prototype.getClass().getConstructor(String.class, Kind.class);
+        } catch (NoSuchMethodException ex) {
+            throw new EntityBuildingException("cannot create template from class '" + prototype.getClass().getName() + "'", ex);
+        }
+
+        this.kind = prototype.getKind();
+        this.model = prototype.getModel() == null ? model : prototype.getModel();
+        this.mixins = Collections.unmodifiableList(new ArrayList<>(prototype.getMixins()));
+        if (prototype instanceof Resource) {
+            this.actions = Collections.unmodifiableList(new ArrayList<>(((Resource) prototype).getActions()));
+        } else {
+            this.actions = Collections.emptyList();
+        }
+
+        Map<Attribute, String> validated = validate(prototype);
+        this.attributes = Collections.unmodifiableMap(validated);
+
+        //definitions without patterns so the copied values are not matched against them again
+        List<Attribute> definitions = new ArrayList<>(validated.size());
+        for (Attribute attribute : validated.keySet()) {
+            definitions.add(new Attribute(attribute.getName(), attribute.isRequired(), attribute.isImmutable(), attribute.getType(), null, attribute.getDefaultValue(), attribute.getDescription()));
+        }
+        this.validatedKind = new Kind(kind.getScheme(), kind.getTerm(), kind.getTitle(), kind.getLocation(), definitions);
+    }
+
+    /**
+     * Adds prototype's attribute values to an entity with prototype's kind and
+     * mixins. Values that were added to the prototype before the mixin
+     * defining them are validated too and every value gets its definition
+     * from the model.
+     */
+    private Map<Attribute, String> validate(T prototype) throws EntityBuildingException {
+        T entity = instantiate(prototype.getId(), kind);
+        entity.addMixins(mixins);
+        try {
+            for (Map.Entry<Attribute, String> entry : prototype.getAttributes().entrySet()) {
+                if (!Entity.ID_ATTRIBUTE_NAME.equals(entry.getKey().getName())) {
+                    entity.addAttribute(entry.getKey().getName(), entry.getValue());
+                }
+            }
+        } catch (InvalidAttributeValueException ex) {
+            throw new EntityBuildingException(ex);
+        }
+
+        Map<Attribute, String> validated = new HashMap<>(entity.getAttributes());
+        validated.remove(new Attribute(Entity.ID_ATTRIBUTE_NAME));
+        return validated;
+    }
+
+    private T instantiate(String id, Kind instanceKind) throws EntityBuildingException {
+        try {
+            return constructor.newInstance(id, instanceKind);
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new EntityBuildingException(ex);
+        } catch (InvocationTargetException ex) {
+            throw new EntityBuildingException(ex.getCause());
+        }
+    }
+
+    /**
+     * Returns kind shared by all instances.
+     *
+     * @return kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns mixins shared by all instances.
+     *
+     * @return unmodifiable list of mixins
+     */
+    public List<Mixin> getMixins() {
+        return mixins;
+    }
+
+    /**
+     * Returns attribute values shared by all instances.
+     *
+     * @return unmodifiable map of attributes and their values
+     */
+    public Map<Attribute, String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Creates a new instance with a generated ID.
+     *
+     * @return new entity instance
+     * @throws EntityBuildingException if instance cannot be created
+     */
+    public T newInstance() throws EntityBuildingException {
+        return newInstance(idGenerator.generate(), null);
+    }
+
+    /**
+     * Creates a new instance with a generated ID and instance specific
+     * attribute values.
+     *
+     * @param values attribute names and values overriding the template's ones,
+     * can be null
+     * @return new entity instance
+     * @throws EntityBuildingException if instance cannot be created or some of
+     * the values is invalid
+     */
+    public T newInstance(Map<String, String> values) throws EntityBuildingException {
+        return newInstance(idGenerator.generate(), values);
+    }
+
+    /**
+     * Creates a new instance with given ID and instance specific attribute
+     * values.
+     *
+     * @param id ID of the new instance, cannot be null
+     * @param values attribute names and values overriding the template's ones,
+     * can be null
+     * @return new entity instance
+     * @throws EntityBuildingException if instance cannot be created or some of
+     * the values is invalid
+     */
+    public T newInstance(String id, Map<String, String> values) throws EntityBuildingException {
+        //values are added while the instance has the template's kind, before its mixins
+        T entity = instantiate(id, validatedKind);
+        try {
+            for (Map.Entry<Attribute, String> entry : attributes.entrySet()) {
+                entity.addAttribute(entry.getKey().getName(), entry.getValue());
+            }
+        } catch (InvalidAttributeValueException ex) {
+            throw new EntityBuildingException(ex);
+        }
+
+        entity.setKind(kind);
+        entity.setModel(model);
+        entity.addMixins(mixins);
+        if (!actions.isEmpty()) {
+            ((Resource) entity).addActions(actions);
+        }
+
+        if (values != null) {
+            try {
+                entity.addAttributes(values);
+            } catch (InvalidAttributeValueException ex) {
+                throw new EntityBuildingException(ex);
+            }
+        }
+
+        return entity;
+    }
+}
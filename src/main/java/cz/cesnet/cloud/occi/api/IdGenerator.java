@@ -0,0 +1,18 @@
+package cz.cesnet.cloud.occi.api;
+
+/**
+ * ID generator interface. Used by {@link EntityBuilder} and
+ * {@link EntityTemplate} to assign IDs to new entities. Implementations have
+ * to be thread-safe.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public interface IdGenerator {
+
+    /**
+     * Generates a new unique ID.
+     *
+     * @return new ID
+     */
+    String generate();
+}
@@ -0,0 +1,231 @@
+package cz.cesnet.cloud.occi.api;
+
+import cz.cesnet.cloud.occi.Model;
+import cz.cesnet.cloud.occi.core.Action;
+import cz.cesnet.cloud.occi.core.Category;
+import cz.cesnet.cloud.occi.core.Kind;
+import cz.cesnet.cloud.occi.core.Mixin;
+import cz.cesnet.cloud.occi.exception.AmbiguousIdentifierException;
+import cz.cesnet.cloud.occi.infrastructure.Compute;
+import cz.cesnet.cloud.occi.infrastructure.IPNetwork;
+import cz.cesnet.cloud.occi.infrastructure.IPNetworkInterface;
+import cz.cesnet.cloud.occi.infrastructure.Network;
+import cz.cesnet.cloud.occi.infrastructure.NetworkInterface;
+import cz.cesnet.cloud.occi.infrastructure.Storage;
+import cz.cesnet.cloud.occi.infrastructure.StorageLink;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash indices over kinds, mixins and actions of a model. Lookups are constant
+ * time as opposed to linear scans done by {@link Model}'s find methods.
+ *
+ * <p>
+ * Index is a snapshot of the model at the time of its creation. Method
+ * {@link #isCurrent()} can be used to detect that kinds, mixins or actions
+ * were added to or removed from the model since then.</p>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ModelIndex {
+
+    private final Model model;
+    private final int kindCount;
+    private final int mixinCount;
+    private final int actionCount;
+    private final Map<String, Kind> kindsByIdentifier = new HashMap<>();
+    private final Map<String, Kind> kindsByTerm = new HashMap<>();
+    private final Set<String> ambiguousKindTerms = new HashSet<>();
+    private final Map<String, Mixin> mixinsByIdentifier = new HashMap<>();
+    private final Map<String, Action> actionsByIdentifier = new HashMap<>();
+    private final Map<String, Action> actionsByTerm = new HashMap<>();
+    private final Set<String> ambiguousActionTerms = new HashSet<>();
+    private final Map<Class<?>, Kind> kindsByClass = new HashMap<>();
+    private final Map<Class<?>, Mixin> mixinsByClass = new HashMap<>();
+
+    /**
+     * Constructor. Builds indices over the given model.
+     *
+     * @param model cannot be null
+     */
+    public ModelIndex(Model model) {
+        if (model == null) {
+            throw new NullPointerException("model cannot be null");
+        }
+
+        this.model = model;
+        Set<Kind> kinds = model.getKinds();
+        Set<Mixin> mixins = model.getMixins();
+        Set<Action> actions = model.getActions();
+        kindCount = kinds.size();
+        mixinCount = mixins.size();
+        actionCount = actions.size();
+
+        index(kinds, kindsByIdentifier, kindsByTerm, ambiguousKindTerms);
+        index(mixins, mixinsByIdentifier, null, null);
+        for (Action action : actions) {
+            actionsByIdentifier.put(action.getIdentifier(), action);
+            String term = action.getTerm();
+            if (actionsByTerm.containsKey(term)) {
+                ambiguousActionTerms.add(term);
+            } else {
+                actionsByTerm.put(term, action);
+            }
+        }
+
+        indexClass(Compute.class, Compute.KIND_IDENTIFIER_DEFAULT, Compute.getDefaultKind());
+        indexClass(Network.class, Network.KIND_IDENTIFIER_DEFAULT, Network.getDefaultKind());
+        indexClass(Storage.class, Storage.KIND_IDENTIFIER_DEFAULT, Storage.getDefaultKind());
+        indexClass(StorageLink.class, StorageLink.KIND_IDENTIFIER_DEFAULT, StorageLink.getDefaultKind());
+        indexClass(NetworkInterface.class, NetworkInterface.KIND_IDENTIFIER_DEFAULT, NetworkInterface.getDefaultKind());
+
+        Mixin mixin = mixinsByIdentifier.get(IPNetwork.MIXIN_IDENTIFIER_DEFAULT);
+        mixinsByClass.put(IPNetwork.class, mixin == null ? IPNetwork.getDefaultMixin() : mixin);
+        mixin = mixinsByIdentifier.get(IPNetworkInterface.MIXIN_IDENTIFIER_DEFAULT);
+        mixinsByClass.put(IPNetworkInterface.class, mixin == null ? IPNetworkInterface.getDefaultMixin() : mixin);
+    }
+
+    private <T extends Category> void index(Collection<T> categories, Map<String, T> byIdentifier, Map<String, T> byTerm, Set<String> ambiguousTerms) {
+        for (T category : categories) {
+            byIdentifier.put(category.getIdentifier(), category);
+            if (byTerm == null) {
+                continue;
+            }
+
+            String term = category.getTerm();
+            if (byTerm.containsKey(term)) {
+                ambiguousTerms.add(term);
+            } else {
+                byTerm.put(term, category);
+            }
+        }
+    }
+
+    private void indexClass(Class<?> resourceClass, String identifier, Kind defaultKind) {
+        Kind kind = kindsByIdentifier.get(identifier);
+        kindsByClass.put(resourceClass, kind == null ? defaultKind : kind);
+    }
+
+    /**
+     * Returns indexed model.
+     *
+     * @return model
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Checks whether the index still reflects the model. Detects added and
+     * removed kinds, mixins and actions by comparing their counts.
+     *
+     * @return true if the index is up to date, false otherwise
+     */
+    public boolean isCurrent() {
+        return kindCount == model.getKinds().size()
+                && mixinCount == model.getMixins().size()
+                && actionCount == model.getActions().size();
+    }
+
+    /**
+     * Looks up kind by its term.
+     *
+     * @param term kind's term
+     * @return kind or null if there is no kind with such term
+     * @throws AmbiguousIdentifierException if there are more kinds with the
+     * same term
+     */
+    public Kind findKind(String term) throws AmbiguousIdentifierException {
+        if (ambiguousKindTerms.contains(term)) {
+            throw new AmbiguousIdentifierException("term '" + term + "' is ambiguous");
+        }
+
+        return kindsByTerm.get(term);
+    }
+
+    /**
+     * Looks up kind by its identifier (scheme+term).
+     *
+     * @param identifier kind's identifier
+     * @return kind or null if there is no kind with such identifier
+     */
+    public Kind findKind(URI identifier) {
+        if (identifier == null) {
+            return null;
+        }
+
+        return kindsByIdentifier.get(identifier.toString());
+    }
+
+    /**
+     * Looks up kind for one of the infrastructure resource classes. If the
+     * model doesn't contain kind with the class's default identifier, class's
+     * default kind is returned.
+     *
+     * @param resourceClass class of a resource or a link
+     * @return kind or null if class is not one of the infrastructure classes
+     */
+    public Kind findKind(Class<?> resourceClass) {
+        return kindsByClass.get(resourceClass);
+    }
+
+    /**
+     * Looks up mixin by its identifier (scheme+term).
+     *
+     * @param identifier mixin's identifier
+     * @return mixin or null if there is no mixin with such identifier
+     */
+    public Mixin findMixin(URI identifier) {
+        if (identifier == null) {
+            return null;
+        }
+
+        return mixinsByIdentifier.get(identifier.toString());
+    }
+
+    /**
+     * Looks up default mixin for IPNetwork or IPNetworkInterface class. If the
+     * model doesn't contain mixin with the class's default identifier, class's
+     * default mixin is returned.
+     *
+     * @param resourceClass IPNetwork or IPNetworkInterface class
+     * @return mixin or null if class has no default mixin
+     */
+    public Mixin findMixin(Class<?> resourceClass) {
+        return mixinsByClass.get(resourceClass);
+    }
+
+    /**
+     * Looks up action by its term.
+     *
+     * @param term action's term
+     * @return action or null if there is no action with such term
+     * @throws AmbiguousIdentifierException if there are more actions with the
+     * same term
+     */
+    public Action findAction(String term) throws AmbiguousIdentifierException {
+        if (ambiguousActionTerms.contains(term)) {
+            throw new AmbiguousIdentifierException("term '" + term + "' is ambiguous");
+        }
+
+        return actionsByTerm.get(term);
+    }
+
+    /**
+     * Looks up action by its identifier (scheme+term).
+     *
+     * @param identifier action's identifier
+     * @return action or null if there is no action with such identifier
+     */
+    public Action findAction(URI identifier) {
+        if (identifier == null) {
+            return null;
+        }
+
+        return actionsByIdentifier.get(identifier.toString());
+    }
+}
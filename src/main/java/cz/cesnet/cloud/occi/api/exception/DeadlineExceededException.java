@@ -0,0 +1,22 @@
+package cz.cesnet.cloud.occi.api.exception;
+
+/**
+ * Thrown when an operation is abandoned because its deadline passed.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class DeadlineExceededException extends CommunicationException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable ex) {
+        super(message, ex);
+    }
+
+    public DeadlineExceededException(Throwable ex) {
+        super(ex);
+    }
+
+}
@@ -0,0 +1,22 @@
+package cz.cesnet.cloud.occi.api.exception;
+
+/**
+ * Thrown when an operation is abandoned because it was cancelled.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class OperationCancelledException extends CommunicationException {
+
+    public OperationCancelledException(String message) {
+        super(message);
+    }
+
+    public OperationCancelledException(String message, Throwable ex) {
+        super(message, ex);
+    }
+
+    public OperationCancelledException(Throwable ex) {
+        super(ex);
+    }
+
+}
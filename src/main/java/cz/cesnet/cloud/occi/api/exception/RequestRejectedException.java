@@ -0,0 +1,23 @@
+package cz.cesnet.cloud.occi.api.exception;
+
+/**
+ * Thrown when a request is not sent because client-side request limits are
+ * exhausted.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RequestRejectedException extends CommunicationException {
+
+    public RequestRejectedException(String message) {
+        super(message);
+    }
+
+    public RequestRejectedException(String message, Throwable ex) {
+        super(message, ex);
+    }
+
+    public RequestRejectedException(Throwable ex) {
+        super(ex);
+    }
+
+}
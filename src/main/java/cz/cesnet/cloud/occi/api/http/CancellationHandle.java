@@ -0,0 +1,144 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Handle used to cancel an operation consisting of multiple requests (e.g.
+ * describe or Keystone authentication) from another thread. Cancellation
+ * aborts requests in flight, which releases their pooled connections
+ * immediately, and no further requests of the operation are sent. Cancelled
+ * operation fails with {@link OperationCancelledException}. Handle can be
+ * cancelled only once.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * CancellationHandle handle = new CancellationHandle();
+ *List<Entity> entities = client.describe("compute", handle);}</pre>
+ *
+ * <p>
+ * and in another thread:</p>
+ *
+ * <pre>{@code
+ * handle.cancel();}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class CancellationHandle {
+
+    //how often threads waiting without a request in flight check for cancellation
+    static final long CHECK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final ThreadLocal<CancellationHandle> CURRENT = new ThreadLocal<>();
+    private final Set<HttpRequestBase> requests = Collections.newSetFromMap(new IdentityHashMap<HttpRequestBase, Boolean>());
+    private volatile boolean cancelled;
+
+    /**
+     * Returns handle of the operation run by the current thread.
+     *
+     * @return handle or null if the operation cannot be cancelled
+     */
+    public static CancellationHandle current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the handle to the current thread.
+     *
+     * @param handle handle, cannot be null
+     * @return previous handle which has to be restored by
+     * {@link #exit(CancellationHandle)}
+     */
+    static CancellationHandle enter(CancellationHandle handle) {
+        if (handle == null) {
+            throw new NullPointerException("handle cannot be null");
+        }
+
+        CancellationHandle previous = CURRENT.get();
+        CURRENT.set(handle);
+        return previous;
+    }
+
+    /**
+     * Restores previous handle of the current thread.
+     *
+     * @param previous handle returned by {@link #enter(CancellationHandle)}
+     */
+    static void exit(CancellationHandle previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Cancels the operation. Requests in flight are aborted.
+     */
+    public void cancel() {
+        HttpRequestBase[] inFlight;
+        synchronized (requests) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            inFlight = requests.toArray(new HttpRequestBase[requests.size()]);
+            requests.clear();
+        }
+
+        for (HttpRequestBase request : inFlight) {
+            request.abort();
+        }
+    }
+
+    /**
+     * Returns whether the operation was cancelled.
+     *
+     * @return true if the operation was cancelled, false otherwise
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws exception if the operation was cancelled.
+     *
+     * @throws OperationCancelledException if the operation was cancelled
+     */
+    public void check() throws OperationCancelledException {
+        if (cancelled) {
+            throw new OperationCancelledException("operation cancelled");
+        }
+    }
+
+    /**
+     * Registers request which is about to be sent, so it's aborted on
+     * cancellation.
+     *
+     * @param request request
+     * @throws OperationCancelledException if the operation was already
+     * cancelled
+     */
+    public void register(HttpRequestBase request) throws OperationCancelledException {
+        synchronized (requests) {
+            check();
+            requests.add(request);
+        }
+    }
+
+    /**
+     * Unregisters finished request.
+     *
+     * @param request request
+     */
+    public void unregister(HttpRequestBase request) {
+        synchronized (requests) {
+            requests.remove(request);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.core.Entity;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks changes of resources on the server. Instead of describing all
+ * resources over and over again, tracker remembers a validator (ETag or hash
+ * of the content) for every resource location and each synchronization
+ * returns only entities that were added or changed and locations that were
+ * removed since the previous one. Resources are re-fetched conditionally, so
+ * with servers supporting ETags unchanged resources are not transferred and
+ * otherwise they are at least not parsed.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * ChangeTracker tracker = new ChangeTracker(client, "compute");
+ *Delta delta = tracker.sync(); //all computes are reported as added
+ *delta = tracker.sync(); //only changes since the previous sync}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ChangeTracker {
+
+    private final HTTPClient client;
+    private final String resourceType;
+    private final URI resourceIdentifier;
+    private Map<URI, String> validators = new HashMap<>();
+
+    /**
+     * Constructor. Tracks all resources.
+     *
+     * @param client client used for communication, cannot be null
+     */
+    public ChangeTracker(HTTPClient client) {
+        this(client, null, null);
+    }
+
+    /**
+     * Constructor. Tracks resources of a certain type.
+     *
+     * @param client client used for communication, cannot be null
+     * @param resourceType resource type in shortened format (e.g. "compute",
+     * "storage", "network"), cannot be null
+     */
+    public ChangeTracker(HTTPClient client, String resourceType) {
+        this(client, resourceType, null);
+        if (resourceType == null) {
+            throw new NullPointerException("resourceType cannot be null");
+        }
+    }
+
+    /**
+     * Constructor. Tracks resources of a certain type.
+     *
+     * @param client client used for communication, cannot be null
+     * @param resourceIdentifier resource type identifier (kind's
+     * scheme+term), cannot be null
+     */
+    public ChangeTracker(HTTPClient client, URI resourceIdentifier) {
+        this(client, null, resourceIdentifier);
+        if (resourceIdentifier == null) {
+            throw new NullPointerException("resourceIdentifier cannot be null");
+        }
+    }
+
+    private ChangeTracker(HTTPClient client, String resourceType, URI resourceIdentifier) {
+        if (client == null) {
+            throw new NullPointerException("client cannot be null");
+        }
+
+        this.client = client;
+        this.resourceType = resourceType;
+        this.resourceIdentifier = resourceIdentifier;
+    }
+
+    private List<URI> list() throws CommunicationException {
+        if (resourceIdentifier != null) {
+            return client.list(resourceIdentifier);
+        }
+
+        if (resourceType != null) {
+            return client.list(resourceType);
+        }
+
+        return client.list();
+    }
+
+    /**
+     * Synchronizes with the server. First synchronization reports all
+     * resources as added. If synchronization fails, tracker's state is not
+     * changed.
+     *
+     * @return changes since the previous synchronization
+     * @throws CommunicationException
+     */
+    public synchronized Delta sync() throws CommunicationException {
+        List<URI> locations = list();
+        Map<URI, String> current = new HashMap<>(locations.size() * 4 / 3 + 1);
+        Map<URI, List<Entity>> added = new LinkedHashMap<>();
+        Map<URI, List<Entity>> changed = new LinkedHashMap<>();
+        for (URI location : locations) {
+            String previous = validators.get(location);
+            LocationDescription description = client.describeIfChanged(location, previous);
+            if (description.isRemoved()) {
+                continue;
+            }
+
+            current.put(location, description.getValidator());
+            if (description.isChanged()) {
+                if (previous == null) {
+                    added.put(location, description.getEntities());
+                } else {
+                    changed.put(location, description.getEntities());
+                }
+            }
+        }
+
+        List<URI> removed = new ArrayList<>();
+        for (URI location : validators.keySet()) {
+            if (!current.containsKey(location)) {
+                removed.add(location);
+            }
+        }
+
+        validators = current;
+        return new Delta(added, changed, removed);
+    }
+
+    /**
+     * Returns validators of all known resource locations.
+     *
+     * @return unmodifiable map of locations and their validators
+     */
+    public synchronized Map<URI, String> getSnapshot() {
+        return Collections.unmodifiableMap(validators);
+    }
+
+    /**
+     * Forgets all known resources. Next synchronization reports all resources
+     * as added.
+     */
+    public synchronized void reset() {
+        validators = new HashMap<>();
+    }
+}
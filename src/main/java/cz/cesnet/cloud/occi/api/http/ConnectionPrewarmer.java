@@ -0,0 +1,145 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens pooled connections to the server in advance. Connections are leased
+ * from the pool at once, so the pool has to open new ones, connected (and SSL
+ * handshaken) in parallel and returned back to the pool where they wait for
+ * requests.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class ConnectionPrewarmer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPrewarmer.class);
+    private final HttpClientConnectionManager connectionManager;
+    private final HttpContext context;
+    private final int connectTimeout;
+
+    /**
+     * Constructor.
+     *
+     * @param connectionManager pooling connection manager
+     * @param context HTTP context used for connecting
+     * @param connectTimeout timeout of a single connection in milliseconds
+     */
+    ConnectionPrewarmer(HttpClientConnectionManager connectionManager, HttpContext context, int connectTimeout) {
+        this.connectionManager = connectionManager;
+        this.context = context;
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Creates route the same way the client's route planner does for a
+     * direct connection.
+     *
+     * @param target server
+     * @return route to the server
+     */
+    static HttpRoute route(HttpHost target) {
+        boolean secure = "https".equalsIgnoreCase(target.getSchemeName());
+        int port = target.getPort();
+        if (port <= 0) {
+            port = secure ? 443 : 80;
+        }
+
+        return new HttpRoute(new HttpHost(target.getHostName(), port, target.getSchemeName()), null, secure);
+    }
+
+    /**
+     * Makes sure the pool holds given number of open connections to the
+     * server. Failures are only logged, requests will open connections on
+     * their own.
+     *
+     * @param target server
+     * @param count number of connections
+     * @return number of open connections returned to the pool
+     */
+    int prewarm(HttpHost target, int count) {
+        final HttpRoute route = route(target);
+        List<HttpClientConnection> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                connections.add(connectionManager.requestConnection(route, null).get(connectTimeout, TimeUnit.MILLISECONDS));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Connection pre-warming interrupted.");
+        } catch (ConnectionPoolTimeoutException | ExecutionException ex) {
+            LOGGER.warn("Cannot lease connection for pre-warming, pool is probably smaller than {}.", count, ex);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, connections.size()), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "occi-connection-prewarmer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Future<Void>> results = new ArrayList<>();
+        for (final HttpClientConnection connection : connections) {
+            results.add(executor.submit(new Callable<Void>() {
+
+                @Override
+                public Void call() throws IOException {
+                    if (!connection.isOpen()) {
+                        connectionManager.connect(connection, route, connectTimeout, context);
+                        connectionManager.routeComplete(connection, route, context);
+                        //binds connection's streams, stale check on an unused connection would fail otherwise
+                        connection.flush();
+                    }
+                    return null;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        int open = 0;
+        for (int i = 0; i < connections.size(); i++) {
+            HttpClientConnection connection = connections.get(i);
+            try {
+                results.get(i).get();
+                open++;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                close(connection);
+            } catch (ExecutionException ex) {
+                LOGGER.warn("Cannot pre-warm connection to {}.", target, ex.getCause());
+                close(connection);
+            }
+            //connections without state can be leased by any request, closed ones are discarded by the pool
+            connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+        }
+
+        LOGGER.debug("Pre-warmed {} connections to {}.", open, target);
+        return open;
+    }
+
+    private static void close(HttpClientConnection connection) {
+        try {
+            connection.shutdown();
+        } catch (IOException ex) {
+            LOGGER.debug("Cannot close connection.", ex);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.core.Entity;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes in resources found by {@link ChangeTracker} between two
+ * synchronizations.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class Delta {
+
+    private final Map<URI, List<Entity>> added;
+    private final Map<URI, List<Entity>> changed;
+    private final List<URI> removed;
+
+    /**
+     * Constructor.
+     *
+     * @param added new locations and their entities
+     * @param changed locations whose content changed and their entities
+     * @param removed locations that no longer exist
+     */
+    public Delta(Map<URI, List<Entity>> added, Map<URI, List<Entity>> changed, List<URI> removed) {
+        this.added = Collections.unmodifiableMap(added);
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+    private static List<Entity> flatten(Map<URI, List<Entity>> entities) {
+        List<Entity> list = new ArrayList<>();
+        for (List<Entity> locationEntities : entities.values()) {
+            list.addAll(locationEntities);
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns entities on locations that were not present during the previous
+     * synchronization.
+     *
+     * @return list of added entities
+     */
+    public List<Entity> getAdded() {
+        return flatten(added);
+    }
+
+    /**
+     * Returns locations that were not present during the previous
+     * synchronization together with their entities.
+     *
+     * @return unmodifiable map of added locations and their entities
+     */
+    public Map<URI, List<Entity>> getAddedByLocation() {
+        return added;
+    }
+
+    /**
+     * Returns entities on locations whose content changed since the previous
+     * synchronization.
+     *
+     * @return list of changed entities
+     */
+    public List<Entity> getChanged() {
+        return flatten(changed);
+    }
+
+    /**
+     * Returns locations whose content changed since the previous
+     * synchronization together with their current entities.
+     *
+     * @return unmodifiable map of changed locations and their entities
+     */
+    public Map<URI, List<Entity>> getChangedByLocation() {
+        return changed;
+    }
+
+    /**
+     * Returns locations that were present during the previous synchronization
+     * but no longer exist.
+     *
+     * @return unmodifiable list of removed locations
+     */
+    public List<URI> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Checks whether there are any changes.
+     *
+     * @return true if nothing was added, changed or removed, false otherwise
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Delta{" + "added=" + added + ", changed=" + changed + ", removed=" + removed + '}';
+    }
+}
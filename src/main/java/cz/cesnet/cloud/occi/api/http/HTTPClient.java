@@ -5,9 +5,15 @@ import cz.cesnet.cloud.occi.Collection;
 import cz.cesnet.cloud.occi.Model;
 import cz.cesnet.cloud.occi.api.Authentication;
 import cz.cesnet.cloud.occi.api.Client;
+import cz.cesnet.cloud.occi.api.CompactLocationList;
+import cz.cesnet.cloud.occi.api.Deadline;
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
 import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
 import cz.cesnet.cloud.occi.api.http.auth.HTTPAuthentication;
 import cz.cesnet.cloud.occi.api.http.auth.NoAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.ProbeResponseHandler;
 import cz.cesnet.cloud.occi.core.ActionInstance;
 import cz.cesnet.cloud.occi.core.Entity;
 import cz.cesnet.cloud.occi.core.Kind;
@@ -17,26 +23,40 @@ import cz.cesnet.cloud.occi.exception.RenderingException;
 import cz.cesnet.cloud.occi.parser.CollectionType;
 import cz.cesnet.cloud.occi.parser.MediaType;
 import cz.cesnet.cloud.occi.parser.TextParser;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpMessage;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,17 +65,33 @@ import org.slf4j.LoggerFactory;
  *
  * @author Michal Kimle <kimle.michal@gmail.com>
  */
-public class HTTPClient extends Client {
+public class HTTPClient extends Client implements Closeable {
 
+    public static final long DEFAULT_RESPONSE_SPILL_THRESHOLD = 16 * 1024 * 1024;
     private static final Logger LOGGER = LoggerFactory.getLogger(HTTPClient.class);
     private static final String ACTION_URL_PARAMETER = "?action=";
+    private static final String ETAG_VALIDATOR_PREFIX = "etag:";
+    private static final String HASH_VALIDATOR_PREFIX = "sha1:";
+    private static final String[] HASHED_HEADERS = {"Category", "Link", "X-OCCI-Attribute", "X-OCCI-Location", "Location"};
+    //parser keeps no state, one instance serves all clients
+    private static final TextParser PARSER = new TextParser();
     private final HTTPConnection connection = new HTTPConnection();
+    private final Object connectionLock = new Object();
     private HttpHost target;
-    private String responseMediaType;
-    private String responseBody;
     private String mediaType;
-    private Headers responseHeaders;
-    private final TextParser parser = new TextParser();
+    private ModelLoading modelLoading = ModelLoading.EAGER;
+    private volatile long maxResponseSize = -1;
+    private volatile long responseSpillThreshold = DEFAULT_RESPONSE_SPILL_THRESHOLD;
+    private volatile RequestLimiter requestLimiter;
+    private volatile RequestCoalescer requestCoalescer;
+    private volatile boolean compactLocations;
+    private volatile SessionRegistry sessionRegistry;
+    private volatile boolean SNIEnabled;
+    private volatile int prewarmedConnections;
+    private volatile boolean reauthenticationEnabled = true;
+    private volatile int authenticationGeneration;
+    private SessionRegistry.Session session;
+    private volatile FutureTask<Model> modelTask;
 
     /**
      * Constructor.
@@ -88,9 +124,6 @@ public class HTTPClient extends Client {
      * @throws CommunicationException
      */
     public HTTPClient(URI endpoint, Authentication authentication, String mediaType, boolean autoconnect) throws CommunicationException {
-        //to avoid SSL handshake unrecognized_name error
-        System.setProperty("jsse.enableSNIExtension", "false");
-
         if (endpoint == null) {
             throw new NullPointerException("endpoint cannot be null");
         }
@@ -150,28 +183,396 @@ public class HTTPClient extends Client {
         return this.mediaType;
     }
 
+    /**
+     * Returns strategy determining when the model is obtained from the server.
+     *
+     * @return model loading strategy
+     */
+    public ModelLoading getModelLoading() {
+        return modelLoading;
+    }
+
+    /**
+     * Sets strategy determining when the model is obtained from the server.
+     * Takes effect on the next connect. Default is {@link ModelLoading#EAGER},
+     * so a model that cannot be obtained fails the connect. With other
+     * strategies the failure is reported by the first call that needs the
+     * model.
+     *
+     * @param modelLoading model loading strategy, cannot be null
+     */
+    public void setModelLoading(ModelLoading modelLoading) {
+        if (modelLoading == null) {
+            throw new NullPointerException("modelLoading cannot be null");
+        }
+
+        this.modelLoading = modelLoading;
+    }
+
+    /**
+     * Returns maximal size of a response body in bytes.
+     *
+     * @return maximal response body size, negative value means no limit
+     */
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /**
+     * Sets maximal size of a response body in bytes. Requests with larger
+     * responses fail with CommunicationException without reading the whole
+     * body. There is no limit by default.
+     *
+     * @param maxResponseSize maximal response body size, negative value means
+     * no limit
+     */
+    public void setMaxResponseSize(long maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Returns size of a response body in bytes above which the body is
+     * buffered in a temporary file instead of memory.
+     *
+     * @return spill threshold, negative value means never
+     */
+    public long getResponseSpillThreshold() {
+        return responseSpillThreshold;
+    }
+
+    /**
+     * Sets size of a response body in bytes above which the body is buffered
+     * in a temporary file instead of memory. The file is memory-mapped and
+     * decoded directly for parsing. Default is
+     * {@link #DEFAULT_RESPONSE_SPILL_THRESHOLD}.
+     *
+     * @param responseSpillThreshold spill threshold, negative value means
+     * never
+     */
+    public void setResponseSpillThreshold(long responseSpillThreshold) {
+        this.responseSpillThreshold = responseSpillThreshold;
+    }
+
+    /**
+     * Returns limiter of requests sent by the client.
+     *
+     * @return request limiter or null if requests are not limited
+     */
+    public RequestLimiter getRequestLimiter() {
+        return requestLimiter;
+    }
+
+    /**
+     * Sets limiter of requests sent by the client. Requests exceeding the
+     * limits wait or fail with RequestRejectedException. Same limiter can be
+     * set to multiple clients of the same endpoint. Requests are not limited
+     * by default.
+     *
+     * @param requestLimiter request limiter, null disables limiting
+     */
+    public void setRequestLimiter(RequestLimiter requestLimiter) {
+        this.requestLimiter = requestLimiter;
+    }
+
+    /**
+     * Returns whether identical concurrent GET requests are coalesced.
+     *
+     * @return true if requests are coalesced, false otherwise
+     */
+    public boolean isRequestCoalescing() {
+        return requestCoalescer != null;
+    }
+
+    /**
+     * Sets whether identical concurrent GET requests (model, list and
+     * describe requests with the same URI and authentication) are coalesced.
+     * When enabled, callers arriving while an identical request is in flight
+     * don't send their own request but wait for the running one and get the
+     * same parsed result, i.e. the same entity and model instances. Callers
+     * modifying described entities should copy them first. Requests are not
+     * coalesced by default.
+     *
+     * @param requestCoalescing whether to coalesce requests
+     */
+    public void setRequestCoalescing(boolean requestCoalescing) {
+        if (requestCoalescing != isRequestCoalescing()) {
+            requestCoalescer = requestCoalescing ? new RequestCoalescer() : null;
+        }
+    }
+
+    /**
+     * Returns whether lists of resource locations are returned in compact
+     * form.
+     *
+     * @return true if locations are returned as {@link CompactLocationList},
+     * false otherwise
+     */
+    public boolean isCompactLocations() {
+        return compactLocations;
+    }
+
+    /**
+     * Sets whether lists of resource locations returned by list methods are
+     * stored as {@link CompactLocationList}. Compact lists keep large
+     * inventories in a fraction of memory but are immutable and create URI
+     * instances on access. By default, list methods return ordinary mutable
+     * lists.
+     *
+     * @param compactLocations whether to return compact lists of locations
+     */
+    public void setCompactLocations(boolean compactLocations) {
+        this.compactLocations = compactLocations;
+    }
+
+    /**
+     * Returns whether server name indication (SNI) extension is sent during
+     * SSL handshake.
+     *
+     * @return true if SNI is enabled, false otherwise
+     */
+    public boolean isSNIEnabled() {
+        return SNIEnabled;
+    }
+
+    /**
+     * Sets whether server name indication (SNI) extension is sent during SSL
+     * handshake. SNI is disabled by default to avoid unrecognized_name
+     * handshake errors with misconfigured servers. Setting affects only this
+     * client and takes effect on the next connection.
+     *
+     * @param SNIEnabled whether SNI is enabled
+     */
+    public void setSNIEnabled(boolean SNIEnabled) {
+        this.SNIEnabled = SNIEnabled;
+    }
+
+    /**
+     * Returns number of connections opened in advance during connection.
+     *
+     * @return number of pre-warmed connections
+     */
+    public int getPrewarmedConnections() {
+        return prewarmedConnections;
+    }
+
+    /**
+     * Sets number of connections opened (and SSL handshaken) in parallel in
+     * advance during {@link #connect()}, so the first burst of parallel
+     * requests doesn't wait for them. Connection pool is enlarged to hold
+     * them if necessary. No connections are pre-warmed by default.
+     *
+     * @param prewarmedConnections number of connections, 0 disables
+     * pre-warming
+     */
+    public void setPrewarmedConnections(int prewarmedConnections) {
+        if (prewarmedConnections < 0) {
+            throw new IllegalArgumentException("number of connections cannot be negative");
+        }
+
+        this.prewarmedConnections = prewarmedConnections;
+    }
+
+    /**
+     * Returns whether rejected credentials are renewed automatically.
+     *
+     * @return true if re-authentication is enabled, false otherwise
+     */
+    public boolean isReauthenticationEnabled() {
+        return reauthenticationEnabled;
+    }
+
+    /**
+     * Sets whether credentials rejected by the server (response 401, e.g.
+     * expired Keystone token) are renewed automatically. Renewal is run only
+     * once for all concurrent requests rejected with the same credentials,
+     * they wait for it. Idempotent requests (GET, HEAD, PUT, DELETE) are then
+     * sent again, the others fail but the following ones use the renewed
+     * credentials. Delete and trigger report a rejected request as
+     * unsuccessful (false) the same way as other unsuccessful statuses.
+     * Enabled by default.
+     *
+     * @param reauthenticationEnabled whether re-authentication is enabled
+     */
+    public void setReauthenticationEnabled(boolean reauthenticationEnabled) {
+        this.reauthenticationEnabled = reauthenticationEnabled;
+    }
+
+    /**
+     * Returns registry of sessions shared with other clients.
+     *
+     * @return session registry or null if client's session is private
+     */
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * Sets registry of sessions shared with other clients. On connection,
+     * client attaches to an existing session for its endpoint and credentials
+     * instead of authenticating on its own. Client has to be closed to release
+     * the session. Sessions are private by default. Change takes effect on the
+     * next connection.
+     *
+     * @param sessionRegistry session registry, null for private session
+     */
+    public void setSessionRegistry(SessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    /**
+     * Returns transport all requests of the client go through.
+     *
+     * @return transport or null if requests are sent directly
+     */
+    public Transport getTransport() {
+        return connection.getTransport();
+    }
+
+    /**
+     * Sets transport all requests of the client, authentication included, go
+     * through, e.g. to record or replay the communication. Change takes
+     * effect on the next connection.
+     *
+     * @param transport transport, null to send requests directly
+     */
+    public void setTransport(Transport transport) {
+        connection.setTransport(transport);
+    }
+
     /**
      * @see Client#connect()
      */
     @Override
     public void connect() throws CommunicationException {
-        Authentication auth = getAuthentication();
-        if (!(auth instanceof HTTPAuthentication)) {
-            throw new CommunicationException("authentication method '" + auth + "' is not a valid HTTP authentication method");
+        FutureTask<Model> task;
+        synchronized (connectionLock) {
+            Authentication auth = getAuthentication();
+            if (!(auth instanceof HTTPAuthentication)) {
+                throw new CommunicationException("authentication method '" + auth + "' is not a valid HTTP authentication method");
+            }
+
+            HTTPAuthentication httpAuth = (HTTPAuthentication) auth;
+            httpAuth.setTarget(target);
+            httpAuth.setConnection(connection);
+            httpAuth.setSNIEnabled(SNIEnabled);
+            final ResponseData[] probe = new ResponseData[1];
+            if (modelLoading == ModelLoading.AUTHENTICATION) {
+                httpAuth.setProbeHandler(new ProbeResponseHandler() {
+                    @Override
+                    public void handle(HttpResponse response) throws IOException, CommunicationException {
+                        probe[0] = readResponse(response);
+                    }
+                });
+            } else {
+                httpAuth.setProbeHandler(null);
+            }
+            releaseSession();
+            SessionRegistry registry = sessionRegistry;
+            List<Object> credentials = httpAuth.getSessionKey();
+            if (registry != null && credentials != null) {
+                session = registry.acquire(Arrays.asList(target, connection.getPrefix(), credentials, SNIEnabled, connection.getTransport()), httpAuth, connection);
+            } else {
+                httpAuth.authenticate();
+            }
+
+            prewarm();
+            authenticationGeneration++;
+            setConnected(true);
+            task = probe[0] == null ? createModelTask() : createModelTask(probe[0]);
+            modelTask = task;
         }
 
-        HTTPAuthentication httpAuth = (HTTPAuthentication) auth;
-        httpAuth.setTarget(target);
-        httpAuth.setConnection(connection);
-        httpAuth.authenticate();
+        switch (modelLoading) {
+            case EAGER:
+            case AUTHENTICATION:
+                task.run();
+                awaitModel(task);
+                break;
+            case BACKGROUND:
+                Thread loader = new Thread(task, "occi-model-loader");
+                loader.setDaemon(true);
+                loader.start();
+                break;
+            default:
+                //model will be obtained on the first call that needs it
+                break;
+        }
+    }
 
-        setConnected(true);
-        obtainModel();
+    /**
+     * Same as {@link #connect()} but can be cancelled from another thread,
+     * including the Keystone authentication.
+     *
+     * @param cancellation cancellation handle, cannot be null
+     * @throws CommunicationException
+     * @throws OperationCancelledException if the connection is cancelled
+     */
+    public void connect(CancellationHandle cancellation) throws CommunicationException {
+        CancellationHandle previous = CancellationHandle.enter(cancellation);
+        try {
+            connect();
+        } finally {
+            CancellationHandle.exit(previous);
+        }
+    }
+
+    private void prewarm() {
+        int count = prewarmedConnections;
+        HttpClientConnectionManager manager = connection.getConnectionManager();
+        if (count == 0 || manager == null) {
+            return;
+        }
+
+        if (manager instanceof PoolingHttpClientConnectionManager) {
+            PoolingHttpClientConnectionManager pool = (PoolingHttpClientConnectionManager) manager;
+            HttpRoute route = ConnectionPrewarmer.route(target);
+            if (pool.getMaxPerRoute(route) < count) {
+                pool.setMaxPerRoute(route, count);
+            }
+            if (pool.getMaxTotal() < count) {
+                pool.setMaxTotal(count);
+            }
+        }
+
+        new ConnectionPrewarmer(manager, connection.getContext(), connection.getRequestConfig().getConnectTimeout()).prewarm(target, count);
+    }
+
+    private void releaseSession() {
+        if (session != null) {
+            session.getRegistry().release(session, connection);
+            session = null;
+        }
+    }
+
+    /**
+     * Closes the client. Shared session is released and closed if no other
+     * client uses it, private session is closed. Client connects again on the
+     * next call that needs connection.
+     */
+    @Override
+    public void close() {
+        synchronized (connectionLock) {
+            setConnected(false);
+            if (session != null) {
+                releaseSession();
+            } else if (connection.getClient() != null) {
+                try {
+                    connection.getClient().close();
+                } catch (IOException ex) {
+                    LOGGER.warn("Cannot close HTTP client.", ex);
+                }
+                connection.setClient(null);
+            }
+        }
     }
 
     private void checkConnection() throws CommunicationException {
         if (!isConnected()) {
-            connect();
+            synchronized (connectionLock) {
+                if (!isConnected()) {
+                    connect();
+                }
+            }
         }
     }
 
@@ -184,43 +585,304 @@ public class HTTPClient extends Client {
         return javaHeaders;
     }
 
-    private void runAndParseRequest(HttpRequest request, int[] statuses) throws CommunicationException {
+    private ResponseData runAndParseRequest(HttpRequest request, int[] statuses) throws CommunicationException {
+        RequestLimiter limiter = requestLimiter;
+        if (limiter != null) {
+            limiter.acquire();
+        }
+
+        Deadline deadline = RequestDeadlines.current();
+        CancellationHandle cancellation = CancellationHandle.current();
+        ScheduledFuture<?> abort = null;
         try {
-            try (CloseableHttpResponse response = HTTPHelper.runRequest(request, target, connection.getClient(), connection.getContext(), statuses)) {
-                responseMediaType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE).getValue();
-                if (responseMediaType.contains(";")) {
-                    responseMediaType = responseMediaType.substring(0, responseMediaType.indexOf(";"));
+            register(cancellation, request);
+            abort = RequestDeadlines.apply(request, connection.getRequestConfig(), deadline);
+            int generation = authenticationGeneration;
+            try {
+                return sendAndReadRequest(request, statuses);
+            } catch (AuthenticationException ex) {
+                if (!renewAuthentication(request, generation)) {
+                    throw ex;
+                }
+                return sendAndReadRequest(request, statuses);
+            }
+        } catch (IOException | CommunicationException ex) {
+            throw failure(deadline, cancellation, ex);
+        } finally {
+            unregister(cancellation, request);
+            if (abort != null) {
+                abort.cancel(false);
+            }
+            if (limiter != null) {
+                limiter.release();
+            }
+        }
+    }
+
+    private ResponseData sendAndReadRequest(HttpRequest request, int[] statuses) throws IOException, CommunicationException {
+        try (CloseableHttpResponse response = HTTPHelper.runRequest(request, target, connection.getClient(), connection.getContext(), statuses)) {
+            return readResponse(response);
+        }
+    }
+
+    /**
+     * Renews credentials rejected by the server unless they were already
+     * renewed since the request was sent, and refreshes request's headers.
+     *
+     * @param request rejected request
+     * @param generation authentication generation the request was sent with
+     * @return true if the request can be sent again, false otherwise
+     * @throws CommunicationException if the renewal fails
+     */
+    private boolean renewAuthentication(HttpRequest request, int generation) throws CommunicationException {
+        if (!reauthenticationEnabled) {
+            return false;
+        }
+
+        synchronized (connectionLock) {
+            //concurrent requests rejected with the same credentials wait here for a single renewal
+            if (generation == authenticationGeneration) {
+                if (!isConnected()) {
+                    return false;
                 }
-                responseHeaders = convertHeaders(response.getAllHeaders());
-                HttpEntity responseEntity = response.getEntity();
-                if (responseEntity == null) {
-                    responseBody = "";
+
+                LOGGER.debug("Credentials rejected, renewing authentication.");
+                HTTPAuthentication httpAuth = (HTTPAuthentication) getAuthentication();
+                if (session != null) {
+                    session.getRegistry().renew(session, httpAuth, connection);
                 } else {
-                    responseBody = EntityUtils.toString(responseEntity);
+                    httpAuth.renew();
                 }
+                authenticationGeneration++;
             }
-        } catch (IOException ex) {
-            throw new CommunicationException(ex);
         }
+
+        if (!isIdempotent(request)) {
+            return false;
+        }
+
+        for (Header header : connection.getHeaders()) {
+            request.setHeader(header);
+        }
+        return true;
     }
 
-    private void runAndParseRequest(HttpRequest request) throws CommunicationException {
-        runAndParseRequest(request, new int[]{HttpStatus.SC_OK, HttpStatus.SC_NO_CONTENT});
+    private static boolean isIdempotent(HttpRequest request) {
+        switch (request.getRequestLine().getMethod()) {
+            case HttpGet.METHOD_NAME:
+            case HttpHead.METHOD_NAME:
+            case HttpPut.METHOD_NAME:
+            case HttpDelete.METHOD_NAME:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void register(CancellationHandle cancellation, HttpRequest request) throws OperationCancelledException {
+        if (cancellation != null && request instanceof HttpRequestBase) {
+            cancellation.register((HttpRequestBase) request);
+        }
+    }
+
+    private static void unregister(CancellationHandle cancellation, HttpRequest request) {
+        if (cancellation != null && request instanceof HttpRequestBase) {
+            cancellation.unregister((HttpRequestBase) request);
+        }
     }
 
-    private void obtainModel() throws CommunicationException {
+    private static CommunicationException failure(Deadline deadline, CancellationHandle cancellation, Exception cause) {
+        if (cause instanceof OperationCancelledException) {
+            return (CommunicationException) cause;
+        }
+        if (cancellation != null && cancellation.isCancelled()) {
+            return new OperationCancelledException("operation cancelled", cause);
+        }
+
+        return RequestDeadlines.failure(deadline, cause);
+    }
+
+    private ResponseData readResponse(HttpResponse response) throws IOException, CommunicationException {
+        Header contentType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+        String responseMediaType = contentType == null ? "" : contentType.getValue();
+        if (responseMediaType.contains(";")) {
+            responseMediaType = responseMediaType.substring(0, responseMediaType.indexOf(";"));
+        }
+        Headers responseHeaders = convertHeaders(response.getAllHeaders());
+        String responseBody = new ResponseBodyReader(maxResponseSize, responseSpillThreshold).read(response.getEntity());
+
+        return new ResponseData(response.getStatusLine().getStatusCode(), responseMediaType, responseBody, responseHeaders);
+    }
+
+    private boolean runRequestForStatus(HttpRequest request) throws CommunicationException {
+        RequestLimiter limiter = requestLimiter;
+        if (limiter != null) {
+            limiter.acquire();
+        }
+
+        Deadline deadline = RequestDeadlines.current();
+        CancellationHandle cancellation = CancellationHandle.current();
+        ScheduledFuture<?> abort = null;
         try {
-            LOGGER.debug("Obtaining model...");
-            checkConnection();
-            HttpGet httpGet = HTTPHelper.prepareGet(Client.MODEL_URI, connection.getHeaders(), connection.getPrefix());
-            runAndParseRequest(httpGet);
-            setModel(parser.parseModel(responseMediaType, responseBody, responseHeaders));
-            LOGGER.debug("Model: {}", getModel());
+            register(cancellation, request);
+            abort = RequestDeadlines.apply(request, connection.getRequestConfig(), deadline);
+            int generation = authenticationGeneration;
+            int status = HTTPHelper.runRequestForStatusCode(request, target, connection.getClient(), connection.getContext());
+            //rejected request is reported as unsuccessful unless it can be sent again with renewed credentials
+            if (status == HttpStatus.SC_UNAUTHORIZED && renewAuthentication(request, generation)) {
+                status = HTTPHelper.runRequestForStatusCode(request, target, connection.getClient(), connection.getContext());
+            }
+            return status == HttpStatus.SC_OK || status == HttpStatus.SC_NO_CONTENT;
+        } catch (CommunicationException ex) {
+            throw failure(deadline, cancellation, ex);
+        } finally {
+            unregister(cancellation, request);
+            if (abort != null) {
+                abort.cancel(false);
+            }
+            if (limiter != null) {
+                limiter.release();
+            }
+        }
+    }
+
+    private ResponseData runAndParseRequest(HttpRequest request) throws CommunicationException {
+        return runAndParseRequest(request, new int[]{HttpStatus.SC_OK, HttpStatus.SC_NO_CONTENT});
+    }
+
+    private FutureTask<Model> createModelTask() {
+        return new FutureTask<>(new Callable<Model>() {
+            @Override
+            public Model call() throws CommunicationException {
+                return obtainModel();
+            }
+        });
+    }
+
+    private FutureTask<Model> createModelTask(final ResponseData response) {
+        return new FutureTask<>(new Callable<Model>() {
+            @Override
+            public Model call() throws CommunicationException {
+                return parseModel(response);
+            }
+        });
+    }
+
+    private Model obtainModel() throws CommunicationException {
+        LOGGER.debug("Obtaining model...");
+        checkConnection();
+        final HttpGet httpGet = HTTPHelper.prepareGet(Client.MODEL_URI, connection.getHeaders(), connection.getPrefix());
+        RequestCoalescer coalescer = requestCoalescer;
+        if (coalescer == null) {
+            return obtainModel(httpGet);
+        }
+
+        return coalescer.execute(RequestCoalescer.key(httpGet, connection.getContext()), new Callable<Model>() {
+            @Override
+            public Model call() throws CommunicationException {
+                return obtainModel(httpGet);
+            }
+        });
+    }
+
+    private Model obtainModel(HttpGet httpGet) throws CommunicationException {
+        return parseModel(runAndParseRequest(httpGet));
+    }
+
+    private Model parseModel(ResponseData response) throws CommunicationException {
+        try {
+            Model model = PARSER.parseModel(response.getMediaType(), response.getBody(), response.getHeaders());
+            super.setModel(model);
+            LOGGER.debug("Model: {}", model);
+            return model;
         } catch (ParsingException ex) {
             throw new CommunicationException(ex);
         }
     }
 
+    private Model awaitModel(FutureTask<Model> task) throws CommunicationException {
+        try {
+            return RequestDeadlines.await(task, RequestDeadlines.current());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CommunicationException(ex);
+        } catch (ExecutionException ex) {
+            synchronized (connectionLock) {
+                //failed attempt shouldn't be cached, next call will try again
+                if (modelTask == task) {
+                    modelTask = createModelTask();
+                }
+            }
+
+            Throwable cause = ex.getCause();
+            if (cause instanceof CommunicationException) {
+                throw (CommunicationException) cause;
+            }
+            throw new CommunicationException(cause);
+        }
+    }
+
+    /**
+     * Returns model, obtaining it from the server first if it wasn't obtained
+     * yet. Concurrent callers share a single download.
+     *
+     * @return model
+     * @throws CommunicationException
+     */
+    private Model model() throws CommunicationException {
+        checkConnection();
+        FutureTask<Model> task = modelTask;
+        if (task == null) {
+            return super.getModel();
+        }
+
+        //no-op if the task is already running or finished
+        task.run();
+        return awaitModel(task);
+    }
+
+    /**
+     * Returns model. If client is connected and the model wasn't obtained yet
+     * (see {@link ModelLoading}), it's obtained from the server first.
+     *
+     * <p>
+     * This method cannot report communication errors. If the model cannot be
+     * obtained, null is returned and the error is logged, while all
+     * operations that need the model (e.g. {@link #list(java.lang.String)})
+     * throw {@link CommunicationException} with the cause and try to obtain
+     * the model again on the next call. Use {@link #refresh()} to obtain the
+     * model with errors reported.</p>
+     *
+     * @return model or null if model is not available
+     */
+    @Override
+    public Model getModel() {
+        if (!isConnected() || modelTask == null) {
+            return super.getModel();
+        }
+
+        try {
+            return model();
+        } catch (CommunicationException ex) {
+            LOGGER.error("Cannot obtain model.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Sets model. Model set this way is used instead of the one from the
+     * server until the next connect or refresh.
+     *
+     * @param model model
+     */
+    @Override
+    public void setModel(Model model) {
+        synchronized (connectionLock) {
+            modelTask = null;
+            super.setModel(model);
+        }
+    }
+
     /**
      * @see Client#list()
      */
@@ -240,8 +902,7 @@ public class HTTPClient extends Client {
         } else {
             Kind kind;
             try {
-                checkConnection();
-                kind = getModel().findKind(resourceType);
+                kind = model().findKind(resourceType);
             } catch (AmbiguousIdentifierException ex) {
                 throw new CommunicationException(ex);
             }
@@ -259,8 +920,7 @@ public class HTTPClient extends Client {
      */
     @Override
     public List<URI> list(URI resourceIdentifier) throws CommunicationException {
-        checkConnection();
-        Kind kind = getModel().findKind(resourceIdentifier);
+        Kind kind = model().findKind(resourceIdentifier);
         if (kind == null) {
             throw new CommunicationException("unknown resource identifier '" + resourceIdentifier + "'");
         }
@@ -268,18 +928,87 @@ public class HTTPClient extends Client {
         return runListGet(httpGet);
     }
 
-    private List<URI> runListGet(HttpGet httpGet) throws CommunicationException {
+    private List<URI> runListGet(final HttpGet httpGet) throws CommunicationException {
+        checkConnection();
+        RequestCoalescer coalescer = requestCoalescer;
+        if (coalescer == null) {
+            return parseListGet(httpGet);
+        }
+
+        return coalescer.execute(RequestCoalescer.key(httpGet, connection.getContext()), new Callable<List<URI>>() {
+            @Override
+            public List<URI> call() throws CommunicationException {
+                return parseListGet(httpGet);
+            }
+        });
+    }
+
+    private List<URI> parseListGet(HttpGet httpGet) throws CommunicationException {
         try {
-            checkConnection();
-            runAndParseRequest(httpGet);
-            List<URI> locations = parser.parseLocations(responseMediaType, responseBody, responseHeaders);
+            ResponseData response = runAndParseRequest(httpGet);
+            List<URI> locations = PARSER.parseLocations(response.getMediaType(), response.getBody(), response.getHeaders());
             LOGGER.debug("Locations: {}", locations);
-            return locations;
+            return locations == null || !compactLocations ? locations : new CompactLocationList(locations);
         } catch (ParsingException ex) {
             throw new CommunicationException(ex);
         }
     }
 
+    /**
+     * Same as {@link #list()} but abandoned when the deadline passes.
+     *
+     * @param deadline deadline, cannot be null
+     * @return list of locations
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public List<URI> list(Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return list();
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #list(java.lang.String)} but abandoned when the deadline
+     * passes.
+     *
+     * @param resourceType resource type in shortened format
+     * @param deadline deadline, cannot be null
+     * @return list of locations
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public List<URI> list(String resourceType, Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return list(resourceType);
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #list(java.net.URI)} but abandoned when the deadline
+     * passes.
+     *
+     * @param resourceIdentifier resource identifier
+     * @param deadline deadline, cannot be null
+     * @return list of locations
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public List<URI> list(URI resourceIdentifier, Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return list(resourceIdentifier);
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
     /**
      * @see Client#describe()
      */
@@ -299,8 +1028,7 @@ public class HTTPClient extends Client {
      */
     @Override
     public List<Entity> describe(String resourceType) throws CommunicationException {
-        checkConnection();
-        Model model = getModel();
+        Model model = model();
         try {
             Kind kind = model.findKind(resourceType);
             if (kind == null) {
@@ -322,8 +1050,7 @@ public class HTTPClient extends Client {
      */
     @Override
     public List<Entity> describe(URI resourceIdentifier) throws CommunicationException {
-        checkConnection();
-        Model model = getModel();
+        Model model = model();
         Kind kind = model.findKind(resourceIdentifier);
         if (kind != null) {
             CollectionType type = model.findKindType(kind);
@@ -341,15 +1068,93 @@ public class HTTPClient extends Client {
 
     private Collection describeLocation(URI location) throws CommunicationException {
         location = getFullUri(location);
+        CollectionType type = findLocationType(location);
+        HttpGet httpGet = HTTPHelper.prepareGet(location, connection.getHeaders(), connection.getPrefix());
+        return runDescribeGet(httpGet, type);
+    }
+
+    private CollectionType findLocationType(URI location) throws CommunicationException {
         String path = location.getPath();
         String[] segments = TextParser.divideUriByLastSegment(path);
-        CollectionType type = getModel().findKindType(segments[1]);
+        CollectionType type = model().findKindType(segments[1]);
         if (type == null) {
             throw new CommunicationException("unknown resource identifier '" + location + "'");
         }
 
+        return type;
+    }
+
+    /**
+     * Describes resource on given location only if it changed since the
+     * validator was obtained. ETag validators are sent in If-None-Match header
+     * so unchanged resources are not transferred at all. For servers without
+     * ETags the validator is a hash of the response and unchanged resources
+     * are not parsed.
+     *
+     * @param location resource location
+     * @param validator validator from the previous description, can be null
+     * @return description of the location
+     * @throws CommunicationException
+     */
+    LocationDescription describeIfChanged(URI location, String validator) throws CommunicationException {
+        location = getFullUri(location);
         HttpGet httpGet = HTTPHelper.prepareGet(location, connection.getHeaders(), connection.getPrefix());
-        return runDescribeGet(httpGet, type);
+        if (validator != null && validator.startsWith(ETAG_VALIDATOR_PREFIX)) {
+            httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, validator.substring(ETAG_VALIDATOR_PREFIX.length()));
+        }
+
+        checkConnection();
+        ResponseData response = runAndParseRequest(httpGet, new int[]{HttpStatus.SC_OK, HttpStatus.SC_NO_CONTENT,
+            HttpStatus.SC_NOT_MODIFIED, HttpStatus.SC_NOT_FOUND, HttpStatus.SC_GONE});
+        switch (response.getStatus()) {
+            case HttpStatus.SC_NOT_MODIFIED:
+                return new LocationDescription(validator, null);
+            case HttpStatus.SC_NOT_FOUND:
+            case HttpStatus.SC_GONE:
+                return new LocationDescription(null, null);
+            default:
+                break;
+        }
+
+        String current = validator(response);
+        if (current.equals(validator)) {
+            return new LocationDescription(current, null);
+        }
+
+        try {
+            Collection collection = PARSER.parseCollection(response.getMediaType(), response.getBody(), response.getHeaders(), findLocationType(location));
+            return new LocationDescription(current, generateEntityListFromCollection(collection));
+        } catch (ParsingException ex) {
+            throw new CommunicationException(ex);
+        }
+    }
+
+    private static String validator(ResponseData response) {
+        String etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+        if (etag != null) {
+            return ETAG_VALIDATOR_PREFIX + etag;
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException("SHA-1 not available. This should not happen!", ex);
+        }
+
+        Charset charset = Charset.forName("UTF-8");
+        digest.update(response.getBody().getBytes(charset));
+        //text/occi carries the rendering in headers
+        for (String name : HASHED_HEADERS) {
+            List<String> values = response.getHeaders().get(name);
+            if (values != null) {
+                for (String value : values) {
+                    digest.update((name + ": " + value + "\n").getBytes(charset));
+                }
+            }
+        }
+
+        return HASH_VALIDATOR_PREFIX + new BigInteger(1, digest.digest()).toString(16);
     }
 
     private List<Entity> describe(List<URI> locations, CollectionType type) throws CommunicationException {
@@ -370,11 +1175,27 @@ public class HTTPClient extends Client {
         return list;
     }
 
-    private Collection runDescribeGet(HttpGet httpGet, CollectionType type) throws CommunicationException {
+    private Collection runDescribeGet(final HttpGet httpGet, final CollectionType type) throws CommunicationException {
+        checkConnection();
+        RequestCoalescer coalescer = requestCoalescer;
+        if (coalescer == null) {
+            return parseDescribeGet(httpGet, type);
+        }
+
+        //type is part of the key, the same location can be parsed differently
+        List<Object> key = Arrays.asList(RequestCoalescer.key(httpGet, connection.getContext()), type);
+        return coalescer.execute(key, new Callable<Collection>() {
+            @Override
+            public Collection call() throws CommunicationException {
+                return parseDescribeGet(httpGet, type);
+            }
+        });
+    }
+
+    private Collection parseDescribeGet(HttpGet httpGet, CollectionType type) throws CommunicationException {
         try {
-            checkConnection();
-            runAndParseRequest(httpGet);
-            Collection collection = parser.parseCollection(responseMediaType, responseBody, responseHeaders, type);
+            ResponseData response = runAndParseRequest(httpGet);
+            Collection collection = PARSER.parseCollection(response.getMediaType(), response.getBody(), response.getHeaders(), type);
             LOGGER.debug("Collection: {}", collection);
             return collection;
         } catch (ParsingException ex) {
@@ -382,6 +1203,120 @@ public class HTTPClient extends Client {
         }
     }
 
+    /**
+     * Same as {@link #describe()} but abandoned when the deadline passes. No
+     * further requests are sent once the deadline passes and the request in
+     * flight is aborted.
+     *
+     * @param deadline deadline, cannot be null
+     * @return list of entities
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public List<Entity> describe(Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return describe();
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #describe(java.lang.String)} but abandoned when the
+     * deadline passes. No further requests are sent once the deadline passes
+     * and the request in flight is aborted.
+     *
+     * @param resourceType resource type in shortened format
+     * @param deadline deadline, cannot be null
+     * @return list of entities
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public List<Entity> describe(String resourceType, Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return describe(resourceType);
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #describe(java.net.URI)} but abandoned when the deadline
+     * passes. No further requests are sent once the deadline passes and the
+     * request in flight is aborted.
+     *
+     * @param resourceIdentifier resource identifier or location
+     * @param deadline deadline, cannot be null
+     * @return list of entities
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public List<Entity> describe(URI resourceIdentifier, Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return describe(resourceIdentifier);
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #describe()} but can be cancelled from another thread.
+     *
+     * @param cancellation cancellation handle, cannot be null
+     * @return list of entities
+     * @throws CommunicationException
+     * @throws OperationCancelledException if the operation is cancelled
+     */
+    public List<Entity> describe(CancellationHandle cancellation) throws CommunicationException {
+        CancellationHandle previous = CancellationHandle.enter(cancellation);
+        try {
+            return describe();
+        } finally {
+            CancellationHandle.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #describe(java.lang.String)} but can be cancelled from
+     * another thread.
+     *
+     * @param resourceType resource type in shortened format
+     * @param cancellation cancellation handle, cannot be null
+     * @return list of entities
+     * @throws CommunicationException
+     * @throws OperationCancelledException if the operation is cancelled
+     */
+    public List<Entity> describe(String resourceType, CancellationHandle cancellation) throws CommunicationException {
+        CancellationHandle previous = CancellationHandle.enter(cancellation);
+        try {
+            return describe(resourceType);
+        } finally {
+            CancellationHandle.exit(previous);
+        }
+    }
+
+    /**
+     * Same as {@link #describe(java.net.URI)} but can be cancelled from
+     * another thread.
+     *
+     * @param resourceIdentifier resource identifier or location
+     * @param cancellation cancellation handle, cannot be null
+     * @return list of entities
+     * @throws CommunicationException
+     * @throws OperationCancelledException if the operation is cancelled
+     */
+    public List<Entity> describe(URI resourceIdentifier, CancellationHandle cancellation) throws CommunicationException {
+        CancellationHandle previous = CancellationHandle.enter(cancellation);
+        try {
+            return describe(resourceIdentifier);
+        } finally {
+            CancellationHandle.exit(previous);
+        }
+    }
+
     /**
      * @see Client#create(cz.cesnet.cloud.occi.core.Entity)
      */
@@ -401,7 +1336,8 @@ public class HTTPClient extends Client {
                 }
                 break;
                 case MediaType.TEXT_PLAIN: {
-                    HttpEntity httpEntity = new StringEntity(entity.toText());
+                    TextRenderingEntity httpEntity = TextRenderingEntity.forEntity(entity);
+                    httpEntity.prepare();
                     httpPost.setEntity(httpEntity);
                 }
                 break;
@@ -410,26 +1346,45 @@ public class HTTPClient extends Client {
             }
 
             checkConnection();
-            runAndParseRequest(httpPost, new int[]{HttpStatus.SC_CREATED, HttpStatus.SC_OK});
+            ResponseData response = runAndParseRequest(httpPost, new int[]{HttpStatus.SC_CREATED, HttpStatus.SC_OK});
 
             //HACK
             //so communication with servers with WRONG OCCI implementation will work
-            if (!responseMediaType.equals(MediaType.TEXT_OCCI) && responseBody.trim().equals("OK") && responseHeaders.containsKey("Location")) {
-                responseMediaType = MediaType.TEXT_OCCI;
+            if (!response.getMediaType().equals(MediaType.TEXT_OCCI) && response.getBody().trim().equals("OK") && response.getHeaders().containsKey("Location")) {
+                response.setMediaType(MediaType.TEXT_OCCI);
             }
             //HACK
 
-            List<URI> locations = parser.parseLocations(responseMediaType, responseBody, responseHeaders);
+            List<URI> locations = PARSER.parseLocations(response.getMediaType(), response.getBody(), response.getHeaders());
             if (locations == null || locations.isEmpty()) {
                 throw new CommunicationException("no location returned");
             }
 
             return locations.get(0);
-        } catch (RenderingException | ParsingException | UnsupportedEncodingException ex) {
+        } catch (RenderingException | ParsingException ex) {
             throw new CommunicationException(ex);
         }
     }
 
+    /**
+     * Same as {@link #create(cz.cesnet.cloud.occi.core.Entity)} but abandoned
+     * when the deadline passes.
+     *
+     * @param entity entity to create
+     * @param deadline deadline, cannot be null
+     * @return location of the created entity
+     * @throws CommunicationException
+     * @throws DeadlineExceededException if the deadline passes
+     */
+    public URI create(Entity entity, Deadline deadline) throws CommunicationException {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            return create(entity);
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
     /**
      * @see Client#update(cz.cesnet.cloud.occi.core.Entity)
      */
@@ -449,7 +1404,8 @@ public class HTTPClient extends Client {
                 }
                 break;
                 case MediaType.TEXT_PLAIN: {
-                    HttpEntity httpEntity = new StringEntity(entity.toText());
+                    TextRenderingEntity httpEntity = TextRenderingEntity.forEntity(entity);
+                    httpEntity.prepare();
                     httpPut.setEntity(httpEntity);
                 }
                 break;
@@ -458,22 +1414,22 @@ public class HTTPClient extends Client {
             }
 
             checkConnection();
-            runAndParseRequest(httpPut, new int[]{HttpStatus.SC_CREATED, HttpStatus.SC_OK});
+            ResponseData response = runAndParseRequest(httpPut, new int[]{HttpStatus.SC_CREATED, HttpStatus.SC_OK});
 
             //HACK
             //so communication with servers with WRONG OCCI implementation will work
-            if (!responseMediaType.equals(MediaType.TEXT_OCCI) && responseBody.trim().equals("OK") && responseHeaders.containsKey("Location")) {
-                responseMediaType = MediaType.TEXT_OCCI;
+            if (!response.getMediaType().equals(MediaType.TEXT_OCCI) && response.getBody().trim().equals("OK") && response.getHeaders().containsKey("Location")) {
+                response.setMediaType(MediaType.TEXT_OCCI);
             }
             //HACK
 
-            List<URI> locations = parser.parseLocations(responseMediaType, responseBody, responseHeaders);
+            List<URI> locations = PARSER.parseLocations(response.getMediaType(), response.getBody(), response.getHeaders());
             if (locations == null || locations.isEmpty()) {
                 throw new CommunicationException("no location returned");
             }
 
             return locations.get(0);
-        } catch (RenderingException | ParsingException | UnsupportedEncodingException ex) {
+        } catch (RenderingException | ParsingException ex) {
             throw new CommunicationException(ex);
         }
     }
@@ -485,8 +1441,7 @@ public class HTTPClient extends Client {
     public boolean delete(String resourceType) throws CommunicationException {
         Kind kind;
         try {
-            checkConnection();
-            kind = getModel().findKind(resourceType);
+            kind = model().findKind(resourceType);
         } catch (AmbiguousIdentifierException ex) {
             throw new CommunicationException(ex);
         }
@@ -496,7 +1451,7 @@ public class HTTPClient extends Client {
         HttpDelete httpDelete = HTTPHelper.prepareDelete(kind.getLocation(), connection.getHeaders(), connection.getPrefix());
 
         checkConnection();
-        return HTTPHelper.runRequestForStatus(httpDelete, target, connection.getClient(), connection.getContext());
+        return runRequestForStatus(httpDelete);
     }
 
     /**
@@ -504,8 +1459,7 @@ public class HTTPClient extends Client {
      */
     @Override
     public boolean delete(URI resourceIdentifier) throws CommunicationException {
-        checkConnection();
-        Kind kind = getModel().findKind(resourceIdentifier);
+        Kind kind = findKindByIdentifier(resourceIdentifier);
         HttpDelete httpDelete;
         if (kind != null) {
             httpDelete = HTTPHelper.prepareDelete(kind.getLocation(), connection.getHeaders(), connection.getPrefix());
@@ -515,7 +1469,7 @@ public class HTTPClient extends Client {
         }
 
         checkConnection();
-        return HTTPHelper.runRequestForStatus(httpDelete, target, connection.getClient(), connection.getContext());
+        return runRequestForStatus(httpDelete);
     }
 
     /**
@@ -526,8 +1480,7 @@ public class HTTPClient extends Client {
     public boolean trigger(String resourceType, ActionInstance action) throws CommunicationException {
         Kind kind;
         try {
-            checkConnection();
-            kind = getModel().findKind(resourceType);
+            kind = model().findKind(resourceType);
         } catch (AmbiguousIdentifierException ex) {
             throw new CommunicationException(ex);
         }
@@ -535,29 +1488,25 @@ public class HTTPClient extends Client {
             throw new CommunicationException("unknown resource type '" + resourceType + "'");
         }
 
-        try {
-            String url = kind.getLocation().toString() + ACTION_URL_PARAMETER + action.getAction().getTerm();
-            HttpPost httpPost = HTTPHelper.preparePost(url, connection.getHeaders(), connection.getPrefix());
-            switch (mediaType) {
-                case MediaType.TEXT_OCCI: {
-                    Headers headers = action.toHeaders();
-                    addHeaders(httpPost, headers);
-                }
-                break;
-                case MediaType.TEXT_PLAIN: {
-                    HttpEntity httpEntity = new StringEntity(action.toText());
-                    httpPost.setEntity(httpEntity);
-                }
-                break;
-                default:
-                    throw new CommunicationException("unsupported media type '" + mediaType + "'");
+        String url = kind.getLocation().toString() + ACTION_URL_PARAMETER + action.getAction().getTerm();
+        HttpPost httpPost = HTTPHelper.preparePost(url, connection.getHeaders(), connection.getPrefix());
+        switch (mediaType) {
+            case MediaType.TEXT_OCCI: {
+                Headers headers = action.toHeaders();
+                addHeaders(httpPost, headers);
             }
-
-            checkConnection();
-            return HTTPHelper.runRequestForStatus(httpPost, target, connection.getClient(), connection.getContext());
-        } catch (UnsupportedEncodingException ex) {
-            throw new CommunicationException(ex);
+            break;
+            case MediaType.TEXT_PLAIN: {
+                HttpEntity httpEntity = TextRenderingEntity.forAction(action);
+                httpPost.setEntity(httpEntity);
+            }
+            break;
+            default:
+                throw new CommunicationException("unsupported media type '" + mediaType + "'");
         }
+
+        checkConnection();
+        return runRequestForStatus(httpPost);
     }
 
     /**
@@ -566,8 +1515,7 @@ public class HTTPClient extends Client {
      */
     @Override
     public boolean trigger(URI resourceIdentifier, ActionInstance action) throws CommunicationException {
-        checkConnection();
-        Kind kind = getModel().findKind(resourceIdentifier);
+        Kind kind = findKindByIdentifier(resourceIdentifier);
         String url;
         if (kind != null) {
             url = kind.getLocation().toString() + ACTION_URL_PARAMETER + action.getAction().getTerm();
@@ -577,27 +1525,40 @@ public class HTTPClient extends Client {
         }
 
         HttpPost httpPost = HTTPHelper.preparePost(url, connection.getHeaders(), connection.getPrefix());
-        try {
-            switch (mediaType) {
-                case MediaType.TEXT_OCCI: {
-                    Headers headers = action.toHeaders();
-                    addHeaders(httpPost, headers);
-                }
-                break;
-                case MediaType.TEXT_PLAIN: {
-                    HttpEntity httpEntity = new StringEntity(action.toText());
-                    httpPost.setEntity(httpEntity);
-                }
-                break;
-                default:
-                    throw new CommunicationException("unsupported media type '" + mediaType + "'");
+        switch (mediaType) {
+            case MediaType.TEXT_OCCI: {
+                Headers headers = action.toHeaders();
+                addHeaders(httpPost, headers);
+            }
+            break;
+            case MediaType.TEXT_PLAIN: {
+                HttpEntity httpEntity = TextRenderingEntity.forAction(action);
+                httpPost.setEntity(httpEntity);
             }
+            break;
+            default:
+                throw new CommunicationException("unsupported media type '" + mediaType + "'");
+        }
 
-            checkConnection();
-            return HTTPHelper.runRequestForStatus(httpPost, target, connection.getClient(), connection.getContext());
-        } catch (UnsupportedEncodingException ex) {
-            throw new CommunicationException(ex);
+        checkConnection();
+        return runRequestForStatus(httpPost);
+    }
+
+    /**
+     * Looks up kind for identifiers that can represent one. Kind identifiers
+     * always contain a fragment (scheme ends with '#'), resource locations
+     * don't, so the model is not needed for them.
+     *
+     * @param identifier either kind identifier or resource location
+     * @return kind or null if identifier doesn't represent a kind
+     * @throws CommunicationException
+     */
+    private Kind findKindByIdentifier(URI identifier) throws CommunicationException {
+        if (identifier.getFragment() == null) {
+            return null;
         }
+
+        return model().findKind(identifier);
     }
 
     private URI getFullUri(URI uri) throws CommunicationException {
@@ -613,9 +1574,9 @@ public class HTTPClient extends Client {
     }
 
     private void addHeaders(HttpMessage message, Headers headers) {
-        for (String headerName : headers.keySet()) {
-            for (String value : headers.get(headerName)) {
-                message.addHeader(headerName, value);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                message.addHeader(header.getKey(), value);
             }
         }
     }
@@ -625,6 +1586,13 @@ public class HTTPClient extends Client {
      */
     @Override
     public void refresh() throws CommunicationException {
-        obtainModel();
+        checkConnection();
+        FutureTask<Model> task = createModelTask();
+        synchronized (connectionLock) {
+            modelTask = task;
+        }
+
+        task.run();
+        awaitModel(task);
     }
 }
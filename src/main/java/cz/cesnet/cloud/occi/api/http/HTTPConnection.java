@@ -1,10 +1,12 @@
 package cz.cesnet.cloud.occi.api.http;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.HttpClientConnectionManager;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HttpContext;
@@ -17,9 +19,12 @@ import org.apache.http.protocol.HttpContext;
 public class HTTPConnection {
 
     private CloseableHttpClient client = null;
+    private HttpClientConnectionManager connectionManager = null;
+    private RequestConfig requestConfig = RequestConfig.DEFAULT;
     private HttpContext context = HttpClientContext.create();
-    private List<Header> headers = new ArrayList<>();
+    private List<Header> headers = new CopyOnWriteArrayList<>();
     private String prefix = "";
+    private Transport transport = null;
 
     public CloseableHttpClient getClient() {
         return client;
@@ -29,6 +34,45 @@ public class HTTPConnection {
         this.client = client;
     }
 
+    /**
+     * Returns manager of the client's connection pool.
+     *
+     * @return connection manager or null if not known
+     */
+    public HttpClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    public void setConnectionManager(HttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * Returns default configuration (timeouts) of the client's requests.
+     *
+     * @return request configuration
+     */
+    public RequestConfig getRequestConfig() {
+        return requestConfig;
+    }
+
+    public void setRequestConfig(RequestConfig requestConfig) {
+        this.requestConfig = requestConfig;
+    }
+
+    /**
+     * Returns transport wrapping clients created by authentication methods.
+     *
+     * @return transport or null if clients are used directly
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
     public HttpContext getContext() {
         return context;
     }
@@ -68,11 +112,24 @@ public class HTTPConnection {
         headers.add(header);
     }
 
+    /**
+     * Removes header with given name from connection.
+     *
+     * @param name header name
+     */
+    public void removeHeader(String name) {
+        for (Header h : headers) {
+            if (h.getName().equals(name)) {
+                headers.remove(h);
+            }
+        }
+    }
+
     /**
      * Removes all headers from connection.
      */
     public void clearHeaders() {
-        headers = new ArrayList<>();
+        headers = new CopyOnWriteArrayList<>();
     }
 
     /**
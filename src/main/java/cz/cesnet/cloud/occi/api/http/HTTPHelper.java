@@ -1,8 +1,13 @@
 package cz.cesnet.cloud.occi.api.http;
 
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
 import cz.cesnet.cloud.occi.api.exception.CommunicationException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.Charset;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
@@ -14,9 +19,10 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
-import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +34,7 @@ import org.slf4j.LoggerFactory;
 public class HTTPHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HTTPHelper.class);
+    public static final int ERROR_BODY_LIMIT = 64 * 1024;
 
     public static HttpGet prepareGet(String uri, Header[] headers, String prefix) {
         HttpGet httpGet = new HttpGet(addPrefix(uri, prefix));
@@ -140,12 +147,17 @@ public class HTTPHelper {
                 }
             }
             if (!acceptableStatus) {
-                HttpEntity entity = response.getEntity();
-                String body = "";
-                if (entity != null) {
-                    body = EntityUtils.toString(entity);
+                String body;
+                try {
+                    body = readErrorBody(response.getEntity());
+                } finally {
+                    response.close();
                 }
                 LOGGER.debug("Response: {}\nHeaders: {}\nBody: {}", response.getStatusLine().toString(), response.getAllHeaders(), body);
+                if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+                    //e.g. expired token, caller can renew the credentials and try again
+                    throw new AuthenticationException(response.getStatusLine().toString() + "\n" + body);
+                }
                 throw new CommunicationException(response.getStatusLine().toString() + "\n" + body);
             }
 
@@ -161,15 +173,30 @@ public class HTTPHelper {
 
     public static boolean runRequestForStatus(HttpRequest httpRequest, HttpHost target, CloseableHttpClient client, HttpContext context, int[] statuses
     ) throws CommunicationException {
+        int responseStatus = runRequestForStatusCode(httpRequest, target, client, context);
+        boolean acceptableStatus = false;
+        for (int status : statuses) {
+            if (responseStatus == status) {
+                acceptableStatus = true;
+            }
+        }
+        return acceptableStatus;
+    }
+
+    /**
+     * Runs the request and returns status code of the response.
+     *
+     * @param httpRequest request
+     * @param target target host
+     * @param client HTTP client
+     * @param context HTTP context
+     * @return status code of the response
+     * @throws CommunicationException
+     */
+    static int runRequestForStatusCode(HttpRequest httpRequest, HttpHost target, CloseableHttpClient client, HttpContext context) throws CommunicationException {
         try {
             try (CloseableHttpResponse response = client.execute(target, httpRequest, context)) {
-                boolean acceptableStatus = false;
-                for (int status : statuses) {
-                    if (response.getStatusLine().getStatusCode() == status) {
-                        acceptableStatus = true;
-                    }
-                }
-                return acceptableStatus;
+                return response.getStatusLine().getStatusCode();
             }
         } catch (IOException ex) {
             throw new CommunicationException(ex);
@@ -180,6 +207,45 @@ public class HTTPHelper {
         return runRequestForStatus(httpRequest, target, client, context, new int[]{HttpStatus.SC_OK, HttpStatus.SC_NO_CONTENT});
     }
 
+    /**
+     * Reads at most {@link #ERROR_BODY_LIMIT} characters of an error
+     * response's body. Longer bodies are truncated and the rest is not read,
+     * response has to be closed afterwards.
+     *
+     * @param entity response entity, can be null
+     * @return possibly truncated body
+     * @throws IOException
+     */
+    public static String readErrorBody(HttpEntity entity) throws IOException {
+        if (entity == null) {
+            return "";
+        }
+
+        InputStream in = entity.getContent();
+        if (in == null) {
+            return "";
+        }
+
+        Charset charset = ContentType.getOrDefault(entity).getCharset();
+        if (charset == null) {
+            charset = HTTP.DEF_CONTENT_CHARSET;
+        }
+
+        Reader reader = new InputStreamReader(in, charset);
+        StringBuilder body = new StringBuilder();
+        char[] buffer = new char[1024];
+        int read;
+        while (body.length() < ERROR_BODY_LIMIT && (read = reader.read(buffer, 0, Math.min(buffer.length, ERROR_BODY_LIMIT - body.length()))) != -1) {
+            body.append(buffer, 0, read);
+        }
+
+        if (body.length() == ERROR_BODY_LIMIT && reader.read() != -1) {
+            body.append("... (truncated)");
+        }
+
+        return body.toString();
+    }
+
     private static String addPrefix(String uri, String prefix) {
         if (uri.contains(prefix)) {
             return uri;
@@ -0,0 +1,384 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.core.Entity;
+import cz.cesnet.cloud.occi.core.Kind;
+import cz.cesnet.cloud.occi.core.Mixin;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory mirror of resources on the server. Mirror is kept up to date by
+ * a {@link ChangeTracker}, either on demand via {@link #sync()} or
+ * periodically in the background after {@link #start(long, TimeUnit)}. Queries
+ * are answered from memory using indexes on kinds, mixins and chosen
+ * attributes.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * InventoryMirror mirror = new InventoryMirror(client, "compute", Arrays.asList(Compute.STATE_ATTRIBUTE_NAME, Compute.HOSTNAME_ATTRIBUTE_NAME));
+ *mirror.start(30, TimeUnit.SECONDS);
+ *List<Entity> inactive = mirror.findByAttribute(Compute.STATE_ATTRIBUTE_NAME, "inactive");}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class InventoryMirror {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InventoryMirror.class);
+    private final ChangeTracker tracker;
+    private final Set<String> indexedAttributes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object syncLock = new Object();
+    private final Map<URI, List<Entity>> byLocation = new HashMap<>();
+    private final Map<String, Set<Entity>> byKind = new HashMap<>();
+    private final Map<String, Set<Entity>> byMixin = new HashMap<>();
+    private final Map<String, Map<String, Set<Entity>>> byAttribute = new HashMap<>();
+    private ScheduledExecutorService executor;
+    private volatile long lastSyncTime;
+
+    /**
+     * Constructor. Mirrors all resources.
+     *
+     * @param client client used for communication, cannot be null
+     * @param indexedAttributes names of attributes to index, cannot be null
+     */
+    public InventoryMirror(HTTPClient client, Collection<String> indexedAttributes) {
+        this(new ChangeTracker(client), indexedAttributes);
+    }
+
+    /**
+     * Constructor. Mirrors resources of a certain type.
+     *
+     * @param client client used for communication, cannot be null
+     * @param resourceType resource type in shortened format (e.g. "compute",
+     * "storage", "network"), cannot be null
+     * @param indexedAttributes names of attributes to index, cannot be null
+     */
+    public InventoryMirror(HTTPClient client, String resourceType, Collection<String> indexedAttributes) {
+        this(new ChangeTracker(client, resourceType), indexedAttributes);
+    }
+
+    private InventoryMirror(ChangeTracker tracker, Collection<String> indexedAttributes) {
+        if (indexedAttributes == null) {
+            throw new NullPointerException("indexedAttributes cannot be null");
+        }
+
+        this.tracker = tracker;
+        this.indexedAttributes = Collections.unmodifiableSet(new HashSet<>(indexedAttributes));
+        for (String attribute : this.indexedAttributes) {
+            byAttribute.put(attribute, new HashMap<String, Set<Entity>>());
+        }
+    }
+
+    /**
+     * Returns names of indexed attributes.
+     *
+     * @return unmodifiable set of attribute names
+     */
+    public Set<String> getIndexedAttributes() {
+        return indexedAttributes;
+    }
+
+    /**
+     * Synchronizes the mirror with the server.
+     *
+     * @return changes applied to the mirror
+     * @throws CommunicationException
+     */
+    public Delta sync() throws CommunicationException {
+        Delta delta;
+        //deltas have to be applied in the same order as they were computed
+        synchronized (syncLock) {
+            delta = tracker.sync();
+            lock.writeLock().lock();
+            try {
+                for (URI location : delta.getRemoved()) {
+                    unindex(byLocation.remove(location));
+                }
+                apply(delta.getAddedByLocation());
+                apply(delta.getChangedByLocation());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        lastSyncTime = System.currentTimeMillis();
+        LOGGER.debug("Inventory synchronized: {} added, {} changed, {} removed.", delta.getAddedByLocation().size(), delta.getChangedByLocation().size(), delta.getRemoved().size());
+        return delta;
+    }
+
+    private void apply(Map<URI, List<Entity>> entities) {
+        for (Map.Entry<URI, List<Entity>> entry : entities.entrySet()) {
+            unindex(byLocation.put(entry.getKey(), entry.getValue()));
+            for (Entity entity : entry.getValue()) {
+                index(entity);
+            }
+        }
+    }
+
+    private void index(Entity entity) {
+        if (entity.getKind() != null) {
+            add(byKind, entity.getKind().getIdentifier(), entity);
+        }
+        for (Mixin mixin : entity.getMixins()) {
+            add(byMixin, mixin.getIdentifier(), entity);
+        }
+        for (Map.Entry<String, Map<String, Set<Entity>>> entry : byAttribute.entrySet()) {
+            String value = entity.getValue(entry.getKey());
+            if (value != null) {
+                add(entry.getValue(), value, entity);
+            }
+        }
+    }
+
+    private void unindex(List<Entity> entities) {
+        if (entities == null) {
+            return;
+        }
+
+        for (Entity entity : entities) {
+            if (entity.getKind() != null) {
+                remove(byKind, entity.getKind().getIdentifier(), entity);
+            }
+            for (Mixin mixin : entity.getMixins()) {
+                remove(byMixin, mixin.getIdentifier(), entity);
+            }
+            for (Map.Entry<String, Map<String, Set<Entity>>> entry : byAttribute.entrySet()) {
+                String value = entity.getValue(entry.getKey());
+                if (value != null) {
+                    remove(entry.getValue(), value, entity);
+                }
+            }
+        }
+    }
+
+    private static void add(Map<String, Set<Entity>> index, String key, Entity entity) {
+        Set<Entity> entities = index.get(key);
+        if (entities == null) {
+            //entities are compared by identity, different versions of the same entity can be equal
+            entities = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+            index.put(key, entities);
+        }
+        entities.add(entity);
+    }
+
+    private static void remove(Map<String, Set<Entity>> index, String key, Entity entity) {
+        Set<Entity> entities = index.get(key);
+        if (entities != null) {
+            entities.remove(entity);
+            if (entities.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private List<Entity> read(Collection<Entity> entities) {
+        return entities == null ? new ArrayList<Entity>() : new ArrayList<>(entities);
+    }
+
+    /**
+     * Returns all mirrored entities.
+     *
+     * @return list of entities
+     */
+    public List<Entity> getEntities() {
+        lock.readLock().lock();
+        try {
+            List<Entity> entities = new ArrayList<>();
+            for (List<Entity> locationEntities : byLocation.values()) {
+                entities.addAll(locationEntities);
+            }
+
+            return entities;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns entities on given location.
+     *
+     * @param location resource location as returned by list
+     * @return list of entities, empty if location is unknown
+     */
+    public List<Entity> findByLocation(URI location) {
+        lock.readLock().lock();
+        try {
+            return read(byLocation.get(location));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns entities of given kind.
+     *
+     * @param kind kind
+     * @return list of entities
+     */
+    public List<Entity> findByKind(Kind kind) {
+        return findByKind(kind.getIdentifier());
+    }
+
+    /**
+     * Returns entities of given kind.
+     *
+     * @param kindIdentifier kind's identifier (scheme+term)
+     * @return list of entities
+     */
+    public List<Entity> findByKind(String kindIdentifier) {
+        lock.readLock().lock();
+        try {
+            return read(byKind.get(kindIdentifier));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns entities with given mixin.
+     *
+     * @param mixinIdentifier mixin's identifier (scheme+term)
+     * @return list of entities
+     */
+    public List<Entity> findByMixin(String mixinIdentifier) {
+        lock.readLock().lock();
+        try {
+            return read(byMixin.get(mixinIdentifier));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns entities with given attribute value.
+     *
+     * @param attributeName name of an indexed attribute
+     * @param value attribute's value
+     * @return list of entities
+     * @throws IllegalArgumentException if attribute is not indexed
+     */
+    public List<Entity> findByAttribute(String attributeName, String value) {
+        return findByAttribute(null, attributeName, value);
+    }
+
+    /**
+     * Returns entities of given kind with given attribute value.
+     *
+     * @param kindIdentifier kind's identifier (scheme+term), null matches
+     * all kinds
+     * @param attributeName name of an indexed attribute
+     * @param value attribute's value
+     * @return list of entities
+     * @throws IllegalArgumentException if attribute is not indexed
+     */
+    public List<Entity> findByAttribute(String kindIdentifier, String attributeName, String value) {
+        if (!indexedAttributes.contains(attributeName)) {
+            throw new IllegalArgumentException("attribute '" + attributeName + "' is not indexed");
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Entity> entities = read(byAttribute.get(attributeName).get(value));
+            if (kindIdentifier != null) {
+                Set<Entity> ofKind = byKind.get(kindIdentifier);
+                if (ofKind == null) {
+                    return new ArrayList<>();
+                }
+                entities.retainAll(ofKind);
+            }
+
+            return entities;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns number of mirrored locations.
+     *
+     * @return number of locations
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byLocation.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns time of the last successful synchronization.
+     *
+     * @return time in milliseconds since epoch, 0 if the mirror was never
+     * synchronized
+     */
+    public long getLastSyncTime() {
+        return lastSyncTime;
+    }
+
+    /**
+     * Starts periodical synchronization in a background thread. First
+     * synchronization runs immediately. Failed synchronizations are logged and
+     * the mirror keeps serving the last known state.
+     *
+     * @param period delay between the end of one synchronization and the
+     * start of the next one
+     * @param unit unit of the period
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (executor != null) {
+            throw new IllegalStateException("mirror is already running");
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "occi-inventory-mirror");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    sync();
+                } catch (CommunicationException | RuntimeException ex) {
+                    LOGGER.error("Inventory synchronization failed.", ex);
+                }
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Stops periodical synchronization. Mirrored data stay available.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
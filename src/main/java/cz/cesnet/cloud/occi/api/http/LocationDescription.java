@@ -0,0 +1,48 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.core.Entity;
+import java.util.List;
+
+/**
+ * Result of a conditional description of a single resource location.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class LocationDescription {
+
+    private final String validator;
+    private final List<Entity> entities;
+
+    LocationDescription(String validator, List<Entity> entities) {
+        this.validator = validator;
+        this.entities = entities;
+    }
+
+    /**
+     * Returns validator (ETag or content hash) of the current resource
+     * state.
+     *
+     * @return validator or null if the resource no longer exists
+     */
+    public String getValidator() {
+        return validator;
+    }
+
+    /**
+     * Returns entities on the location.
+     *
+     * @return entities or null if the resource is unchanged or no longer
+     * exists
+     */
+    public List<Entity> getEntities() {
+        return entities;
+    }
+
+    public boolean isRemoved() {
+        return validator == null;
+    }
+
+    public boolean isChanged() {
+        return entities != null;
+    }
+}
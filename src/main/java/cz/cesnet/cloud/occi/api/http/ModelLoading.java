@@ -0,0 +1,35 @@
+package cz.cesnet.cloud.occi.api.http;
+
+/**
+ * Strategies determining when {@link HTTPClient} obtains the model from the
+ * server after it is connected.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public enum ModelLoading {
+
+    /**
+     * Model is downloaded and parsed synchronously as a part of
+     * {@link HTTPClient#connect()}. Default strategy.
+     */
+    EAGER,
+    /**
+     * Model is downloaded and parsed on the first call that needs it.
+     * Operations that don't depend on the model (e.g. listing all resources or
+     * deleting a resource by its location) never trigger the download.
+     */
+    LAZY,
+    /**
+     * Model download is started in a background thread right after the
+     * authentication. Calls that need the model wait for it to finish.
+     */
+    BACKGROUND,
+    /**
+     * Model is downloaded and parsed synchronously as a part of
+     * {@link HTTPClient#connect()} by the authentication itself. Server is
+     * probed with GET request for the model instead of HEAD request, so
+     * connection takes a single round trip. If authentication falls back to
+     * Keystone, model is downloaded after it as with {@link #EAGER}.
+     */
+    AUTHENTICATION
+}
@@ -0,0 +1,204 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.Deadline;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Coalesces identical concurrent requests. First caller starts the request,
+ * callers arriving while it is in flight wait for it and get the same result.
+ * Finished requests are not cached, next caller runs the request again.
+ * Deadline and cancellation of a caller bound only its own wait, so a caller
+ * giving up doesn't fail the others.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class RequestCoalescer {
+
+    private static final ThreadPoolExecutor WORKERS = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "occi-coalesced-request");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final ConcurrentMap<Object, SharedCall> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Creates key identifying a request by its method, URI, headers
+     * (including authentication headers) and HTTP context.
+     *
+     * @param request request
+     * @param context context the request is run in, contexts do not override
+     * equals so they are compared by identity
+     * @return request key
+     */
+    static Object key(HttpRequest request, HttpContext context) {
+        List<Object> key = new ArrayList<>();
+        key.add(request.getRequestLine().getMethod());
+        key.add(request.getRequestLine().getUri());
+        for (Header header : request.getAllHeaders()) {
+            key.add(header.getName().toLowerCase() + ": " + header.getValue());
+        }
+        key.add(context);
+
+        return key;
+    }
+
+    /**
+     * Runs the call unless identical call is already in flight, in which
+     * case waits for its result. The call is run by a worker thread outside
+     * of any caller's deadline and cancellation, each caller waits for it at
+     * most until its own deadline or until its own operation is cancelled.
+     * Call abandoned by all its callers is cancelled, aborting its request.
+     *
+     * @param <T> result type
+     * @param key call key
+     * @param call call to run
+     * @return result of the call
+     * @throws CommunicationException
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(Object key, Callable<T> call) throws CommunicationException {
+        Deadline deadline = RequestDeadlines.current();
+        CancellationHandle cancellation = CancellationHandle.current();
+        if (cancellation != null) {
+            cancellation.check();
+        }
+
+        SharedCall running = join(key, call);
+        try {
+            return (T) await(running.task, deadline, cancellation);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof CommunicationException) {
+                throw (CommunicationException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CommunicationException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CommunicationException(ex);
+        } finally {
+            running.leave();
+        }
+    }
+
+    private SharedCall join(Object key, Callable<?> call) {
+        while (true) {
+            SharedCall running = inFlight.get(key);
+            if (running == null) {
+                SharedCall created = new SharedCall(key, call);
+                running = inFlight.putIfAbsent(key, created);
+                if (running == null) {
+                    created.join();
+                    WORKERS.execute(created.task);
+                    return created;
+                }
+            }
+
+            if (running.join()) {
+                return running;
+            }
+            //call was abandoned meanwhile, its removal is only a matter of time
+            inFlight.remove(key, running);
+        }
+    }
+
+    private static Object await(Future<Object> task, Deadline deadline, CancellationHandle cancellation) throws InterruptedException, ExecutionException, CommunicationException {
+        if (cancellation == null) {
+            return RequestDeadlines.await(task, deadline);
+        }
+
+        while (true) {
+            cancellation.check();
+            long wait = CancellationHandle.CHECK_INTERVAL_NANOS;
+            if (deadline != null) {
+                wait = Math.min(wait, Math.max(deadline.remaining(TimeUnit.NANOSECONDS), 0));
+            }
+            try {
+                return task.get(wait, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (deadline != null && deadline.isExpired()) {
+                    throw new DeadlineExceededException("deadline exceeded", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Call in flight together with callers waiting for it.
+     */
+    private class SharedCall {
+
+        private final Object key;
+        //no caller's deadline applies, handle aborts request of abandoned call
+        private final CancellationHandle handle = new CancellationHandle();
+        private final FutureTask<Object> task;
+        private int callers;
+        private boolean abandoned;
+
+        private SharedCall(Object key, final Callable<?> call) {
+            this.key = key;
+            this.task = new FutureTask<>(new Callable<Object>() {
+
+                @Override
+                public Object call() throws Exception {
+                    CancellationHandle previous = CancellationHandle.enter(handle);
+                    try {
+                        return call.call();
+                    } finally {
+                        CancellationHandle.exit(previous);
+                        inFlight.remove(SharedCall.this.key, SharedCall.this);
+                    }
+                }
+            });
+        }
+
+        private synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+
+            callers++;
+            return true;
+        }
+
+        private void leave() {
+            synchronized (this) {
+                callers--;
+                if (callers > 0 || task.isDone()) {
+                    return;
+                }
+                abandoned = true;
+            }
+
+            inFlight.remove(key, this);
+            handle.cancel();
+            task.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.Deadline;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Propagates deadline of the current operation into its HTTP requests. Each
+ * request's timeouts are capped by the remaining time and the request is
+ * aborted when the deadline passes.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class RequestDeadlines {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "occi-deadline-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    static {
+        WATCHDOG.setRemoveOnCancelPolicy(true);
+    }
+
+    private RequestDeadlines() {
+    }
+
+    /**
+     * Returns deadline of the operation run by the current thread.
+     *
+     * @return deadline or null if there is none
+     */
+    static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Sets deadline for the current thread. Nested deadline cannot extend the
+     * outer one.
+     *
+     * @param deadline deadline, cannot be null
+     * @return previous deadline which has to be restored by
+     * {@link #exit(Deadline)}
+     */
+    static Deadline enter(Deadline deadline) {
+        if (deadline == null) {
+            throw new NullPointerException("deadline cannot be null");
+        }
+
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline.min(previous));
+        return previous;
+    }
+
+    /**
+     * Restores previous deadline of the current thread.
+     *
+     * @param previous deadline returned by {@link #enter(Deadline)}
+     */
+    static void exit(Deadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Caps request's timeouts by the time remaining until the deadline and
+     * schedules its abortion at the deadline.
+     *
+     * @param request request
+     * @param defaults default request configuration
+     * @param deadline deadline, can be null
+     * @return scheduled abortion which has to be cancelled when the request
+     * finishes or null if there is nothing to cancel
+     * @throws DeadlineExceededException if the deadline already passed
+     */
+    static ScheduledFuture<?> apply(HttpRequest request, RequestConfig defaults, Deadline deadline) throws DeadlineExceededException {
+        if (deadline == null) {
+            return null;
+        }
+
+        deadline.check();
+        if (!(request instanceof HttpRequestBase)) {
+            return null;
+        }
+
+        final HttpRequestBase httpRequest = (HttpRequestBase) request;
+        long remaining = Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS));
+        RequestConfig base = httpRequest.getConfig() == null ? defaults : httpRequest.getConfig();
+        httpRequest.setConfig(RequestConfig.copy(base)
+                .setSocketTimeout(cap(base.getSocketTimeout(), remaining))
+                .setConnectTimeout(cap(base.getConnectTimeout(), remaining))
+                .setConnectionRequestTimeout(cap(base.getConnectionRequestTimeout(), remaining))
+                .build());
+
+        //scheduled in nanoseconds so the request is never aborted before the deadline passes
+        return WATCHDOG.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                httpRequest.abort();
+            }
+        }, deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    private static int cap(int timeout, long remaining) {
+        long capped = timeout > 0 ? Math.min(timeout, remaining) : remaining;
+        return (int) Math.min(capped, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Waits for the result of a computation run by another thread, at most
+     * until the deadline.
+     *
+     * @param <T> result type
+     * @param future computation
+     * @param deadline deadline, can be null
+     * @return result of the computation
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws DeadlineExceededException if the deadline passes before the
+     * computation finishes
+     */
+    static <T> T await(Future<T> future, Deadline deadline) throws InterruptedException, ExecutionException, DeadlineExceededException {
+        if (deadline == null) {
+            return future.get();
+        }
+
+        try {
+            return future.get(deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            throw new DeadlineExceededException("deadline exceeded", ex);
+        }
+    }
+
+    /**
+     * Translates failure of a request, failures after the deadline passed are
+     * reported as {@link DeadlineExceededException}.
+     *
+     * @param deadline deadline, can be null
+     * @param cause failure
+     * @return exception to throw
+     */
+    static CommunicationException failure(Deadline deadline, Exception cause) {
+        if (cause instanceof DeadlineExceededException) {
+            return (CommunicationException) cause;
+        }
+        if (deadline != null && deadline.isExpired()) {
+            return new DeadlineExceededException("deadline exceeded", cause);
+        }
+        if (cause instanceof CommunicationException) {
+            return (CommunicationException) cause;
+        }
+
+        return new CommunicationException(cause);
+    }
+}
@@ -0,0 +1,234 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.Deadline;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import cz.cesnet.cloud.occi.api.exception.RequestRejectedException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side limiter of requests sent to an endpoint. Combines a token bucket
+ * limiting the request rate with a limit of concurrently running requests.
+ * Callers exceeding the limits wait up to the configured maximal time and are
+ * rejected with {@link RequestRejectedException} afterwards. With zero maximal
+ * wait, requests are rejected right away. Waiting never outlasts the deadline
+ * of the operation and stops when the operation is cancelled.
+ *
+ * <p>
+ * One limiter can be shared by several clients talking to the same
+ * endpoint.</p>
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * //10 requests per second with bursts of 20, at most 4 at once, wait at most 30 seconds
+ *client.setRequestLimiter(new RequestLimiter(10, 20, 4, 30, TimeUnit.SECONDS));}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RequestLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private final double rate;
+    private final int burst;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+    private final Semaphore permits;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Constructor.
+     *
+     * @param requestsPerSecond maximal sustained request rate, non-positive
+     * value means unlimited
+     * @param burst maximal number of requests sent at full speed after a
+     * period of inactivity, at least 1
+     * @param maxConcurrent maximal number of concurrently running requests,
+     * non-positive value means unlimited
+     * @param maxWait how long callers wait for the limits, 0 means rejecting
+     * immediately
+     * @param unit unit of maxWait, cannot be null
+     */
+    public RequestLimiter(double requestsPerSecond, int burst, int maxConcurrent, long maxWait, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("unit cannot be null");
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst has to be at least 1");
+        }
+
+        if (maxWait < 0) {
+            throw new IllegalArgumentException("maxWait cannot be negative");
+        }
+
+        this.rate = requestsPerSecond;
+        this.burst = burst;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public double getRequestsPerSecond() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits until a request can be sent. Every successful call has to be
+     * followed by {@link #release()} once the request finishes. Waiting is
+     * bounded also by the deadline of the current operation and ends when the
+     * operation is cancelled. Token reserved for a request which doesn't get
+     * sent is returned to the bucket.
+     *
+     * @throws RequestRejectedException if limits are not available within
+     * the maximal wait time
+     * @throws DeadlineExceededException if limits are not available before
+     * the deadline of the current operation
+     * @throws OperationCancelledException if the current operation is
+     * cancelled while waiting
+     * @throws CommunicationException if thread is interrupted while waiting
+     */
+    public void acquire() throws CommunicationException {
+        Deadline deadline = RequestDeadlines.current();
+        CancellationHandle cancellation = CancellationHandle.current();
+        long start = System.nanoTime();
+        boolean reserved = false;
+        try {
+            check(cancellation);
+            if (rate > 0) {
+                long wait = reserve(start, Math.min(maxWaitNanos, remaining(deadline)));
+                if (wait < 0) {
+                    throw rejection(deadline, maxWaitNanos, "request rate limit of " + rate + " requests per second exceeded");
+                }
+                reserved = true;
+                sleep(wait, cancellation);
+            }
+
+            if (permits != null) {
+                long maxWait = maxWaitNanos - (System.nanoTime() - start);
+                if (!tryAcquire(Math.min(maxWait, remaining(deadline)), cancellation)) {
+                    throw rejection(deadline, maxWait, "limit of " + maxConcurrent + " concurrent requests exceeded");
+                }
+            }
+            reserved = false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CommunicationException(ex);
+        } finally {
+            if (reserved) {
+                refund();
+            }
+        }
+    }
+
+    /**
+     * Releases concurrency permit obtained by {@link #acquire()}.
+     */
+    public void release() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private static long remaining(Deadline deadline) {
+        return deadline == null ? Long.MAX_VALUE : Math.max(deadline.remaining(TimeUnit.NANOSECONDS), 0);
+    }
+
+    private static CommunicationException rejection(Deadline deadline, long maxWait, String message) {
+        if (deadline != null && deadline.remaining(TimeUnit.NANOSECONDS) < maxWait) {
+            return new DeadlineExceededException(message + " until the deadline");
+        }
+
+        return new RequestRejectedException(message);
+    }
+
+    private static void check(CancellationHandle cancellation) throws OperationCancelledException {
+        if (cancellation != null) {
+            cancellation.check();
+        }
+    }
+
+    /**
+     * Sleeps given time, cancellable operations check their handle
+     * periodically.
+     */
+    private static void sleep(long nanos, CancellationHandle cancellation) throws InterruptedException, OperationCancelledException {
+        long end = System.nanoTime() + nanos;
+        for (long remaining = nanos; remaining > 0; remaining = end - System.nanoTime()) {
+            TimeUnit.NANOSECONDS.sleep(cancellation == null ? remaining : Math.min(remaining, CancellationHandle.CHECK_INTERVAL_NANOS));
+            check(cancellation);
+        }
+    }
+
+    /**
+     * Waits for a concurrency permit at most given time, cancellable
+     * operations check their handle periodically.
+     */
+    private boolean tryAcquire(long nanos, CancellationHandle cancellation) throws InterruptedException, OperationCancelledException {
+        long end = System.nanoTime() + nanos;
+        long remaining = Math.max(nanos, 0);
+        while (!permits.tryAcquire(cancellation == null ? remaining : Math.min(remaining, CancellationHandle.CHECK_INTERVAL_NANOS), TimeUnit.NANOSECONDS)) {
+            check(cancellation);
+            remaining = end - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+        }
+
+        if (cancellation != null && cancellation.isCancelled()) {
+            permits.release();
+            check(cancellation);
+        }
+        return true;
+    }
+
+    /**
+     * Takes a token from the bucket, possibly in advance.
+     *
+     * @param now current time in nanoseconds
+     * @param maxWait maximal time in nanoseconds to wait for the token
+     * @return time in nanoseconds to wait until the token is available or -1
+     * if the token wouldn't be available within the maximal wait time
+     */
+    private synchronized long reserve(long now, long maxWait) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * rate / NANOS_PER_SECOND);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+
+        long wait = (long) Math.ceil((1 - tokens) / rate * NANOS_PER_SECOND);
+        if (wait > maxWait) {
+            return -1;
+        }
+
+        tokens -= 1;
+        return wait;
+    }
+
+    /**
+     * Returns token reserved for a request which is not sent.
+     */
+    private synchronized void refund() {
+        tokens = Math.min(burst, tokens + 1);
+    }
+}
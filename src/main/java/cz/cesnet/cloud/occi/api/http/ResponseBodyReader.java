@@ -0,0 +1,192 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.protocol.HTTP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads response bodies with bounded memory usage. Bodies larger than the
+ * maximal size are rejected. Bodies larger than the spill threshold are not
+ * buffered on heap but written to a temporary file which is then memory-mapped
+ * and decoded in bounded chunks into a single builder sized by the decoded
+ * length.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class ResponseBodyReader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseBodyReader.class);
+    private static final int BUFFER_SIZE = 8192;
+    private final long maxSize;
+    private final long spillThreshold;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize maximal body size in bytes, negative value means no
+     * limit
+     * @param spillThreshold size in bytes above which body is spilled to
+     * disk, negative value means never
+     */
+    ResponseBodyReader(long maxSize, long spillThreshold) {
+        this.maxSize = maxSize;
+        this.spillThreshold = spillThreshold;
+    }
+
+    /**
+     * Reads the whole body of given entity.
+     *
+     * @param entity response entity, can be null
+     * @return body decoded according to entity's charset (ISO-8859-1 by
+     * default), empty string for null entity
+     * @throws IOException
+     * @throws CommunicationException if body exceeds the maximal size
+     */
+    String read(HttpEntity entity) throws IOException, CommunicationException {
+        if (entity == null) {
+            return "";
+        }
+
+        long length = entity.getContentLength();
+        checkSize(length);
+
+        Charset charset = ContentType.getOrDefault(entity).getCharset();
+        if (charset == null) {
+            charset = HTTP.DEF_CONTENT_CHARSET;
+        }
+
+        //stream is closed only after successful read, closing it earlier would
+        //drain the rest of the body, caller has to close (abort) the response
+        InputStream in = entity.getContent();
+        if (in == null) {
+            return "";
+        }
+
+        String body = read(in, length, charset);
+        in.close();
+        return body;
+    }
+
+    private String read(InputStream in, long length, Charset charset) throws IOException, CommunicationException {
+        boolean spill = spillThreshold >= 0 && length > spillThreshold;
+        int initialSize = spill || length < 0 || length > BUFFER_SIZE ? BUFFER_SIZE : (int) length;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(initialSize);
+        if (spill) {
+            return spill(in, buffer, charset);
+        }
+
+        byte[] chunk = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            total += read;
+            checkSize(total);
+            buffer.write(chunk, 0, read);
+            if (spillThreshold >= 0 && total > spillThreshold) {
+                return spill(in, buffer, charset);
+            }
+        }
+
+        return new String(buffer.toByteArray(), charset);
+    }
+
+    private void checkSize(long size) throws CommunicationException {
+        if (maxSize >= 0 && size > maxSize) {
+            throw new CommunicationException("response body exceeds the limit of " + maxSize + " bytes");
+        }
+    }
+
+    private String spill(InputStream in, ByteArrayOutputStream buffered, Charset charset) throws IOException, CommunicationException {
+        Path file = Files.createTempFile("jocci-response", ".tmp");
+        LOGGER.debug("Response body exceeds {} bytes, spilling to {}.", spillThreshold, file);
+        try {
+            long total = buffered.size();
+            try (OutputStream out = Files.newOutputStream(file)) {
+                buffered.writeTo(out);
+                buffered.reset();
+                byte[] chunk = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    total += read;
+                    checkSize(total);
+                    out.write(chunk, 0, read);
+                }
+            }
+
+            return decode(file, total, charset);
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                LOGGER.warn("Cannot delete temporary file {}.", file, ex);
+            }
+        }
+    }
+
+    private String decode(Path file, long size, Charset charset) throws IOException, CommunicationException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CharBuffer chunk = CharBuffer.allocate(BUFFER_SIZE);
+            //first pass only counts characters so that the builder is
+            //allocated once with the exact decoded length
+            long length = decode(mapped.duplicate(), charset, chunk, null);
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new CommunicationException("response body of " + size + " bytes is too large to be parsed");
+            }
+
+            StringBuilder body = new StringBuilder((int) length);
+            decode(mapped, charset, chunk, body);
+            return body.toString();
+        } catch (CharacterCodingException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private long decode(ByteBuffer bytes, Charset charset, CharBuffer chunk, StringBuilder body) throws CharacterCodingException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        long length = 0;
+        boolean decoded = false;
+        boolean flushed = false;
+        while (!flushed) {
+            chunk.clear();
+            CoderResult result = decoded ? CoderResult.UNDERFLOW : decoder.decode(bytes, chunk, true);
+            if (result.isUnderflow()) {
+                decoded = true;
+                result = decoder.flush(chunk);
+                flushed = result.isUnderflow();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+
+            chunk.flip();
+            length += chunk.remaining();
+            if (body != null) {
+                body.append(chunk);
+            }
+        }
+
+        return length;
+    }
+}
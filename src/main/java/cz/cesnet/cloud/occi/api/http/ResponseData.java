@@ -0,0 +1,44 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import com.sun.net.httpserver.Headers;
+
+/**
+ * Class holding parts of a HTTP response needed for parsing. Every request
+ * gets its own instance so responses of concurrent requests don't interfere.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class ResponseData {
+
+    private final int status;
+    private String mediaType;
+    private final String body;
+    private final Headers headers;
+
+    ResponseData(int status, String mediaType, String body, Headers headers) {
+        this.status = status;
+        this.mediaType = mediaType;
+        this.body = body;
+        this.headers = headers;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public Headers getHeaders() {
+        return headers;
+    }
+}
@@ -0,0 +1,331 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.http.auth.HTTPAuthentication;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScheme;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of authenticated sessions shared by clients of the same endpoint
+ * using the same credentials. Session consists of HTTP client with its
+ * connection pool and SSL context, credentials provider, authentication cache,
+ * cookie store and headers added during authentication (e.g. Keystone token).
+ * Every client gets its own HTTP context with these shared parts. First client connecting with given
+ * endpoint and credentials authenticates, following clients attach to the
+ * existing session without any communication with the server. Sessions are
+ * reference counted and closed when the last client using them is closed.
+ *
+ * <p>
+ * Only authentication methods providing a session key (see
+ * {@link HTTPAuthentication#getSessionKey()}) can share sessions.</p>
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * HTTPClient client = new HTTPClient(URI.create("https://remote.server.net"), auth, MediaType.TEXT_PLAIN, false);
+ *client.setSessionRegistry(SessionRegistry.getDefault());
+ *client.connect();
+ *...
+ *client.close();}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class SessionRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionRegistry.class);
+    private static final SessionRegistry DEFAULT = new SessionRegistry();
+    private final ConcurrentMap<Object, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns JVM-wide registry.
+     *
+     * @return default registry
+     */
+    public static SessionRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns number of open sessions.
+     *
+     * @return number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Attaches connection to a session identified by the key, authenticating
+     * a new session if there is none.
+     *
+     * @param key session key
+     * @param authentication authentication with target and connection already
+     * set, used only when a new session is created
+     * @param connection connection to attach
+     * @return attached session
+     * @throws CommunicationException
+     */
+    Session acquire(Object key, HTTPAuthentication authentication, HTTPConnection connection) throws CommunicationException {
+        while (true) {
+            Session session = sessions.get(key);
+            if (session == null) {
+                Session created = new Session(this, key);
+                session = sessions.putIfAbsent(key, created);
+                if (session == null) {
+                    session = created;
+                }
+            }
+
+            //session is authenticated under its own lock so different endpoints don't wait for each other
+            synchronized (session) {
+                if (session.closed) {
+                    //session was closed meanwhile, try again with a new one
+                    continue;
+                }
+
+                if (session.client == null) {
+                    try {
+                        session.authenticate(authentication, connection);
+                    } catch (CommunicationException | RuntimeException ex) {
+                        session.closed = true;
+                        sessions.remove(key, session);
+                        throw ex;
+                    }
+                    LOGGER.debug("New session created.");
+                } else {
+                    session.attach(connection);
+                }
+                session.references++;
+
+                return session;
+            }
+        }
+    }
+
+    /**
+     * Detaches connection from the session. Session is closed when the last
+     * connection is detached.
+     *
+     * @param session session
+     * @param connection connection to detach
+     */
+    void release(Session session, HTTPConnection connection) {
+        synchronized (session) {
+            if (session.closed) {
+                return;
+            }
+
+            session.detach(connection);
+            session.references--;
+            if (session.references > 0) {
+                return;
+            }
+
+            session.closed = true;
+            sessions.remove(session.key, session);
+        }
+
+        LOGGER.debug("Closing session.");
+        try {
+            session.client.close();
+        } catch (IOException ex) {
+            LOGGER.warn("Cannot close HTTP client.", ex);
+        }
+    }
+
+    /**
+     * Renews credentials of the session after the server rejected them (e.g.
+     * expired Keystone token). Only the first connection still carrying the
+     * rejected credentials renews them, connections arriving later get the
+     * already renewed ones.
+     *
+     * @param session session
+     * @param authentication authentication of the connection
+     * @param connection connection whose request was rejected
+     * @throws CommunicationException
+     */
+    void renew(Session session, HTTPAuthentication authentication, HTTPConnection connection) throws CommunicationException {
+        synchronized (session) {
+            if (session.closed) {
+                throw new AuthenticationException("session was closed");
+            }
+
+            if (session.isCurrent(connection)) {
+                session.renew(authentication, connection);
+                LOGGER.debug("Session renewed.");
+            } else {
+                session.refreshHeaders(connection);
+            }
+        }
+    }
+
+    /**
+     * Authenticated session.
+     */
+    static class Session {
+
+        private final SessionRegistry registry;
+        private final Object key;
+        private CloseableHttpClient client;
+        private HttpClientConnectionManager connectionManager;
+        private RequestConfig requestConfig;
+        private CredentialsProvider credentialsProvider;
+        private AuthCache authCache;
+        private CookieStore cookieStore;
+        private final List<Header> headers = new ArrayList<>();
+        private int references;
+        private boolean closed;
+
+        private Session(SessionRegistry registry, Object key) {
+            this.registry = registry;
+            this.key = key;
+        }
+
+        SessionRegistry getRegistry() {
+            return registry;
+        }
+
+        private void authenticate(HTTPAuthentication authentication, HTTPConnection connection) throws CommunicationException {
+            List<Header> before = Arrays.asList(connection.getHeaders());
+            authentication.authenticate();
+
+            for (Header header : connection.getHeaders()) {
+                if (!contains(before, header)) {
+                    headers.add(header);
+                }
+            }
+            client = connection.getClient();
+            connectionManager = connection.getConnectionManager();
+            requestConfig = connection.getRequestConfig();
+
+            //per-request state stays in each connection's own context, only
+            //state established by authentication is shared
+            HttpClientContext context = HttpClientContext.adapt(connection.getContext());
+            credentialsProvider = context.getCredentialsProvider();
+            authCache = new SynchronizedAuthCache(context.getAuthCache() == null ? new BasicAuthCache() : context.getAuthCache());
+            cookieStore = context.getCookieStore() == null ? new BasicCookieStore() : context.getCookieStore();
+            context.setAuthCache(authCache);
+            context.setCookieStore(cookieStore);
+        }
+
+        private void renew(HTTPAuthentication authentication, HTTPConnection connection) throws CommunicationException {
+            for (Header header : headers) {
+                connection.removeHeader(header.getName());
+            }
+            List<Header> before = Arrays.asList(connection.getHeaders());
+            authentication.renew();
+
+            headers.clear();
+            for (Header header : connection.getHeaders()) {
+                if (!contains(before, header)) {
+                    headers.add(header);
+                }
+            }
+        }
+
+        private void refreshHeaders(HTTPConnection connection) {
+            for (Header header : headers) {
+                connection.addHeader(header);
+            }
+        }
+
+        private boolean isCurrent(HTTPConnection connection) {
+            List<Header> current = Arrays.asList(connection.getHeaders());
+            for (Header header : headers) {
+                if (!contains(current, header)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static boolean contains(List<Header> headers, Header header) {
+            for (Header h : headers) {
+                if (h.getName().equals(header.getName()) && h.getValue().equals(header.getValue())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void attach(HTTPConnection connection) {
+            connection.setClient(client);
+            connection.setConnectionManager(connectionManager);
+            connection.setRequestConfig(requestConfig);
+            HttpClientContext context = HttpClientContext.create();
+            if (credentialsProvider != null) {
+                context.setCredentialsProvider(credentialsProvider);
+            }
+            context.setAuthCache(authCache);
+            context.setCookieStore(cookieStore);
+            connection.setContext(context);
+            for (Header header : headers) {
+                connection.addHeader(header);
+            }
+        }
+
+        private void detach(HTTPConnection connection) {
+            for (Header header : headers) {
+                connection.removeHeader(header.getName());
+            }
+            connection.setClient(null);
+            connection.setConnectionManager(null);
+            connection.setContext(HttpClientContext.create());
+        }
+    }
+
+    /**
+     * Authentication cache shared by connections of a session, basic cache
+     * is not thread-safe.
+     */
+    private static class SynchronizedAuthCache implements AuthCache {
+
+        private final AuthCache cache;
+
+        private SynchronizedAuthCache(AuthCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public synchronized void put(HttpHost host, AuthScheme authScheme) {
+            cache.put(host, authScheme);
+        }
+
+        @Override
+        public synchronized AuthScheme get(HttpHost host) {
+            return cache.get(host);
+        }
+
+        @Override
+        public synchronized void remove(HttpHost host) {
+            cache.remove(host);
+        }
+
+        @Override
+        public synchronized void clear() {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.core.ActionInstance;
+import cz.cesnet.cloud.occi.core.Entity;
+import cz.cesnet.cloud.occi.exception.RenderingException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+/**
+ * HTTP entity carrying text/plain rendering of an OCCI entity or action
+ * instance. Rendering is postponed until the request is actually sent and the
+ * rendered text is encoded into the connection's output stream in small
+ * chunks, so no byte copy of the whole body is ever created. Text rendered for
+ * content length is kept only until the body is written, so every send renders
+ * the body once and the text is not kept between sends.
+ *
+ * <p>
+ * Body is encoded in ISO-8859-1 same as with {@code StringEntity}, one byte
+ * per character, so content length is computed by a counting pass over the
+ * rendered text without encoding it.</p>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+abstract class TextRenderingEntity extends AbstractHttpEntity {
+
+    private static final Charset CHARSET = ContentType.DEFAULT_TEXT.getCharset();
+    private static final int CHUNK_SIZE = 4096;
+    private String pending;
+
+    TextRenderingEntity() {
+        setContentType(ContentType.DEFAULT_TEXT.toString());
+    }
+
+    /**
+     * Creates HTTP entity rendering an OCCI entity.
+     *
+     * @param entity entity to render
+     * @return HTTP entity
+     */
+    static TextRenderingEntity forEntity(final Entity entity) {
+        return new TextRenderingEntity() {
+
+            @Override
+            protected String render() throws RenderingException {
+                return entity.toText();
+            }
+        };
+    }
+
+    /**
+     * Creates HTTP entity rendering an action instance.
+     *
+     * @param action action instance to render
+     * @return HTTP entity
+     */
+    static TextRenderingEntity forAction(final ActionInstance action) {
+        return new TextRenderingEntity() {
+
+            @Override
+            protected String render() {
+                return action.toText();
+            }
+        };
+    }
+
+    /**
+     * Renders the body.
+     *
+     * @return rendered body
+     * @throws RenderingException
+     */
+    protected abstract String render() throws RenderingException;
+
+    /**
+     * Renders the body for the next send so rendering errors are reported
+     * before the request is executed.
+     *
+     * @throws RenderingException
+     */
+    void prepare() throws RenderingException {
+        if (pending == null) {
+            pending = render();
+        }
+    }
+
+    private String pending() {
+        try {
+            prepare();
+        } catch (RenderingException ex) {
+            //content length cannot throw checked exceptions, fail the request before anything is sent
+            throw new IllegalStateException("cannot render request body", ex);
+        }
+
+        return pending;
+    }
+
+    private String take() throws IOException {
+        try {
+            prepare();
+        } catch (RenderingException ex) {
+            throw new IOException(ex);
+        }
+
+        String text = pending;
+        pending = null;
+        return text;
+    }
+
+    private static CharsetEncoder encoder() {
+        //same replacement as String.getBytes used by StringEntity
+        return CHARSET.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        String body = pending();
+
+        //surrogate pair is encoded as a single replacement byte
+        long length = 0;
+        for (int i = 0; i < body.length(); i++) {
+            if (Character.isHighSurrogate(body.charAt(i)) && i + 1 < body.length() && Character.isLowSurrogate(body.charAt(i + 1))) {
+                i++;
+            }
+            length++;
+        }
+
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new EncodingInputStream(take());
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        if (outstream == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+
+        CharBuffer chars = CharBuffer.wrap(take());
+        CharsetEncoder encoder = encoder();
+        ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+        boolean done = false;
+        while (!done) {
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(bytes);
+                done = result.isUnderflow();
+            }
+            outstream.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+        outstream.flush();
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Input stream encoding the text chunk by chunk as it is read.
+     */
+    private static class EncodingInputStream extends InputStream {
+
+        private final CharBuffer chars;
+        private final CharsetEncoder encoder = encoder();
+        private final ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+        private boolean done;
+
+        private EncodingInputStream(String text) {
+            this.chars = CharBuffer.wrap(text);
+            bytes.flip();
+        }
+
+        private boolean fill() {
+            while (!bytes.hasRemaining() && !done) {
+                bytes.clear();
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (result.isUnderflow()) {
+                    done = encoder.flush(bytes).isUnderflow();
+                }
+                bytes.flip();
+            }
+
+            return bytes.hasRemaining();
+        }
+
+        @Override
+        public int read() {
+            return fill() ? bytes.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+
+            int count = Math.min(length, bytes.remaining());
+            bytes.get(buffer, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Layer between the client and the network. Transport wraps HTTP client
+ * created by authentication method, so every request run through
+ * {@link HTTPHelper} or by the authentication itself goes through it, e.g. to
+ * be recorded or answered from a recording without opening a socket.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ * @see cz.cesnet.cloud.occi.api.http.replay.RecordingTransport
+ * @see cz.cesnet.cloud.occi.api.http.replay.ReplayTransport
+ */
+public interface Transport {
+
+    /**
+     * Wraps HTTP client created by authentication method. Wrapper is closed
+     * instead of the client and is responsible for closing it.
+     *
+     * @param client client created by authentication method
+     * @return client used for all requests
+     */
+    CloseableHttpClient wrap(CloseableHttpClient client);
+}
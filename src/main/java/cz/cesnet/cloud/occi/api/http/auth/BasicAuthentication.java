@@ -2,6 +2,7 @@ package cz.cesnet.cloud.occi.api.http.auth;
 
 import cz.cesnet.cloud.occi.api.Authentication;
 import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import java.util.List;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
@@ -90,6 +91,11 @@ public class BasicAuthentication extends HTTPAuthentication {
         return new KeystoneAuthentication(this);
     }
 
+    @Override
+    public List<Object> getSessionKey() {
+        return createSessionKey(username, password);
+    }
+
     @Override
     public void authenticate() throws CommunicationException {
         LOGGER.debug("Creating credentials provider with username: '{}' and password: '{}'", username, password);
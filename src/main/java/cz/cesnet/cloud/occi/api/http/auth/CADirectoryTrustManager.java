@@ -0,0 +1,349 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedTrustManager;
+import javax.security.auth.x500.X500Principal;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Object;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.ASN1Set;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.DERBMPString;
+import org.bouncycastle.asn1.DERIA5String;
+import org.bouncycastle.asn1.DEREncodable;
+import org.bouncycastle.asn1.DERPrintableString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.DERT61String;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.DERVisibleString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Trust manager for grid CA directories (e.g.
+ * /etc/grid-security/certificates/). CA certificates are stored there under
+ * OpenSSL subject hash names ({@code <hash>.0}, {@code <hash>.1}, ...), so
+ * only CAs issuing certificates of the verified chains are loaded, when they
+ * are needed for the first time. Loaded CAs are cached. If a CA cannot be
+ * found by its hash, all {@code .pem} files in the directory are loaded once.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class CADirectoryTrustManager extends X509ExtendedTrustManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CADirectoryTrustManager.class);
+    private static final int MAX_CHAIN_LENGTH = 10;
+    private final File directory;
+    private final Map<X500Principal, List<X509Certificate>> authorities = new ConcurrentHashMap<>();
+    private volatile X509ExtendedTrustManager delegate;
+    private volatile boolean scanned;
+
+    /**
+     * Constructor. No certificates are loaded.
+     *
+     * @param directory CA directory
+     */
+    CADirectoryTrustManager(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes OpenSSL subject hash (as printed by
+     * {@code openssl x509 -subject_hash}) of the name.
+     *
+     * @param name name
+     * @return hash as 8 hexadecimal digits
+     */
+    static String hash(X500Principal name) {
+        try {
+            ByteArrayOutputStream canonical = new ByteArrayOutputStream();
+            ASN1Sequence rdns = ASN1Sequence.getInstance(ASN1Object.fromByteArray(name.getEncoded()));
+            for (int i = 0; i < rdns.size(); i++) {
+                ASN1Set rdn = ASN1Set.getInstance(rdns.getObjectAt(i));
+                ASN1EncodableVector entries = new ASN1EncodableVector();
+                for (int j = 0; j < rdn.size(); j++) {
+                    ASN1Sequence entry = ASN1Sequence.getInstance(rdn.getObjectAt(j));
+                    ASN1EncodableVector canonicalEntry = new ASN1EncodableVector();
+                    canonicalEntry.add(entry.getObjectAt(0));
+                    canonicalEntry.add(canonicalValue(entry.getObjectAt(1)));
+                    entries.add(new DERSequence(canonicalEntry));
+                }
+                //the name itself is not wrapped in a sequence, only its RDNs are encoded
+                canonical.write(new DERSet(entries).getEncoded(ASN1Encodable.DER));
+            }
+
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(canonical.toByteArray());
+            long hash = (digest[0] & 0xffL) | (digest[1] & 0xffL) << 8 | (digest[2] & 0xffL) << 16 | (digest[3] & 0xffL) << 24;
+            return String.format("%08x", hash);
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("cannot compute subject hash of " + name, ex);
+        }
+    }
+
+    private static DEREncodable canonicalValue(DEREncodable value) {
+        //same string types OpenSSL canonicalizes, other values are kept as they are
+        if (!(value instanceof DERUTF8String || value instanceof DERPrintableString || value instanceof DERIA5String
+                || value instanceof DERT61String || value instanceof DERBMPString || value instanceof DERVisibleString)) {
+            return value;
+        }
+
+        String string = ((ASN1String) value).getString().trim();
+        StringBuilder builder = new StringBuilder(string.length());
+        boolean space = false;
+        for (char c : string.toCharArray()) {
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) {
+                builder.append(' ');
+                space = false;
+            }
+            builder.append(c < 0x80 ? Character.toLowerCase(c) : c);
+        }
+
+        return new DERUTF8String(builder.toString());
+    }
+
+    /**
+     * Returns issuer certificates with given subject, loading them from the
+     * directory if they are not loaded yet.
+     *
+     * @param subject issuer's subject
+     * @return certificates, empty list if there are none
+     */
+    List<X509Certificate> resolve(X500Principal subject) {
+        List<X509Certificate> certificates = authorities.get(subject);
+        if (certificates != null) {
+            return certificates;
+        }
+
+        String hash = hash(subject);
+        certificates = new ArrayList<>();
+        for (int i = 0;; i++) {
+            File file = new File(directory, hash + "." + i);
+            if (!file.isFile()) {
+                break;
+            }
+            //hash collisions are stored under following indexes
+            for (X509Certificate certificate : load(file)) {
+                if (certificate.getSubjectX500Principal().equals(subject)) {
+                    certificates.add(certificate);
+                }
+            }
+        }
+
+        if (certificates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        LOGGER.debug("Loaded CA '{}' from {}.", subject.getName(), hash);
+        authorities.put(subject, certificates);
+        return certificates;
+    }
+
+    private synchronized void scan() {
+        if (scanned) {
+            return;
+        }
+
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".pem");
+            }
+        });
+        if (files != null) {
+            for (File file : files) {
+                for (X509Certificate certificate : load(file)) {
+                    X500Principal subject = certificate.getSubjectX500Principal();
+                    List<X509Certificate> certificates = authorities.get(subject);
+                    if (certificates == null) {
+                        certificates = new ArrayList<>();
+                    } else if (certificates.contains(certificate)) {
+                        continue;
+                    } else {
+                        certificates = new ArrayList<>(certificates);
+                    }
+                    certificates.add(certificate);
+                    authorities.put(subject, certificates);
+                }
+            }
+        }
+        LOGGER.debug("Scanned CA directory {}.", directory);
+        scanned = true;
+    }
+
+    private static Collection<X509Certificate> load(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            List<X509Certificate> certificates = new ArrayList<>();
+            for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                certificates.add((X509Certificate) certificate);
+            }
+            return certificates;
+        } catch (IOException | CertificateException ex) {
+            LOGGER.warn("Cannot load CA certificate from {}.", file, ex);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Loads issuers of the chain and their issuers from the directory.
+     *
+     * @param chain certificate chain
+     * @return true if any new certificate was loaded, false otherwise
+     */
+    private boolean resolveChain(X509Certificate[] chain) {
+        int loaded = authorities.size();
+        List<X509Certificate> pending = new ArrayList<>();
+        Collections.addAll(pending, chain);
+        for (int depth = 0; depth < MAX_CHAIN_LENGTH && !pending.isEmpty(); depth++) {
+            List<X509Certificate> issuers = new ArrayList<>();
+            for (X509Certificate certificate : pending) {
+                X500Principal issuer = certificate.getIssuerX500Principal();
+                if (!issuer.equals(certificate.getSubjectX500Principal()) && !authorities.containsKey(issuer)) {
+                    issuers.addAll(resolve(issuer));
+                }
+            }
+            pending = issuers;
+        }
+
+        return authorities.size() > loaded;
+    }
+
+    private synchronized X509ExtendedTrustManager rebuild() throws CertificateException {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null);
+            for (List<X509Certificate> certificates : authorities.values()) {
+                for (X509Certificate certificate : certificates) {
+                    keyStore.setCertificateEntry(certificate.getSubjectX500Principal().getName() + " " + certificate.getSerialNumber(), certificate);
+                }
+            }
+
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init(keyStore);
+            for (TrustManager manager : factory.getTrustManagers()) {
+                if (manager instanceof X509ExtendedTrustManager) {
+                    delegate = (X509ExtendedTrustManager) manager;
+                    return delegate;
+                }
+            }
+        } catch (KeyStoreException | IOException | NoSuchAlgorithmException ex) {
+            throw new CertificateException(ex);
+        }
+
+        throw new CertificateException("no X509 trust manager available");
+    }
+
+    private void check(X509Certificate[] chain, String authType, Socket socket, SSLEngine engine, boolean server) throws CertificateException {
+        X509ExtendedTrustManager manager = delegate;
+        CertificateException failure = null;
+        if (manager != null) {
+            try {
+                check(manager, chain, authType, socket, engine, server);
+                return;
+            } catch (CertificateException ex) {
+                failure = ex;
+            }
+        }
+
+        //chain may be issued by a CA which is not loaded yet
+        boolean loaded = resolveChain(chain);
+        if (!loaded && !scanned) {
+            int before = authorities.size();
+            scan();
+            loaded = authorities.size() > before;
+        }
+        if (!loaded && failure != null) {
+            throw failure;
+        }
+        if (authorities.isEmpty()) {
+            throw new CertificateException("no trusted CA found in " + directory);
+        }
+
+        check(rebuild(), chain, authType, socket, engine, server);
+    }
+
+    private static void check(X509ExtendedTrustManager manager, X509Certificate[] chain, String authType, Socket socket, SSLEngine engine, boolean server) throws CertificateException {
+        if (server) {
+            if (engine != null) {
+                manager.checkServerTrusted(chain, authType, engine);
+            } else if (socket != null) {
+                manager.checkServerTrusted(chain, authType, socket);
+            } else {
+                manager.checkServerTrusted(chain, authType);
+            }
+        } else if (engine != null) {
+            manager.checkClientTrusted(chain, authType, engine);
+        } else if (socket != null) {
+            manager.checkClientTrusted(chain, authType, socket);
+        } else {
+            manager.checkClientTrusted(chain, authType);
+        }
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        check(chain, authType, null, null, false);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        check(chain, authType, null, null, true);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+        check(chain, authType, socket, null, false);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+        check(chain, authType, socket, null, true);
+    }
+
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+        check(chain, authType, null, engine, false);
+    }
+
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+        check(chain, authType, null, engine, true);
+    }
+
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        List<X509Certificate> issuers = new ArrayList<>();
+        for (List<X509Certificate> certificates : authorities.values()) {
+            issuers.addAll(certificates);
+        }
+
+        return issuers.toArray(new X509Certificate[issuers.size()]);
+    }
+}
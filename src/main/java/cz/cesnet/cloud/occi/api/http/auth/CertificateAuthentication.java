@@ -16,8 +16,6 @@ import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
-import java.security.Security;
-import java.security.UnrecoverableKeyException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
@@ -26,9 +24,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
-import org.apache.http.conn.ssl.SSLContexts;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import javax.net.ssl.TrustManager;
 import org.bouncycastle.openssl.PEMReader;
 import org.bouncycastle.openssl.PasswordFinder;
 import org.slf4j.Logger;
@@ -58,8 +56,12 @@ abstract public class CertificateAuthentication extends HTTPAuthentication {
     private static final String CERT_END = "-----END CERTIFICATE-----";
     private static final String GROUP_WHOLE = "whole";
     private static final String GROUP_TYPE = "type";
+    private static final Pattern PATTERN_KEY_BEGIN = Pattern.compile("(?<" + GROUP_WHOLE + ">-----BEGIN (?<" + GROUP_TYPE + ">RSA |DSA |EC |DH )*PRIVATE KEY-----)");
+    private static final Pattern PATTERN_KEY_END = Pattern.compile("(?<" + GROUP_WHOLE + ">-----END (?<" + GROUP_TYPE + ">RSA |DSA |EC |DH )*PRIVATE KEY-----)");
+    public static final long DEFAULT_RELOAD_INTERVAL = 60000;
     private String certificate;
     private String password;
+    private long reloadInterval = DEFAULT_RELOAD_INTERVAL;
 
     /**
      * Returns user's certificate.
@@ -108,36 +110,106 @@ abstract public class CertificateAuthentication extends HTTPAuthentication {
         this.password = password;
     }
 
+    /**
+     * Returns interval in which the certificate file is checked for changes.
+     *
+     * @return interval in milliseconds, 0 if reloading is disabled
+     */
+    public long getReloadInterval() {
+        return reloadInterval;
+    }
+
+    /**
+     * Sets interval in which the certificate file is checked for changes.
+     * Changed file (e.g. renewed VOMS proxy) is loaded in background and used
+     * for new connections, established and pooled connections keep working.
+     * Interval is {@link #DEFAULT_RELOAD_INTERVAL} by default.
+     *
+     * @param reloadInterval interval in milliseconds, 0 disables reloading,
+     * the certificate is then loaded again only on reconnection
+     */
+    public void setReloadInterval(long reloadInterval) {
+        if (reloadInterval < 0) {
+            throw new IllegalArgumentException("reload interval cannot be negative");
+        }
+
+        this.reloadInterval = reloadInterval;
+    }
+
+    @Override
+    public List<Object> getSessionKey() {
+        return createSessionKey(certificate, password);
+    }
+
+    @Override
+    protected List<Object> getSSLContextKey() {
+        List<Object> key = super.getSSLContextKey();
+        if (key == null) {
+            return null;
+        }
+
+        key.add(getIdentifier());
+        key.add(certificate);
+        key.add(digest(password));
+
+        return key;
+    }
+
+    @Override
+    protected List<File> getCredentialFiles() {
+        List<File> files = super.getCredentialFiles();
+        if (reloadInterval == 0) {
+            //reloading key manager picks changes up on its own
+            files.add(new File(certificate));
+        }
+
+        return files;
+    }
+
     @Override
     protected SSLContext createSSLContext() throws AuthenticationException {
-        Security.addProvider(new BouncyCastleProvider());
-        KeyStore trustStore = loadCAs();
+        TrustManager[] trustManagers = createTrustManagers();
 
-        try {
-            KeyStore keyStore;
-            if (certificate.endsWith(".p12")) {
-                keyStore = loadUserCertificateFromPK12();
-            } else {
-                keyStore = loadUserCertificateFromPEM();
+        final String certificate = this.certificate;
+        final String password = this.password;
+        ReloadingKeyManager keyManager = new ReloadingKeyManager(new File(certificate), new ReloadingKeyManager.KeyStoreLoader() {
+
+            @Override
+            public KeyStore load() throws AuthenticationException {
+                return loadUserCertificate(certificate, password);
             }
+        }, password.toCharArray());
+
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            //null trust managers stand for the system default ones
+            sslContext.init(new KeyManager[]{keyManager}, trustManagers, null);
 
-            SSLContext sslContext = SSLContexts.custom()
-                    .loadTrustMaterial(trustStore)
-                    .loadKeyMaterial(keyStore, password.toCharArray())
-                    .build();
+            keyManager.setSessionContext(sslContext.getClientSessionContext());
+            if (reloadInterval > 0) {
+                keyManager.watch(reloadInterval);
+            }
 
             return sslContext;
-        } catch (KeyStoreException | KeyManagementException | NoSuchAlgorithmException | UnrecoverableKeyException ex) {
+        } catch (KeyManagementException | NoSuchAlgorithmException ex) {
             throw new AuthenticationException(ex);
         }
+    }
+
+    private static KeyStore loadUserCertificate(String certificate, String password) throws AuthenticationException {
+        if (certificate.endsWith(".p12")) {
+            return loadUserCertificateFromPK12(certificate, password);
+        }
 
+        return loadUserCertificateFromPEM(certificate, password);
     }
 
-    private KeyStore loadUserCertificateFromPK12() throws AuthenticationException {
+    private static KeyStore loadUserCertificateFromPK12(String certificate, String password) throws AuthenticationException {
         try {
             KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            FileInputStream instream = new FileInputStream(new File(certificate));
-            keyStore.load(instream, password.toCharArray());
+            try (FileInputStream instream = new FileInputStream(new File(certificate))) {
+                keyStore.load(instream, password.toCharArray());
+            }
 
             return keyStore;
         } catch (KeyStoreException | IOException | NoSuchAlgorithmException | CertificateException ex) {
@@ -145,8 +217,9 @@ abstract public class CertificateAuthentication extends HTTPAuthentication {
         }
     }
 
-    private KeyStore loadUserCertificateFromPEM() throws AuthenticationException {
+    private static KeyStore loadUserCertificateFromPEM(String certificate, final String password) throws AuthenticationException {
         try {
+            registerBouncyCastle();
             String certFileString = new String(Files.readAllBytes(Paths.get(certificate)));
             CertificateFactory cf = CertificateFactory.getInstance("X.509");
             List<X509Certificate> certChain = new ArrayList<>();
@@ -172,16 +245,14 @@ abstract public class CertificateAuthentication extends HTTPAuthentication {
                 startIndex = certFileString.indexOf(CERT_BEGIN, startIndex + 1);
             }
 
-            Pattern pattern = Pattern.compile("(?<" + GROUP_WHOLE + ">-----BEGIN (?<" + GROUP_TYPE + ">RSA |DSA |EC |DH )*PRIVATE KEY-----)");
-            Matcher matcher = pattern.matcher(certFileString);
+            Matcher matcher = PATTERN_KEY_BEGIN.matcher(certFileString);
             if (!matcher.find()) {
                 throw new AuthenticationException("cannot read certificate key");
             }
             //cannot use GROUP_WHOLE descriptor because of Java 7 compatibility
             startIndex = matcher.start(1);
 
-            pattern = Pattern.compile("(?<" + GROUP_WHOLE + ">-----END (?<" + GROUP_TYPE + ">RSA |DSA |EC |DH )*PRIVATE KEY-----)");
-            matcher = pattern.matcher(certFileString);
+            matcher = PATTERN_KEY_END.matcher(certFileString);
             if (!matcher.find(startIndex)) {
                 throw new AuthenticationException("cannot read certificate key");
             }
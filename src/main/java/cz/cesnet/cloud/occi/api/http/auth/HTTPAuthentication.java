@@ -4,36 +4,56 @@ import cz.cesnet.cloud.occi.api.Authentication;
 import cz.cesnet.cloud.occi.api.Client;
 import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
 import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import cz.cesnet.cloud.occi.api.http.CancellationHandle;
 import cz.cesnet.cloud.occi.api.http.HTTPConnection;
 import cz.cesnet.cloud.occi.api.http.HTTPHelper;
+import cz.cesnet.cloud.occi.api.http.Transport;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Security;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpHead;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLContexts;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openssl.PEMReader;
@@ -50,11 +70,45 @@ import org.slf4j.LoggerFactory;
 public abstract class HTTPAuthentication implements Authentication {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HTTPAuthentication.class);
+    private static final int SSL_CONTEXT_CACHE_SIZE = 32;
+    //SSL contexts are shared per trust and key material so their session caches allow TLS session resumption
+    private static final Map<List<Object>, SSLContext> SSL_CONTEXTS = Collections.synchronizedMap(new LinkedHashMap<List<Object>, SSLContext>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, SSLContext> eldest) {
+            return size() > SSL_CONTEXT_CACHE_SIZE;
+        }
+    });
     private HttpHost target;
     private HTTPConnection connection;
     private CredentialsProvider credentialsProvider;
     private String CAPath;
     private String CAFile;
+    private ProbeResponseHandler probeHandler;
+    private boolean SNIEnabled;
+    private int SSLSessionCacheSize = -1;
+    private int SSLSessionTimeout = -1;
+
+    //registers Bouncy Castle on first use, only methods reading PEM files need it
+    private static class BouncyCastleRegistration {
+
+        static {
+            if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+                Security.addProvider(new BouncyCastleProvider());
+            }
+        }
+
+        private static void register() {
+            //registration is done by the static initializer
+        }
+    }
+
+    /**
+     * Registers Bouncy Castle security provider. Provider is registered only
+     * once per JVM, subsequent calls do nothing.
+     */
+    protected static void registerBouncyCastle() {
+        BouncyCastleRegistration.register();
+    }
 
     /**
      * Returns server that authentication is run against.
@@ -90,6 +144,89 @@ public abstract class HTTPAuthentication implements Authentication {
         this.credentialsProvider = credentialsProvider;
     }
 
+    /**
+     * Returns handler of the probe response.
+     *
+     * @return probe response handler or null if server is probed with HEAD
+     * request
+     */
+    public ProbeResponseHandler getProbeHandler() {
+        return probeHandler;
+    }
+
+    /**
+     * Sets handler of the probe response. If set, authentication probes the
+     * server with GET request for the model instead of HEAD request and
+     * passes the successful response to the handler, so the model doesn't
+     * have to be requested again.
+     *
+     * @param probeHandler probe response handler, null for HEAD probe
+     */
+    public void setProbeHandler(ProbeResponseHandler probeHandler) {
+        this.probeHandler = probeHandler;
+    }
+
+    /**
+     * Returns whether server name indication (SNI) extension is sent during
+     * SSL handshake.
+     *
+     * @return true if SNI is enabled, false otherwise
+     */
+    public boolean isSNIEnabled() {
+        return SNIEnabled;
+    }
+
+    /**
+     * Sets whether server name indication (SNI) extension is sent during SSL
+     * handshake. SNI is disabled by default to avoid unrecognized_name
+     * handshake errors with misconfigured servers.
+     *
+     * @param SNIEnabled whether SNI is enabled
+     */
+    public void setSNIEnabled(boolean SNIEnabled) {
+        this.SNIEnabled = SNIEnabled;
+    }
+
+    /**
+     * Returns maximal number of cached SSL sessions.
+     *
+     * @return cache size, 0 means no limit, negative value means JVM default
+     */
+    public int getSSLSessionCacheSize() {
+        return SSLSessionCacheSize;
+    }
+
+    /**
+     * Sets maximal number of cached SSL sessions. Cached sessions are resumed
+     * by new connections with an abbreviated handshake.
+     *
+     * @param SSLSessionCacheSize cache size, 0 means no limit, negative value
+     * means JVM default
+     */
+    public void setSSLSessionCacheSize(int SSLSessionCacheSize) {
+        this.SSLSessionCacheSize = SSLSessionCacheSize;
+    }
+
+    /**
+     * Returns timeout of cached SSL sessions.
+     *
+     * @return timeout in seconds, 0 means no limit, negative value means JVM
+     * default
+     */
+    public int getSSLSessionTimeout() {
+        return SSLSessionTimeout;
+    }
+
+    /**
+     * Sets timeout of cached SSL sessions.
+     *
+     * @param SSLSessionTimeout timeout in seconds, 0 means no limit, negative
+     * value means JVM default
+     */
+    public void setSSLSessionTimeout(int SSLSessionTimeout) {
+        this.SSLSessionTimeout = SSLSessionTimeout;
+    }
+
     /**
      * Returns path to the custom CA directory.
      *
@@ -126,12 +263,157 @@ public abstract class HTTPAuthentication implements Authentication {
         this.CAFile = CAFile;
     }
 
+    /**
+     * Returns key identifying credentials of this authentication method.
+     * Clients of the same endpoint with equal session keys can share
+     * authenticated session (see
+     * {@link cz.cesnet.cloud.occi.api.http.SessionRegistry}). Key has to
+     * include everything that affects the authentication, including custom
+     * CAs, secrets should be included only as a digest (see
+     * {@link #createSessionKey(java.lang.Object...)}).
+     *
+     * @return session key or null if sessions authenticated by this method
+     * cannot be shared
+     */
+    public List<Object> getSessionKey() {
+        return null;
+    }
+
+    /**
+     * Creates session key from authentication method's identifier, custom CAs
+     * and a digest of given credentials, so the key doesn't hold secrets in
+     * plain text.
+     *
+     * @param credentials credentials
+     * @return session key
+     */
+    protected List<Object> createSessionKey(Object... credentials) {
+        List<Object> key = new ArrayList<>();
+        key.add(getIdentifier());
+        key.add(CAFile);
+        key.add(CAPath);
+        key.add(digest(credentials));
+
+        return key;
+    }
+
+    /**
+     * Returns key identifying material the ssl context is created from.
+     * Authentication methods with equal keys share ssl context (see
+     * {@link #getSSLContext()}). Only custom CAs affect the context by
+     * default, methods adding own key material have to extend the key, secrets
+     * should be included only as a digest (see
+     * {@link #digest(java.lang.Object...)}).
+     *
+     * @return ssl context key or null if the ssl context cannot be shared,
+     * which is the case for methods without session key
+     */
+    protected List<Object> getSSLContextKey() {
+        if (getSessionKey() == null) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<>();
+        key.add(CAFile);
+        key.add(CAPath);
+
+        return key;
+    }
+
+    /**
+     * Computes SHA-256 digest of given values.
+     *
+     * @param values values, can contain null
+     * @return hexadecimal digest
+     */
+    protected static String digest(Object... values) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        Charset charset = Charset.forName("UTF-8");
+        for (Object value : values) {
+            //length prefix keeps boundaries between values unambiguous
+            byte[] bytes = value == null ? new byte[0] : value.toString().getBytes(charset);
+            digest.update(ByteBuffer.allocate(4).putInt(value == null ? -1 : bytes.length).array());
+            digest.update(bytes);
+        }
+
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
     @Override
     public abstract String getIdentifier();
 
     @Override
     public abstract Authentication getFallback();
 
+    /**
+     * Returns files the ssl context is created from. Context is created again
+     * when any of them is modified.
+     *
+     * @return list of files
+     */
+    protected List<File> getCredentialFiles() {
+        List<File> files = new ArrayList<>();
+        if (CAFile != null && !CAFile.isEmpty()) {
+            files.add(new File(CAFile));
+        }
+        if (CAPath != null && !CAPath.isEmpty()) {
+            files.add(new File(CAPath));
+        }
+
+        return files;
+    }
+
+    /**
+     * Returns ssl context for this authentication method. Contexts are shared
+     * by all authentication methods with equal ssl context keys (see
+     * {@link #getSSLContextKey()}) and SSL session settings, so TLS sessions
+     * established by one client can be resumed by another. Methods without
+     * ssl context key get a new context every time.
+     *
+     * @return ssl context
+     * @throws AuthenticationException
+     */
+    protected SSLContext getSSLContext() throws AuthenticationException {
+        List<Object> contextKey = getSSLContextKey();
+        if (contextKey == null) {
+            return configureSSLContext(createSSLContext());
+        }
+
+        List<Object> key = new ArrayList<>(contextKey);
+        key.add(SSLSessionCacheSize);
+        key.add(SSLSessionTimeout);
+        for (File file : getCredentialFiles()) {
+            key.add(file.lastModified());
+        }
+
+        SSLContext sslContext = SSL_CONTEXTS.get(key);
+        if (sslContext == null) {
+            sslContext = configureSSLContext(createSSLContext());
+            SSL_CONTEXTS.put(key, sslContext);
+        } else {
+            LOGGER.debug("Reusing ssl context.");
+        }
+
+        return sslContext;
+    }
+
+    private SSLContext configureSSLContext(SSLContext sslContext) {
+        if (SSLSessionCacheSize >= 0) {
+            sslContext.getClientSessionContext().setSessionCacheSize(SSLSessionCacheSize);
+        }
+        if (SSLSessionTimeout >= 0) {
+            sslContext.getClientSessionContext().setSessionTimeout(SSLSessionTimeout);
+        }
+
+        return sslContext;
+    }
+
     /**
      * Creates a ssl context with custom CAs if set.
      *
@@ -139,51 +421,138 @@ public abstract class HTTPAuthentication implements Authentication {
      * @throws AuthenticationException
      */
     protected SSLContext createSSLContext() throws AuthenticationException {
-        Security.addProvider(new BouncyCastleProvider());
-        KeyStore keyStore = loadCAs();
+        TrustManager[] trustManagers = createTrustManagers();
+        if (trustManagers == null) {
+            return SSLContexts.createSystemDefault();
+        }
 
         try {
-            SSLContext sslContext;
-            if (keyStore == null) {
-                sslContext = SSLContexts.createSystemDefault();
-            } else {
-                sslContext = SSLContexts.custom().loadTrustMaterial(keyStore).build();
-            }
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustManagers, null);
             return sslContext;
-        } catch (NoSuchAlgorithmException | KeyStoreException | KeyManagementException ex) {
+        } catch (NoSuchAlgorithmException | KeyManagementException ex) {
             throw new AuthenticationException(ex);
         }
     }
 
+    /**
+     * Creates trust managers for custom CAs if set. If both set, CA file has
+     * higher priority. CAs from CA directory are loaded lazily by their
+     * subject hash, only when a certificate issued by them is verified.
+     *
+     * @return trust managers or null if no custom CAs are set
+     * @throws AuthenticationException
+     */
+    protected TrustManager[] createTrustManagers() throws AuthenticationException {
+        if (CAFile != null && !CAFile.isEmpty()) {
+            try {
+                TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                trustManagerFactory.init(loadCAsFromFile());
+                return trustManagerFactory.getTrustManagers();
+            } catch (NoSuchAlgorithmException | KeyStoreException ex) {
+                throw new AuthenticationException(ex);
+            }
+        }
+
+        if (CAPath != null && !CAPath.isEmpty()) {
+            File CADir = new File(CAPath);
+            if (!CADir.isDirectory()) {
+                throw new AuthenticationException("'" + CAPath + "' is not a directory.");
+            }
+            return new TrustManager[]{new CADirectoryTrustManager(CADir)};
+        }
+
+        return null;
+    }
+
+    /**
+     * Authenticates against the server. SSL context is created right away only
+     * for https endpoints, so problems with credentials are reported here. For
+     * http endpoints it is created only if some request is redirected to
+     * https.
+     *
+     * @throws CommunicationException
+     */
     @Override
     public void authenticate() throws CommunicationException {
-        SSLContext sslContext = createSSLContext();
-        SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslContext);
+        LayeredConnectionSocketFactory sslsf;
+        if ("https".equalsIgnoreCase(target.getSchemeName())) {
+            sslsf = new ServerNameSocketFactory(getSSLContext(), SNIEnabled);
+        } else {
+            sslsf = new DeferredSSLSocketFactory(SNIEnabled);
+        }
 
         LOGGER.debug("Running authentication...");
-        try {
+        RequestConfig defaultRequestConfig = RequestConfig.custom()
+                .setSocketTimeout(10000)
+                .setConnectTimeout(10000)
+                .setConnectionRequestTimeout(10000)
+                .build();
 
-            RequestConfig defaultRequestConfig = RequestConfig.custom()
-                    .setSocketTimeout(10000)
-                    .setConnectTimeout(10000)
-                    .setConnectionRequestTimeout(10000)
-                    .build();
-
-            HttpClientBuilder builder = HttpClients.custom()
-                    .setDefaultCredentialsProvider(credentialsProvider)
-                    .setSSLSocketFactory(sslsf)
-                    .setDefaultRequestConfig(defaultRequestConfig);
-            if (LOGGER.isDebugEnabled()) {
-                builder.disableContentCompression();
-            }
+        //explicit connection manager, so the pool can be tuned and pre-warmed
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslsf)
+                .build());
+
+        HttpClientBuilder builder = HttpClients.custom()
+                .setDefaultCredentialsProvider(credentialsProvider)
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(defaultRequestConfig);
+        if (LOGGER.isDebugEnabled()) {
+            builder.disableContentCompression();
+        }
 
-            CloseableHttpClient client = builder.build();
-            connection.setClient(client);
-            HttpHead httpHead = HTTPHelper.prepareHead(Client.MODEL_URI, connection.getHeaders(), connection.getPrefix());
-            try (CloseableHttpResponse response = connection.getClient().execute(target, httpHead, connection.getContext())) {
-                if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+        CloseableHttpClient client = builder.build();
+        Transport transport = connection.getTransport();
+        if (transport != null) {
+            client = transport.wrap(client);
+        }
+        connection.setClient(client);
+        connection.setConnectionManager(connectionManager);
+        connection.setRequestConfig(defaultRequestConfig);
+
+        probe(probeHandler);
+    }
+
+    /**
+     * Renews credentials of an authenticated connection, e.g. when a Keystone
+     * token expires. HTTP client and its connection pool are kept, only the
+     * authentication probe (including fallback) is run again.
+     *
+     * @throws CommunicationException
+     */
+    public void renew() throws CommunicationException {
+        if (connection == null || connection.getClient() == null) {
+            throw new AuthenticationException("connection is not authenticated");
+        }
+
+        LOGGER.debug("Renewing authentication...");
+        probe(null);
+    }
+
+    private void probe(ProbeResponseHandler handler) throws CommunicationException {
+        try {
+            HttpRequestBase probe;
+            if (handler == null) {
+                probe = HTTPHelper.prepareHead(Client.MODEL_URI, connection.getHeaders(), connection.getPrefix());
+            } else {
+                probe = HTTPHelper.prepareGet(Client.MODEL_URI, connection.getHeaders(), connection.getPrefix());
+            }
+            CancellationHandle cancellation = CancellationHandle.current();
+            if (cancellation != null) {
+                cancellation.register(probe);
+            }
+            try (CloseableHttpResponse response = connection.getClient().execute(target, probe, connection.getContext())) {
+                if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                    if (handler != null) {
+                        handler.handle(response);
+                    }
+                } else {
                     Authentication fallback = getFallback();
                     if (response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED && fallback != null) {
+                        //body of the GET probe is not needed, only headers are
+                        EntityUtils.consumeQuietly(response.getEntity());
                         if (fallback instanceof KeystoneAuthentication) {
                             LOGGER.debug("Running Keystone fallback...");
                             KeystoneAuthentication ka = (KeystoneAuthentication) fallback;
@@ -196,11 +565,20 @@ public abstract class HTTPAuthentication implements Authentication {
                         if (response.getEntity() == null) {
                             LOGGER.error("Response: {}\nHeaders: {}\nBody:\n", response.getStatusLine().toString(), response.getAllHeaders());
                         } else {
-                            LOGGER.error("Response: {}\nHeaders: {}\nBody: {}", response.getStatusLine().toString(), response.getAllHeaders(), EntityUtils.toString(response.getEntity()));
+                            LOGGER.error("Response: {}\nHeaders: {}\nBody: {}", response.getStatusLine().toString(), response.getAllHeaders(), HTTPHelper.readErrorBody(response.getEntity()));
                         }
                         throw new AuthenticationException(response.getStatusLine().toString());
                     }
                 }
+            } catch (IOException ex) {
+                if (cancellation != null && cancellation.isCancelled()) {
+                    throw new OperationCancelledException("operation cancelled", ex);
+                }
+                throw ex;
+            } finally {
+                if (cancellation != null) {
+                    cancellation.unregister(probe);
+                }
             }
         } catch (IOException ex) {
             throw new CommunicationException(ex);
@@ -258,6 +636,7 @@ public abstract class HTTPAuthentication implements Authentication {
                 }
             };
 
+            registerBouncyCastle();
             File[] certs = CADir.listFiles(fileNameFilter);
             KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
             ks.load(null);
@@ -279,4 +658,45 @@ public abstract class HTTPAuthentication implements Authentication {
             throw new AuthenticationException(ex);
         }
     }
+
+    /**
+     * SSL socket factory creating the SSL context on its first use.
+     */
+    private class DeferredSSLSocketFactory implements LayeredConnectionSocketFactory {
+
+        private final boolean sniEnabled;
+        private ServerNameSocketFactory factory;
+
+        private DeferredSSLSocketFactory(boolean sniEnabled) {
+            this.sniEnabled = sniEnabled;
+        }
+
+        private synchronized ServerNameSocketFactory getFactory() throws IOException {
+            if (factory == null) {
+                LOGGER.debug("Creating deferred ssl context.");
+                try {
+                    factory = new ServerNameSocketFactory(getSSLContext(), sniEnabled);
+                } catch (AuthenticationException ex) {
+                    throw new IOException(ex);
+                }
+            }
+
+            return factory;
+        }
+
+        @Override
+        public Socket createSocket(HttpContext context) throws IOException {
+            return getFactory().createSocket(context);
+        }
+
+        @Override
+        public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress, InetSocketAddress localAddress, HttpContext context) throws IOException {
+            return getFactory().connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            return getFactory().createLayeredSocket(socket, target, port, context);
+        }
+    }
 }
@@ -5,6 +5,8 @@ import com.google.gson.stream.JsonWriter;
 import cz.cesnet.cloud.occi.api.Authentication;
 import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
 import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import cz.cesnet.cloud.occi.api.http.CancellationHandle;
 import cz.cesnet.cloud.occi.api.http.HTTPConnection;
 import cz.cesnet.cloud.occi.api.http.HTTPHelper;
 import java.io.ByteArrayOutputStream;
@@ -20,6 +22,7 @@ import org.apache.http.HttpHost;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.message.BasicHeader;
@@ -122,23 +125,37 @@ public class KeystoneAuthentication extends HTTPAuthentication {
         try {
             HttpPost httpPost = HTTPHelper.preparePost("/tokens", getHeaders(), path);
             httpPost.setEntity(new StringEntity(getRequestBody(tenant)));
-
-            try (CloseableHttpResponse response = HTTPHelper.runRequest(httpPost, target, client, context)) {
-                return EntityUtils.toString(response.getEntity());
-            }
+            return runRequest(httpPost, target, client, context);
         } catch (IOException ex) {
             throw new CommunicationException(ex);
         }
     }
 
     private String getTenants(HttpHost target, String path, CloseableHttpClient client, HttpContext context) throws CommunicationException {
-        try {
-            HttpGet httpGet = HTTPHelper.prepareGet("/tenants", getHeaders(), path);
-            try (CloseableHttpResponse response = HTTPHelper.runRequest(httpGet, target, client, context)) {
-                return EntityUtils.toString(response.getEntity());
+        HttpGet httpGet = HTTPHelper.prepareGet("/tenants", getHeaders(), path);
+        return runRequest(httpGet, target, client, context);
+    }
+
+    private String runRequest(HttpRequestBase request, HttpHost target, CloseableHttpClient client, HttpContext context) throws CommunicationException {
+        //request is aborted if the surrounding operation is cancelled
+        CancellationHandle cancellation = CancellationHandle.current();
+        if (cancellation != null) {
+            cancellation.register(request);
+        }
+        try (CloseableHttpResponse response = HTTPHelper.runRequest(request, target, client, context)) {
+            return EntityUtils.toString(response.getEntity());
+        } catch (IOException | CommunicationException ex) {
+            if (cancellation != null && cancellation.isCancelled()) {
+                throw new OperationCancelledException("operation cancelled", ex);
+            }
+            if (ex instanceof CommunicationException) {
+                throw (CommunicationException) ex;
             }
-        } catch (IOException ex) {
             throw new CommunicationException(ex);
+        } finally {
+            if (cancellation != null) {
+                cancellation.unregister(request);
+            }
         }
     }
 
@@ -163,10 +180,16 @@ public class KeystoneAuthentication extends HTTPAuthentication {
                         }
 
                         String tenant = reader.nextString();
+                        CancellationHandle cancellation = CancellationHandle.current();
+                        if (cancellation != null) {
+                            cancellation.check();
+                        }
                         try {
                             String response = authenticateAgainstKeystone(target, path, client, context, tenant);
                             authToken = parseId(response);
                             return;
+                        } catch (OperationCancelledException ex) {
+                            throw ex;
                         } catch (CommunicationException ex) {
                             //ignoring and trying the next tenant
                         }
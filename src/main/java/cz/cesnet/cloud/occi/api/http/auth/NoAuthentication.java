@@ -1,6 +1,7 @@
 package cz.cesnet.cloud.occi.api.http.auth;
 
 import cz.cesnet.cloud.occi.api.Authentication;
+import java.util.List;
 
 /**
  * Dummy authentication method representing no authentication.
@@ -21,4 +22,9 @@ public class NoAuthentication extends HTTPAuthentication {
         return null;
     }
 
+    @Override
+    public List<Object> getSessionKey() {
+        return createSessionKey();
+    }
+
 }
@@ -0,0 +1,26 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import java.io.IOException;
+import org.apache.http.HttpResponse;
+
+/**
+ * Handler of a successful response to the request authentication uses to
+ * probe the server. When set to an authentication method, server is probed
+ * with GET request for the model instead of HEAD request and the handler can
+ * consume the model from the response.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public interface ProbeResponseHandler {
+
+    /**
+     * Handles successful probe response. Response is closed after the
+     * handler returns.
+     *
+     * @param response response to GET request for the model
+     * @throws IOException
+     * @throws CommunicationException
+     */
+    void handle(HttpResponse response) throws IOException, CommunicationException;
+}
@@ -0,0 +1,299 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509KeyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Key manager watching the credential file and reloading its key material
+ * when the file changes (e.g. renewed VOMS proxy). The file is checked
+ * periodically by a background thread, handshakes only read the current key
+ * material. Reloaded key material replaces the old one at once, aliases carry
+ * version of the key material they come from, so a handshake running during
+ * the reload gets a key and certificate chain of the same version.
+ *
+ * <p>
+ * Established connections are not affected by the reload. Cached SSL
+ * sessions are invalidated, so new connections authenticate with the new
+ * credentials.</p>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class ReloadingKeyManager extends X509ExtendedKeyManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReloadingKeyManager.class);
+    private static final char VERSION_SEPARATOR = '/';
+    private static final ScheduledExecutorService WATCHER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "occi-credentials-watcher");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final File file;
+    private final KeyStoreLoader loader;
+    private final char[] password;
+    private volatile KeyMaterial current;
+    private volatile KeyMaterial previous;
+    private volatile SSLSessionContext sessionContext;
+
+    /**
+     * Loads key material.
+     */
+    interface KeyStoreLoader {
+
+        /**
+         * Loads key store with user's key and certificate chain.
+         *
+         * @return key store
+         * @throws AuthenticationException
+         */
+        KeyStore load() throws AuthenticationException;
+    }
+
+    /**
+     * Constructor. Key material is loaded immediately.
+     *
+     * @param file watched credential file
+     * @param loader loader of the key material
+     * @param password password of the key in the loaded key store
+     * @throws AuthenticationException if the key material cannot be loaded
+     */
+    ReloadingKeyManager(File file, KeyStoreLoader loader, char[] password) throws AuthenticationException {
+        this.file = file;
+        this.loader = loader;
+        this.password = password;
+        long lastModified = file.lastModified();
+        current = new KeyMaterial(0, lastModified, createDelegate(loader.load()));
+    }
+
+    /**
+     * Starts checking the file periodically. Checking stops when the manager
+     * is garbage collected.
+     *
+     * @param interval interval between checks in milliseconds
+     */
+    void watch(long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval has to be positive");
+        }
+
+        //watcher must not keep the manager alive once its ssl context is gone
+        final WeakReference<ReloadingKeyManager> reference = new WeakReference<>(this);
+        final ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+        synchronized (self) {
+            self[0] = WATCHER.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    ReloadingKeyManager manager = reference.get();
+                    if (manager == null) {
+                        synchronized (self) {
+                            self[0].cancel(false);
+                        }
+                        return;
+                    }
+                    manager.reload();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sets session context whose sessions are invalidated on reload.
+     *
+     * @param sessionContext client session context of the ssl context using
+     * this manager
+     */
+    void setSessionContext(SSLSessionContext sessionContext) {
+        this.sessionContext = sessionContext;
+    }
+
+    /**
+     * Reloads the key material if the file was modified since the last load.
+     * Key material which cannot be loaded (e.g. file is being written) is
+     * ignored and the previous one is kept.
+     *
+     * @return true if the key material was reloaded, false otherwise
+     */
+    synchronized boolean reload() {
+        long lastModified = file.lastModified();
+        KeyMaterial material = current;
+        if (lastModified == material.lastModified) {
+            return false;
+        }
+
+        X509KeyManager delegate;
+        try {
+            delegate = createDelegate(loader.load());
+        } catch (AuthenticationException | RuntimeException ex) {
+            LOGGER.warn("Cannot reload credentials from {}, keeping the current ones.", file, ex);
+            return false;
+        }
+
+        previous = material;
+        current = new KeyMaterial(material.version + 1, lastModified, delegate);
+        LOGGER.debug("Credentials reloaded from {}.", file);
+
+        SSLSessionContext context = sessionContext;
+        if (context != null) {
+            for (byte[] id : Collections.list(context.getIds())) {
+                SSLSession session = context.getSession(id);
+                if (session != null) {
+                    session.invalidate();
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private X509KeyManager createDelegate(KeyStore keyStore) throws AuthenticationException {
+        try {
+            KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            factory.init(keyStore, password);
+            for (KeyManager manager : factory.getKeyManagers()) {
+                if (manager instanceof X509KeyManager) {
+                    return (X509KeyManager) manager;
+                }
+            }
+        } catch (NoSuchAlgorithmException | KeyStoreException | UnrecoverableKeyException ex) {
+            throw new AuthenticationException(ex);
+        }
+
+        throw new AuthenticationException("no X509 key manager available");
+    }
+
+    private KeyMaterial material(String alias) {
+        if (alias == null) {
+            return null;
+        }
+
+        int separator = alias.indexOf(VERSION_SEPARATOR);
+        if (separator == -1) {
+            return null;
+        }
+
+        int version;
+        try {
+            version = Integer.parseInt(alias.substring(0, separator));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+
+        KeyMaterial material = current;
+        if (material.version == version) {
+            return material;
+        }
+        material = previous;
+        if (material != null && material.version == version) {
+            return material;
+        }
+
+        return null;
+    }
+
+    private static String unversioned(String alias) {
+        return alias.substring(alias.indexOf(VERSION_SEPARATOR) + 1);
+    }
+
+    private static String[] versioned(KeyMaterial material, String[] aliases) {
+        if (aliases == null) {
+            return null;
+        }
+
+        String[] result = new String[aliases.length];
+        for (int i = 0; i < aliases.length; i++) {
+            result[i] = material.version + String.valueOf(VERSION_SEPARATOR) + aliases[i];
+        }
+
+        return result;
+    }
+
+    private static String versioned(KeyMaterial material, String alias) {
+        return alias == null ? null : material.version + String.valueOf(VERSION_SEPARATOR) + alias;
+    }
+
+    @Override
+    public String[] getClientAliases(String keyType, Principal[] issuers) {
+        KeyMaterial material = current;
+        return versioned(material, material.delegate.getClientAliases(keyType, issuers));
+    }
+
+    @Override
+    public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+        KeyMaterial material = current;
+        return versioned(material, material.delegate.chooseClientAlias(keyType, issuers, socket));
+    }
+
+    @Override
+    public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+        KeyMaterial material = current;
+        if (material.delegate instanceof X509ExtendedKeyManager) {
+            return versioned(material, ((X509ExtendedKeyManager) material.delegate).chooseEngineClientAlias(keyType, issuers, engine));
+        }
+
+        return versioned(material, material.delegate.chooseClientAlias(keyType, issuers, null));
+    }
+
+    @Override
+    public String[] getServerAliases(String keyType, Principal[] issuers) {
+        //client side only
+        return null;
+    }
+
+    @Override
+    public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+        return null;
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain(String alias) {
+        KeyMaterial material = material(alias);
+        return material == null ? null : material.delegate.getCertificateChain(unversioned(alias));
+    }
+
+    @Override
+    public PrivateKey getPrivateKey(String alias) {
+        KeyMaterial material = material(alias);
+        return material == null ? null : material.delegate.getPrivateKey(unversioned(alias));
+    }
+
+    private static class KeyMaterial {
+
+        private final int version;
+        private final long lastModified;
+        private final X509KeyManager delegate;
+
+        private KeyMaterial(int version, long lastModified, X509KeyManager delegate) {
+            this.version = version;
+            this.lastModified = lastModified;
+            this.delegate = delegate;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.X509HostnameVerifier;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SSL socket factory with per-factory control of the server name indication
+ * (SNI) extension. When SNI is disabled, SSL layer is created for the server's
+ * IP address, for which the extension is never sent, and the hostname is
+ * verified separately. This replaces JVM-wide {@code jsse.enableSNIExtension}
+ * property.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+class ServerNameSocketFactory extends SSLConnectionSocketFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerNameSocketFactory.class);
+    private final SSLContext sslContext;
+    private final X509HostnameVerifier hostnameVerifier;
+    private final boolean sniEnabled;
+
+    /**
+     * Constructor.
+     *
+     * @param sslContext SSL context
+     * @param sniEnabled whether SNI extension is sent
+     */
+    ServerNameSocketFactory(SSLContext sslContext, boolean sniEnabled) {
+        super(sslContext, BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+        this.sslContext = sslContext;
+        this.hostnameVerifier = BROWSER_COMPATIBLE_HOSTNAME_VERIFIER;
+        this.sniEnabled = sniEnabled;
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        InetAddress address = socket.getInetAddress();
+        if (sniEnabled || address == null) {
+            return super.createLayeredSocket(socket, target, port, context);
+        }
+
+        SSLSocket sslSocket = (SSLSocket) sslContext.getSocketFactory().createSocket(socket, address.getHostAddress(), port, true);
+        try {
+            prepareSocket(sslSocket);
+            sslSocket.startHandshake();
+            hostnameVerifier.verify(target, sslSocket);
+            return sslSocket;
+        } catch (IOException ex) {
+            try {
+                sslSocket.close();
+            } catch (IOException closeEx) {
+                LOGGER.debug("Cannot close SSL socket.", closeEx);
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package cz.cesnet.cloud.occi.api.http.replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of recorded exchanges. Archive is stored as a gzipped binary file,
+ * recordings of repetitive OCCI responses compress well. Adding exchanges is
+ * thread-safe.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * ExchangeArchive archive = new ExchangeArchive();
+ *client.setTransport(new RecordingTransport(archive));
+ *client.connect();
+ *client.describe();
+ *archive.save(new File("describe.occirec"));}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ExchangeArchive {
+
+    private static final int MAGIC = 0x4f434352;
+    private static final int VERSION = 1;
+    private final List<RecordedExchange> exchanges = new ArrayList<>();
+
+    /**
+     * Adds exchange to the archive.
+     *
+     * @param exchange exchange, cannot be null
+     */
+    public synchronized void add(RecordedExchange exchange) {
+        if (exchange == null) {
+            throw new NullPointerException("exchange cannot be null");
+        }
+
+        exchanges.add(exchange);
+    }
+
+    /**
+     * Returns recorded exchanges in order of recording.
+     *
+     * @return copy of the exchange list
+     */
+    public synchronized List<RecordedExchange> getExchanges() {
+        return new ArrayList<>(exchanges);
+    }
+
+    public synchronized int size() {
+        return exchanges.size();
+    }
+
+    public synchronized void clear() {
+        exchanges.clear();
+    }
+
+    /**
+     * Writes the archive to a stream. Stream is not closed.
+     *
+     * @param out output stream
+     * @throws IOException
+     */
+    public void write(OutputStream out) throws IOException {
+        List<RecordedExchange> snapshot = getExchanges();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(snapshot.size());
+        for (RecordedExchange exchange : snapshot) {
+            writeString(data, exchange.getMethod());
+            writeString(data, exchange.getPath());
+            writeString(data, exchange.getAccept());
+            data.writeShort(exchange.getStatus());
+            writeString(data, exchange.getReason());
+            String[] headers = exchange.headers();
+            data.writeInt(headers.length);
+            for (String header : headers) {
+                writeString(data, header);
+            }
+            writeBytes(data, exchange.body());
+            data.writeLong(exchange.getLatency());
+        }
+        data.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Reads archive from a stream. Stream is not closed.
+     *
+     * @param in input stream
+     * @return archive
+     * @throws IOException if the stream doesn't contain a valid archive
+     */
+    public static ExchangeArchive read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not an exchange archive");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported archive version " + version);
+        }
+
+        ExchangeArchive archive = new ExchangeArchive();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            String method = readString(data);
+            String path = readString(data);
+            String accept = readString(data);
+            int status = data.readUnsignedShort();
+            String reason = readString(data);
+            String[] headers = new String[data.readInt()];
+            for (int j = 0; j < headers.length; j++) {
+                headers[j] = readString(data);
+            }
+            byte[] body = readBytes(data);
+            long latency = data.readLong();
+            archive.add(new RecordedExchange(method, path, accept, status, reason, headers, body, latency));
+        }
+
+        return archive;
+    }
+
+    /**
+     * Saves the archive to a file.
+     *
+     * @param file file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Loads archive from a file.
+     *
+     * @param file file
+     * @return archive
+     * @throws IOException
+     */
+    public static ExchangeArchive load(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        //writeUTF is limited to 64 kB, text/occi headers can be longer
+        writeBytes(data, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        byte[] bytes = readBytes(data);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            data.writeInt(-1);
+        } else {
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < -1) {
+            throw new IOException("corrupted archive");
+        }
+        if (length == -1) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return bytes;
+    }
+}
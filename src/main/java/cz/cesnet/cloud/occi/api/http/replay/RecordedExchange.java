@@ -0,0 +1,150 @@
+package cz.cesnet.cloud.occi.api.http.replay;
+
+import java.net.URI;
+import java.util.Arrays;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+
+/**
+ * Single recorded request-response exchange. Requests are identified by
+ * method, path with query and Accept header, so recordings can be replayed
+ * against any endpoint. Request bodies are not recorded.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RecordedExchange {
+
+    private final String method;
+    private final String path;
+    private final String accept;
+    private final int status;
+    private final String reason;
+    private final String[] headers;
+    private final byte[] body;
+    private final long latency;
+
+    /**
+     * Constructor.
+     *
+     * @param method request method, cannot be null
+     * @param path request path with query, cannot be null
+     * @param accept Accept header of the request, can be null
+     * @param status response status code
+     * @param reason response reason phrase, can be null
+     * @param headers response headers as name-value pairs, cannot be null
+     * @param body response body, null if response had no entity
+     * @param latency time from sending the request to receiving the whole
+     * response in nanoseconds
+     */
+    public RecordedExchange(String method, String path, String accept, int status, String reason, String[] headers, byte[] body, long latency) {
+        if (method == null) {
+            throw new NullPointerException("method cannot be null");
+        }
+        if (path == null) {
+            throw new NullPointerException("path cannot be null");
+        }
+        if (headers == null) {
+            throw new NullPointerException("headers cannot be null");
+        }
+        if (headers.length % 2 != 0) {
+            throw new IllegalArgumentException("headers have to be name-value pairs");
+        }
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency cannot be negative");
+        }
+
+        this.method = method;
+        this.path = path;
+        this.accept = accept;
+        this.status = status;
+        this.reason = reason;
+        this.headers = headers.clone();
+        this.body = body == null ? null : body.clone();
+        this.latency = latency;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getAccept() {
+        return accept;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * Returns response body.
+     *
+     * @return body or null if response had no entity
+     */
+    public byte[] getBody() {
+        return body == null ? null : body.clone();
+    }
+
+    /**
+     * Returns response latency.
+     *
+     * @return latency in nanoseconds
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns key identifying requests answered by this exchange.
+     *
+     * @return key
+     */
+    public String getKey() {
+        return key(method, path, accept);
+    }
+
+    byte[] body() {
+        return body;
+    }
+
+    String[] headers() {
+        return headers;
+    }
+
+    static String key(HttpRequest request) {
+        Header accept = request.getFirstHeader(HttpHeaders.ACCEPT);
+        return key(request.getRequestLine().getMethod(), path(request), accept == null ? null : accept.getValue());
+    }
+
+    static String path(HttpRequest request) {
+        URI uri = URI.create(request.getRequestLine().getUri());
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+    private static String key(String method, String path, String accept) {
+        return method + " " + path + " " + accept;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedExchange{" + "method=" + method + ", path=" + path + ", accept=" + accept + ", status=" + status
+                + ", headers=" + Arrays.toString(headers) + ", body=" + (body == null ? "none" : body.length + " bytes") + ", latency=" + latency + '}';
+    }
+}
@@ -0,0 +1,117 @@
+package cz.cesnet.cloud.occi.api.http.replay;
+
+import cz.cesnet.cloud.occi.api.http.Transport;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Transport recording all exchanges with timing into an archive. Requests are
+ * sent by the wrapped client, response bodies are read completely before
+ * being handed over to the caller, so recorded latency includes the transfer
+ * of the body.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RecordingTransport implements Transport {
+
+    private final ExchangeArchive archive;
+
+    /**
+     * Constructor.
+     *
+     * @param archive archive exchanges are recorded to, cannot be null
+     */
+    public RecordingTransport(ExchangeArchive archive) {
+        if (archive == null) {
+            throw new NullPointerException("archive cannot be null");
+        }
+
+        this.archive = archive;
+    }
+
+    public ExchangeArchive getArchive() {
+        return archive;
+    }
+
+    @Override
+    public CloseableHttpClient wrap(CloseableHttpClient client) {
+        return new RecordingClient(client, archive);
+    }
+
+    private static class RecordingClient extends CloseableHttpClient {
+
+        private final CloseableHttpClient client;
+        private final ExchangeArchive archive;
+
+        private RecordingClient(CloseableHttpClient client, ExchangeArchive archive) {
+            this.client = client;
+            this.archive = archive;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+            long start = System.nanoTime();
+            CloseableHttpResponse response = client.execute(target, request, context);
+            byte[] body;
+            try {
+                HttpEntity entity = response.getEntity();
+                body = entity == null ? null : EntityUtils.toByteArray(entity);
+            } catch (IOException ex) {
+                response.close();
+                throw ex;
+            }
+            long latency = System.nanoTime() - start;
+
+            List<String> headers = new ArrayList<>();
+            for (Header header : response.getAllHeaders()) {
+                //body is stored decoded and as a whole
+                if (header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)
+                        || header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_ENCODING)
+                        || header.getName().equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)) {
+                    continue;
+                }
+                headers.add(header.getName());
+                headers.add(header.getValue());
+            }
+            Header accept = request.getFirstHeader(HttpHeaders.ACCEPT);
+            archive.add(new RecordedExchange(request.getRequestLine().getMethod(), RecordedExchange.path(request), accept == null ? null : accept.getValue(),
+                    response.getStatusLine().getStatusCode(), response.getStatusLine().getReasonPhrase(), headers.toArray(new String[headers.size()]), body, latency));
+
+            if (body != null) {
+                ByteArrayEntity entity = new ByteArrayEntity(body);
+                entity.setContentType(response.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+                response.setEntity(entity);
+            }
+            return response;
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.params.HttpParams getParams() {
+            return client.getParams();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+            return client.getConnectionManager();
+        }
+    }
+}
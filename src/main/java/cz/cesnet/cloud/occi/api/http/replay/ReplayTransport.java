@@ -0,0 +1,196 @@
+package cz.cesnet.cloud.occi.api.http.replay;
+
+import cz.cesnet.cloud.occi.api.http.Transport;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Transport answering requests from recorded exchanges in-process, no
+ * request reaches the network. Responses can be delayed by the recorded
+ * latency, scaled latency or not at all, the last being suitable for
+ * measuring CPU time and allocations of parsing and rendering on the client.
+ *
+ * <p>
+ * Request is answered by an exchange recorded with the same method, path
+ * with query and Accept header regardless of the endpoint. If there were more
+ * such exchanges, they are used in turns in the order of recording. Requests
+ * without a recorded exchange fail with {@link ClientProtocolException}.
+ * Connection pre-warming opens real connections and should stay disabled
+ * during replay.</p>
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * ReplayTransport transport = new ReplayTransport(ExchangeArchive.load(new File("describe.occirec")));
+ *transport.setLatencyScale(0);
+ *client.setTransport(transport);
+ *client.connect();
+ *client.describe();}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ReplayTransport implements Transport {
+
+    private final Map<String, List<RecordedExchange>> exchanges = new HashMap<>();
+    private final Map<String, AtomicInteger> turns = new HashMap<>();
+    private volatile double latencyScale = 1;
+
+    /**
+     * Constructor. Exchanges added to the archive later are not replayed.
+     *
+     * @param archive archive with recorded exchanges, cannot be null
+     */
+    public ReplayTransport(ExchangeArchive archive) {
+        if (archive == null) {
+            throw new NullPointerException("archive cannot be null");
+        }
+
+        for (RecordedExchange exchange : archive.getExchanges()) {
+            List<RecordedExchange> list = exchanges.get(exchange.getKey());
+            if (list == null) {
+                list = new ArrayList<>();
+                exchanges.put(exchange.getKey(), list);
+                turns.put(exchange.getKey(), new AtomicInteger());
+            }
+            list.add(exchange);
+        }
+    }
+
+    public double getLatencyScale() {
+        return latencyScale;
+    }
+
+    /**
+     * Sets factor the recorded latencies are multiplied by. 1 replays with
+     * the original latencies (default), 0 answers immediately.
+     *
+     * @param latencyScale latency factor, cannot be negative
+     */
+    public void setLatencyScale(double latencyScale) {
+        if (latencyScale < 0 || Double.isNaN(latencyScale)) {
+            throw new IllegalArgumentException("latency scale cannot be negative");
+        }
+
+        this.latencyScale = latencyScale;
+    }
+
+    @Override
+    public CloseableHttpClient wrap(CloseableHttpClient client) {
+        return new ReplayClient(client);
+    }
+
+    /**
+     * Returns next exchange recorded for the request.
+     *
+     * @param request request
+     * @return exchange or null if there is none
+     */
+    RecordedExchange next(HttpRequest request) {
+        String key = RecordedExchange.key(request);
+        List<RecordedExchange> list = exchanges.get(key);
+        if (list == null) {
+            return null;
+        }
+
+        int turn = turns.get(key).getAndIncrement();
+        return list.get((turn & Integer.MAX_VALUE) % list.size());
+    }
+
+    private class ReplayClient extends CloseableHttpClient {
+
+        private final CloseableHttpClient client;
+        @SuppressWarnings("deprecation")
+        private org.apache.http.params.HttpParams params;
+
+        private ReplayClient(CloseableHttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException, ClientProtocolException {
+            RecordedExchange exchange = next(request);
+            if (exchange == null) {
+                throw new ClientProtocolException("no recorded exchange for " + request.getRequestLine().getMethod() + " "
+                        + RecordedExchange.path(request) + " accepting " + request.getFirstHeader(HttpHeaders.ACCEPT));
+            }
+
+            long delay = (long) (exchange.getLatency() * latencyScale);
+            if (delay > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("replay interrupted");
+                }
+            }
+
+            ReplayedResponse response = new ReplayedResponse(exchange.getStatus(), exchange.getReason());
+            String[] headers = exchange.headers();
+            for (int i = 0; i < headers.length; i += 2) {
+                response.addHeader(headers[i], headers[i + 1]);
+            }
+            byte[] body = exchange.body();
+            if (body != null) {
+                //recorded body is shared by all replays and never modified
+                ByteArrayEntity entity = new ByteArrayEntity(body);
+                Header contentType = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+                entity.setContentType(contentType);
+                response.setEntity(entity);
+            }
+
+            return response;
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public synchronized org.apache.http.params.HttpParams getParams() {
+            //clients built by HttpClientBuilder don't support params, replayed one keeps its own
+            if (params == null) {
+                params = new org.apache.http.params.BasicHttpParams();
+            }
+            return params;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public org.apache.http.conn.ClientConnectionManager getConnectionManager() {
+            //replayed requests never lease connections, pool is used only by pre-warming
+            return client.getConnectionManager();
+        }
+    }
+
+    private static class ReplayedResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        private ReplayedResponse(int status, String reason) {
+            super(HttpVersion.HTTP_1_1, status, reason);
+        }
+
+        @Override
+        public void close() {
+            //nothing to release
+        }
+    }
+}
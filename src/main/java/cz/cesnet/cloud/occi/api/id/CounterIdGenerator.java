@@ -0,0 +1,50 @@
+package cz.cesnet.cloud.occi.api.id;
+
+import cz.cesnet.cloud.occi.api.IdGenerator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates IDs composed of a fixed prefix and an increasing counter, e.g.
+ * "batch42-1", "batch42-2", ... IDs are unique only within one generator
+ * instance, so the prefix should be unique for every generator.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class CounterIdGenerator implements IdGenerator {
+
+    private final String prefix;
+    private final AtomicLong counter;
+
+    /**
+     * Constructor. Counter starts at 1.
+     *
+     * @param prefix ID prefix, cannot be null
+     */
+    public CounterIdGenerator(String prefix) {
+        this(prefix, 0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param prefix ID prefix, cannot be null
+     * @param lastValue counter value preceding the first generated one
+     */
+    public CounterIdGenerator(String prefix, long lastValue) {
+        if (prefix == null) {
+            throw new NullPointerException("prefix cannot be null");
+        }
+
+        this.prefix = prefix;
+        this.counter = new AtomicLong(lastValue);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public String generate() {
+        return prefix + counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,19 @@
+package cz.cesnet.cloud.occi.api.id;
+
+import cz.cesnet.cloud.occi.api.IdGenerator;
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs using {@link UUID#randomUUID()} backed by
+ * a shared SecureRandom instance. IDs are unpredictable but concurrent callers
+ * contend on the shared generator. Default ID generator.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class SecureRandomIdGenerator implements IdGenerator {
+
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,23 @@
+package cz.cesnet.cloud.occi.api.id;
+
+import cz.cesnet.cloud.occi.api.IdGenerator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random (version 4) UUIDs using a per-thread random generator.
+ * Threads don't contend with each other but the IDs are predictable, so they
+ * shouldn't be used where ID secrecy matters.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ThreadLocalRandomIdGenerator implements IdGenerator {
+
+    @Override
+    public String generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (random.nextLong() & ~0xf000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
@@ -0,0 +1,24 @@
+package cz.cesnet.cloud.occi.api.id;
+
+import cz.cesnet.cloud.occi.api.IdGenerator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates time-ordered (version 7) UUIDs. First 48 bits hold the current
+ * time in milliseconds, the rest is filled from a per-thread random generator.
+ * IDs sort by their creation time with millisecond precision and threads don't
+ * contend with each other.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    @Override
+    public String generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextInt() & 0x0fffL);
+        long leastSigBits = (random.nextLong() & ~(0xcL << 60)) | (0x8L << 60);
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
@@ -0,0 +1,79 @@
+package cz.cesnet.cloud.occi.api;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class CompactLocationListTest {
+
+    @Test
+    public void testList() {
+        List<URI> locations = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            locations.add(URI.create("https://remote.server.net/compute/" + i));
+            locations.add(URI.create("https://remote.server.net/storage/" + i));
+        }
+        locations.add(URI.create("/network/%C5%BElu%C5%A5ou%C4%8Dk%C3%BD?x=a/b#frag"));
+        locations.add(URI.create("https://remote.server.net/network/žluťoučký"));
+        locations.add(URI.create("urn:uuid:1234"));
+        locations.add(URI.create("https://remote.server.net/compute/0"));
+
+        CompactLocationList list = new CompactLocationList(locations);
+        assertEquals(locations.size(), list.size());
+        assertEquals(locations, list);
+        assertEquals(list, locations);
+        assertEquals(locations.hashCode(), list.hashCode());
+        assertEquals(5, list.getPrefixCount());
+        assertEquals(0, list.indexOf(URI.create("https://remote.server.net/compute/0")));
+        assertEquals(locations.size() - 1, list.lastIndexOf(URI.create("https://remote.server.net/compute/0")));
+        assertTrue(list.contains(URI.create("https://remote.server.net/network/žluťoučký")));
+        assertFalse(list.contains(URI.create("https://remote.server.net/compute/1000")));
+        assertFalse(list.contains("https://remote.server.net/compute/0"));
+    }
+
+    @Test
+    public void testEmptyList() {
+        CompactLocationList list = new CompactLocationList(Collections.<URI>emptyList());
+        assertTrue(list.isEmpty());
+        assertEquals(0, list.getPrefixCount());
+    }
+
+    @Test
+    public void testImmutable() {
+        CompactLocationList list = new CompactLocationList(Arrays.asList(URI.create("https://remote.server.net/compute/1")));
+        try {
+            list.add(URI.create("https://remote.server.net/compute/2"));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testInvalidConstructor() {
+        try {
+            new CompactLocationList(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+
+        try {
+            new CompactLocationList(Arrays.asList(URI.create("https://remote.server.net/compute/1"), null));
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package cz.cesnet.cloud.occi.api;
+
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class DeadlineTest {
+
+    @Test
+    public void testRemaining() throws Exception {
+        Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remaining(TimeUnit.MINUTES) > 58);
+        assertTrue(deadline.remaining(TimeUnit.MINUTES) <= 60);
+        deadline.check();
+
+        deadline = Deadline.after(-1, TimeUnit.SECONDS);
+        assertTrue(deadline.isExpired());
+        assertTrue(deadline.remaining(TimeUnit.MILLISECONDS) < 0);
+        try {
+            deadline.check();
+            fail();
+        } catch (DeadlineExceededException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testMin() {
+        Deadline earlier = Deadline.after(1, TimeUnit.SECONDS);
+        Deadline later = Deadline.after(1, TimeUnit.HOURS);
+        assertTrue(earlier.min(later) == earlier);
+        assertTrue(later.min(earlier) == earlier);
+        assertTrue(later.min(null) == later);
+    }
+
+    @Test
+    public void testInvalidAfter() {
+        try {
+            Deadline.after(1, null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+}
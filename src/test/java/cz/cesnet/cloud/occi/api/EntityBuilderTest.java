@@ -3,6 +3,7 @@ package cz.cesnet.cloud.occi.api;
 import cz.cesnet.cloud.occi.DataGenerator;
 import cz.cesnet.cloud.occi.Model;
 import cz.cesnet.cloud.occi.api.exception.EntityBuildingException;
+import cz.cesnet.cloud.occi.api.id.CounterIdGenerator;
 import cz.cesnet.cloud.occi.core.Action;
 import cz.cesnet.cloud.occi.core.ActionInstance;
 import cz.cesnet.cloud.occi.core.Kind;
@@ -18,8 +19,12 @@ import cz.cesnet.cloud.occi.infrastructure.Storage;
 import cz.cesnet.cloud.occi.infrastructure.StorageLink;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
@@ -60,6 +65,22 @@ public class EntityBuilderTest {
         model.addKind(DataGenerator.getCustomStorageLinkKind());
         model.addMixin(DataGenerator.getCustomIPNetworkInterfaceMixin());
         model.addMixin(DataGenerator.getCustomIPNetworkMixin());
+        eb.refresh();
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        Kind kind = new Kind(new URI("http://different.uri.same/term/infrastructure#"), "vm", "Virtual Machine", new URI("/vm/"), null);
+        model.addKind(kind);
+        try {
+            eb.getResource("vm");
+            fail();
+        } catch (EntityBuildingException ex) {
+            //cool
+        }
+
+        eb.refresh();
+        assertEquals(kind, eb.getResource("vm").getKind());
     }
 
     @Test
@@ -99,6 +120,7 @@ public class EntityBuilderTest {
         try {
             Kind k = new Kind(new URI("http://different.uri.same/term/infrastructure#"), "compute", "Compute Resource", new URI("/compute/"), null);
             model.addKind(k);
+            eb.refresh();
             eb.getResource("compute");
         } catch (EntityBuildingException ex) {
             //cool
@@ -143,6 +165,7 @@ public class EntityBuilderTest {
         try {
             Kind k = new Kind(new URI("http://different.uri.same/term/infrastructure#"), "storagelink", "Storage Link", new URI("/storagelink/"), null);
             model.addKind(k);
+            eb.refresh();
             eb.getLink("storagelink");
         } catch (EntityBuildingException ex) {
             //cool
@@ -186,6 +209,7 @@ public class EntityBuilderTest {
         try {
             Action ac = new Action(new URI("http://different.uri.same/term/infrastructure/network/action#"), "up", "Activate network", null);
             model.addAction(ac);
+            eb.refresh();
             eb.getActionInstance("up");
         } catch (EntityBuildingException ex) {
             //cool
@@ -428,4 +452,76 @@ public class EntityBuilderTest {
         assertEquals(IPNetworkInterface.getDefaultMixin(), iPNetworkInterface.getMixin(IPNetworkInterface.MIXIN_IDENTIFIER_DEFAULT));
         assertNotNull(iPNetworkInterface.getId());
     }
+
+    @Test
+    public void testGetTemplate() throws Exception {
+        Mixin mixin = model.findMixin(URI.create("http://schemas.ogf.org/occi/infrastructure/network#ipnetwork"));
+        Compute prototype = eb.getCompute();
+        prototype.addMixin(mixin);
+        prototype.setCores(4);
+        prototype.setHostname("prototype");
+
+        EntityTemplate<Compute> template = eb.getTemplate(prototype);
+        Compute first = template.newInstance(Collections.singletonMap(Compute.HOSTNAME_ATTRIBUTE_NAME, "node-1"));
+        Compute second = template.newInstance();
+
+        assertSame(prototype.getKind(), first.getKind());
+        assertSame(model, first.getModel());
+        assertEquals(prototype.getMixins(), first.getMixins());
+        assertEquals("4", first.getCores());
+        assertEquals("node-1", first.getHostname());
+        assertEquals("prototype", second.getHostname());
+        assertNotNull(first.getId());
+        assertFalse(prototype.getId().equals(first.getId()));
+        assertFalse(first.getId().equals(second.getId()));
+
+        prototype.setCores(8);
+        assertEquals("4", template.newInstance().getCores());
+    }
+
+    @Test
+    public void testGetTemplateWithId() throws Exception {
+        EntityTemplate<Storage> template = eb.getTemplate(eb.getStorage());
+        Storage storage = template.newInstance("my-storage", null);
+        assertEquals("my-storage", storage.getId());
+        assertEquals(Storage.class, storage.getClass());
+    }
+
+    @Test
+    public void testGetTemplateWithoutModel() throws Exception {
+        Compute prototype = new Compute("prototype", Compute.getDefaultKind());
+        EntityTemplate<Compute> template = eb.getTemplate(prototype);
+        assertNull(prototype.getModel());
+        assertSame(model, template.newInstance().getModel());
+    }
+
+    @Test
+    public void testInvalidGetTemplate() throws Exception {
+        try {
+            eb.getTemplate(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testSetIdGenerator() throws Exception {
+        eb.setIdGenerator(new CounterIdGenerator("node-"));
+        assertEquals("node-1", eb.getCompute().getId());
+        assertEquals("node-2", eb.getStorage().getId());
+
+        EntityTemplate<Compute> template = eb.getTemplate(eb.getCompute());
+        assertEquals("node-4", template.newInstance().getId());
+    }
+
+    @Test
+    public void testInvalidSetIdGenerator() {
+        try {
+            eb.setIdGenerator(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package cz.cesnet.cloud.occi.api;
+
+import cz.cesnet.cloud.occi.api.exception.EntityBuildingException;
+import cz.cesnet.cloud.occi.core.Attribute;
+import cz.cesnet.cloud.occi.core.Kind;
+import cz.cesnet.cloud.occi.core.Mixin;
+import cz.cesnet.cloud.occi.infrastructure.Compute;
+import java.net.URI;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class EntityTemplateTest {
+
+    private static final String FLAVOR_ATTRIBUTE_NAME = "eu.egi.flavor";
+    private CountingKind kind;
+    private Mixin mixin;
+
+    /**
+     * Kind counting lookups of attribute definitions done when attribute
+     * values are validated.
+     */
+    private static class CountingKind extends Kind {
+
+        private int lookups;
+
+        private CountingKind(Kind kind) {
+            super(kind.getScheme(), kind.getTerm(), kind.getTitle(), kind.getLocation(), kind.getAttributes());
+        }
+
+        @Override
+        public boolean containsAttribute(String name) {
+            lookups++;
+            return super.containsAttribute(name);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        kind = new CountingKind(Compute.getDefaultKind());
+        mixin = new Mixin(URI.create("http://egi.eu/occi/infrastructure#"), "flavor", "flavor", URI.create("/mixin/flavor/"),
+                Collections.singletonList(new Attribute(FLAVOR_ATTRIBUTE_NAME, false, false, "string", "[a-z]+", null, null)));
+    }
+
+    private Compute prototype() throws Exception {
+        Compute prototype = new Compute("prototype", kind);
+        prototype.addMixin(mixin);
+        prototype.setCores(4);
+        prototype.setHostname("prototype");
+        prototype.addAttribute(FLAVOR_ATTRIBUTE_NAME, "small");
+        return prototype;
+    }
+
+    @Test
+    public void testPrototypeValidatedOnce() throws Exception {
+        EntityTemplate<Compute> template = new EntityTemplate<>(prototype());
+
+        kind.lookups = 0;
+        for (int i = 0; i < 100; i++) {
+            Compute compute = template.newInstance();
+            assertSame(kind, compute.getKind());
+            assertEquals("4", compute.getCores());
+            assertEquals("small", compute.getValue(FLAVOR_ATTRIBUTE_NAME));
+        }
+        assertEquals(0, kind.lookups);
+
+        //only instance specific values are validated
+        Compute compute = template.newInstance(Collections.singletonMap(Compute.HOSTNAME_ATTRIBUTE_NAME, "node-1"));
+        int overrideLookups = kind.lookups;
+        kind.lookups = 0;
+        compute.setHostname("node-2");
+        assertEquals(overrideLookups, kind.lookups);
+        assertEquals(prototype().getAttributes().keySet(), template.newInstance().getAttributes().keySet());
+    }
+
+    @Test
+    public void testInvalidInstanceValue() throws Exception {
+        EntityTemplate<Compute> template = new EntityTemplate<>(prototype());
+        try {
+            template.newInstance(Collections.singletonMap(FLAVOR_ATTRIBUTE_NAME, "Large"));
+            fail();
+        } catch (EntityBuildingException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testInvalidPrototypeValue() throws Exception {
+        Compute prototype = new Compute("prototype", kind);
+        //not validated, the mixin defining the attribute is added later
+        prototype.addAttribute(FLAVOR_ATTRIBUTE_NAME, "Large");
+        prototype.addMixin(mixin);
+        try {
+            new EntityTemplate<>(prototype);
+            fail();
+        } catch (EntityBuildingException ex) {
+            assertTrue(ex.getMessage().contains("Large"));
+        }
+    }
+}
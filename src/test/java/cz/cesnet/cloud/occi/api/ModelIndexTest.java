@@ -0,0 +1,109 @@
+package cz.cesnet.cloud.occi.api;
+
+import cz.cesnet.cloud.occi.DataGenerator;
+import cz.cesnet.cloud.occi.Model;
+import cz.cesnet.cloud.occi.core.Action;
+import cz.cesnet.cloud.occi.core.Kind;
+import cz.cesnet.cloud.occi.core.Mixin;
+import cz.cesnet.cloud.occi.exception.AmbiguousIdentifierException;
+import cz.cesnet.cloud.occi.infrastructure.Compute;
+import cz.cesnet.cloud.occi.infrastructure.IPNetwork;
+import cz.cesnet.cloud.occi.infrastructure.Network;
+import java.net.URI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ModelIndexTest {
+
+    private Model model;
+    private ModelIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        model = new Model();
+
+        for (Kind kind : DataGenerator.getFiveKinds()) {
+            model.addKind(kind);
+        }
+
+        for (Mixin mixin : DataGenerator.getFiveMixins()) {
+            model.addMixin(mixin);
+        }
+
+        for (Action action : DataGenerator.getFiveActions()) {
+            model.addAction(action);
+        }
+
+        index = new ModelIndex(model);
+    }
+
+    @Test
+    public void testInvalidConstructor() {
+        try {
+            new ModelIndex(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testFindKind() throws Exception {
+        assertEquals(model.findKind("compute"), index.findKind("compute"));
+        assertEquals(model.findKind(URI.create("http://schemas.ogf.org/occi/infrastructure#compute")), index.findKind(URI.create("http://schemas.ogf.org/occi/infrastructure#compute")));
+        assertNull(index.findKind("nonexisting"));
+        assertNull(index.findKind(URI.create("http://nonexisting.org/occi#compute")));
+    }
+
+    @Test
+    public void testFindKindAmbiguous() throws Exception {
+        model.addKind(new Kind(URI.create("http://different.uri.same/term/infrastructure#"), "compute"));
+        index = new ModelIndex(model);
+
+        try {
+            index.findKind("compute");
+            fail();
+        } catch (AmbiguousIdentifierException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testFindKindByClass() throws Exception {
+        assertEquals(model.findKind(URI.create(Compute.KIND_IDENTIFIER_DEFAULT)), index.findKind(Compute.class));
+        assertEquals(Network.getDefaultKind(), index.findKind(Network.class));
+        assertNull(index.findKind(String.class));
+    }
+
+    @Test
+    public void testFindMixin() throws Exception {
+        URI identifier = URI.create("http://schemas.ogf.org/occi/infrastructure/network#ipnetwork");
+        assertEquals(model.findMixin(identifier), index.findMixin(identifier));
+        assertEquals(model.findMixin(identifier), index.findMixin(IPNetwork.class));
+        assertNull(index.findMixin(URI.create("http://nonexisting.org/occi#mixin")));
+    }
+
+    @Test
+    public void testFindAction() throws Exception {
+        for (Action action : model.getActions()) {
+            assertEquals(action, index.findAction(URI.create(action.getIdentifier())));
+        }
+        assertNull(index.findAction("nonexisting"));
+    }
+
+    @Test
+    public void testIsCurrent() throws Exception {
+        assertTrue(index.isCurrent());
+        model.addKind(new Kind(URI.create("http://different.uri.same/term/infrastructure#"), "storage"));
+        assertFalse(index.isCurrent());
+    }
+}
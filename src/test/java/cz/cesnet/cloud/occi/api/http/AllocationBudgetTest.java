@@ -0,0 +1,199 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.Model;
+import cz.cesnet.cloud.occi.api.EntityBuilder;
+import cz.cesnet.cloud.occi.api.http.replay.ExchangeArchive;
+import cz.cesnet.cloud.occi.api.http.replay.RecordingTransport;
+import cz.cesnet.cloud.occi.api.http.replay.ReplayTransport;
+import cz.cesnet.cloud.occi.core.ActionInstance;
+import cz.cesnet.cloud.occi.core.Resource;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guards bytes allocated by core operations. Responses of the fixtures are
+ * recorded once and replayed in-process, so only the client's own allocations
+ * on the calling thread are measured. Budgets were measured on JDK 17 and have
+ * headroom for differences between newer JVMs, a failure means the
+ * allocations grew considerably. Skipped on JVMs without per-thread allocation
+ * counters and on JDK 8 and older, which lack compact strings and allocate
+ * about twice as much for every string.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class AllocationBudgetTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AllocationBudgetTest.class);
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 200;
+    private static final URI COMPUTE = URI.create("http://rocci-server-1-1-x.herokuapp.com:80/compute/9b36c234-7e4a-400d-bab8-58dead9e0ef8");
+    private static final URI TRIGGERED_COMPUTE = URI.create("http://rocci-server-1-1-x.herokuapp.com:80/compute/29b814ad-c5b2-4bc4-888b-470f769a2930");
+    //bytes per call, about 1.5 times the allocations measured on JDK 17
+    private static final long LIST_BUDGET = 38 * 1024;
+    private static final long DESCRIBE_BUDGET = 300 * 1024;
+    //includes rendering of the body, which is rendered before the request is executed
+    private static final long CREATE_BUDGET = 38 * 1024;
+    private static final long TRIGGER_BUDGET = 5 * 1024;
+    private static final long PREPARE_BUDGET = 1024;
+    private static final long BUILD_BUDGET = 1536;
+    private static com.sun.management.ThreadMXBean threads;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    private HTTPClient client;
+    private Model model;
+
+    private interface Operation {
+
+        void run() throws Exception;
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+        //versions before 9 are reported as 1.x
+        Assume.assumeTrue(!System.getProperty("java.specification.version").startsWith("1."));
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        if (!threads.isThreadAllocatedMemoryEnabled()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ExchangeArchive archive = new ExchangeArchive();
+        HTTPClient recording = new HTTPClient(URI.create("http://localhost:8123"), null, MediaType.TEXT_PLAIN, false);
+        recording.setTransport(new RecordingTransport(archive));
+        recording.connect();
+        model = recording.getModel();
+        recording.list("compute");
+        recording.describe(COMPUTE);
+        recording.create(createCompute());
+        recording.trigger(TRIGGERED_COMPUTE, new EntityBuilder(model).getActionInstance("start"));
+        recording.close();
+
+        ReplayTransport transport = new ReplayTransport(archive);
+        transport.setLatencyScale(0);
+        client = new HTTPClient(URI.create("http://localhost:8123"), null, MediaType.TEXT_PLAIN, false);
+        client.setTransport(transport);
+        client.connect();
+        client.getModel();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    private Resource createCompute() throws Exception {
+        Resource resource = new EntityBuilder(model).getResource("compute");
+        resource.setId("157754bb-af01-40be-853a-6a1f1b5ac500");
+        resource.addMixin(model.findMixin("debian6", "os_tpl"));
+        resource.addMixin(model.findMixin("small"));
+        return resource;
+    }
+
+    private static long allocatedPerCall(Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - start) / ITERATIONS;
+    }
+
+    private static void assertWithinBudget(String name, long budget, Operation operation) throws Exception {
+        long allocated = allocatedPerCall(operation);
+        LOGGER.info("{} allocates {} bytes per call, budget is {}", name, allocated, budget);
+        assertTrue(name + " allocates " + allocated + " bytes per call, budget is " + budget, allocated <= budget);
+    }
+
+    @Test
+    public void testList() throws Exception {
+        assertWithinBudget("list", LIST_BUDGET, new Operation() {
+
+            @Override
+            public void run() throws Exception {
+                client.list("compute");
+            }
+        });
+    }
+
+    @Test
+    public void testDescribe() throws Exception {
+        assertWithinBudget("describe", DESCRIBE_BUDGET, new Operation() {
+
+            @Override
+            public void run() throws Exception {
+                client.describe(COMPUTE);
+            }
+        });
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        final Resource resource = createCompute();
+        assertWithinBudget("create", CREATE_BUDGET, new Operation() {
+
+            @Override
+            public void run() throws Exception {
+                client.create(resource);
+            }
+        });
+    }
+
+    @Test
+    public void testTrigger() throws Exception {
+        final ActionInstance action = new EntityBuilder(model).getActionInstance("start");
+        assertWithinBudget("trigger", TRIGGER_BUDGET, new Operation() {
+
+            @Override
+            public void run() throws Exception {
+                client.trigger(TRIGGERED_COMPUTE, action);
+            }
+        });
+    }
+
+    @Test
+    public void testPrepareRequest() throws Exception {
+        final HTTPConnection connection = new HTTPConnection();
+        connection.setMediaType(MediaType.TEXT_PLAIN);
+        assertWithinBudget("HTTPHelper.prepareGet", PREPARE_BUDGET, new Operation() {
+
+            @Override
+            public void run() throws Exception {
+                HTTPHelper.prepareGet(COMPUTE, connection.getHeaders(), connection.getPrefix());
+            }
+        });
+    }
+
+    @Test
+    public void testBuildEntity() throws Exception {
+        final EntityBuilder builder = new EntityBuilder(model);
+        assertWithinBudget("EntityBuilder.getCompute", BUILD_BUDGET, new Operation() {
+
+            @Override
+            public void run() throws Exception {
+                builder.getCompute();
+            }
+        });
+    }
+}
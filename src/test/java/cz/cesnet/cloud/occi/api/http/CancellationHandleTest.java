@@ -0,0 +1,79 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import org.apache.http.client.methods.HttpGet;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class CancellationHandleTest {
+
+    @Test
+    public void testCancel() throws Exception {
+        CancellationHandle handle = new CancellationHandle();
+        HttpGet registered = new HttpGet("http://localhost:8123/compute/");
+        HttpGet unregistered = new HttpGet("http://localhost:8123/storage/");
+        handle.register(registered);
+        handle.register(unregistered);
+        handle.unregister(unregistered);
+        handle.check();
+        assertFalse(handle.isCancelled());
+
+        handle.cancel();
+        assertTrue(handle.isCancelled());
+        assertTrue(registered.isAborted());
+        assertFalse(unregistered.isAborted());
+        //second cancel does nothing
+        handle.cancel();
+    }
+
+    @Test
+    public void testRegisterAfterCancel() {
+        CancellationHandle handle = new CancellationHandle();
+        handle.cancel();
+        HttpGet request = new HttpGet("http://localhost:8123/compute/");
+        try {
+            handle.register(request);
+            fail();
+        } catch (OperationCancelledException ex) {
+            //cool
+        }
+
+        try {
+            handle.check();
+            fail();
+        } catch (OperationCancelledException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testEnterAndExit() {
+        CancellationHandle outer = new CancellationHandle();
+        CancellationHandle inner = new CancellationHandle();
+        assertNull(CancellationHandle.enter(outer));
+        assertSame(outer, CancellationHandle.enter(inner));
+        assertSame(inner, CancellationHandle.current());
+        CancellationHandle.exit(outer);
+        assertSame(outer, CancellationHandle.current());
+        CancellationHandle.exit(null);
+        assertNull(CancellationHandle.current());
+    }
+
+    @Test
+    public void testEnterWithNull() {
+        try {
+            CancellationHandle.enter(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+}
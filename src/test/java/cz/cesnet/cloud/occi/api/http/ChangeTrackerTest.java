@@ -0,0 +1,124 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.net.URI;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ChangeTrackerTest {
+
+    private HTTPClient client;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    @Before
+    public void setUp() throws Exception {
+        client = new HTTPClient(URI.create("http://localhost:8123"), null, MediaType.TEXT_PLAIN, false);
+        client.connect();
+    }
+
+    private void stubList(String... ids) {
+        StringBuilder body = new StringBuilder();
+        for (String id : ids) {
+            body.append("X-OCCI-Location: http://localhost:8123/compute/").append(id).append("\n");
+        }
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("Accept", equalTo("text/plain"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withBody(body.toString())));
+    }
+
+    private void stubCompute(String id, int cores, String etag) {
+        String body = "Category: compute;scheme=\"http://schemas.ogf.org/occi/infrastructure#\";class=\"kind\";location=\"/compute/\";title=\"compute resource\"\n"
+                + "X-OCCI-Attribute: occi.core.id=\"" + id + "\"\n"
+                + "X-OCCI-Attribute: occi.compute.cores=" + cores + "\n";
+        if (etag == null) {
+            wireMockRule.stubFor(get(urlEqualTo("/compute/" + id)).withHeader("Accept", equalTo("text/plain"))
+                    .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withBody(body)));
+        } else {
+            wireMockRule.stubFor(get(urlEqualTo("/compute/" + id)).withHeader("Accept", equalTo("text/plain"))
+                    .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withHeader("ETag", etag).withBody(body)));
+            wireMockRule.stubFor(get(urlEqualTo("/compute/" + id)).withHeader("If-None-Match", equalTo(etag))
+                    .willReturn(aResponse().withStatus(304).withHeader("ETag", etag)));
+        }
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        stubList("a", "b");
+        stubCompute("a", 1, "\"v1\"");
+        stubCompute("b", 1, null);
+
+        ChangeTracker tracker = new ChangeTracker(client, "compute");
+        Delta delta = tracker.sync();
+        assertEquals(2, delta.getAdded().size());
+        assertTrue(delta.getChanged().isEmpty());
+        assertTrue(delta.getRemoved().isEmpty());
+        assertEquals(2, tracker.getSnapshot().size());
+
+        delta = tracker.sync();
+        assertTrue(delta.isEmpty());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/compute/a")).withHeader("If-None-Match", equalTo("\"v1\"")));
+
+        stubCompute("b", 2, null);
+        delta = tracker.sync();
+        assertTrue(delta.getAdded().isEmpty());
+        assertEquals(1, delta.getChanged().size());
+        assertEquals("b", delta.getChanged().get(0).getId());
+        assertTrue(delta.getRemoved().isEmpty());
+
+        stubList("a", "c");
+        stubCompute("c", 1, null);
+        delta = tracker.sync();
+        assertEquals(1, delta.getAdded().size());
+        assertEquals("c", delta.getAdded().get(0).getId());
+        assertTrue(delta.getChanged().isEmpty());
+        assertEquals(Arrays.asList(URI.create("http://localhost:8123/compute/b")), delta.getRemoved());
+
+        tracker.reset();
+        assertEquals(2, tracker.sync().getAdded().size());
+    }
+
+    @Test
+    public void testSyncWithMissingLocation() throws Exception {
+        stubList("a", "d");
+        stubCompute("a", 1, null);
+        wireMockRule.stubFor(get(urlEqualTo("/compute/d")).willReturn(aResponse().withStatus(404)));
+
+        ChangeTracker tracker = new ChangeTracker(client, "compute");
+        Delta delta = tracker.sync();
+        assertEquals(1, delta.getAdded().size());
+        assertEquals(1, tracker.getSnapshot().size());
+    }
+
+    @Test
+    public void testInvalidConstructor() {
+        try {
+            new ChangeTracker(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+
+        try {
+            new ChangeTracker(client, (String) null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+}
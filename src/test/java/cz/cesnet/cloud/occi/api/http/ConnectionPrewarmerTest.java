@@ -0,0 +1,80 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.api.Client;
+import java.net.URI;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ConnectionPrewarmerTest {
+
+    private static final HttpHost TARGET = new HttpHost("localhost", 8123, "http");
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    @Test
+    public void testRoute() {
+        HttpRoute route = ConnectionPrewarmer.route(new HttpHost("remote.server.net", -1, "https"));
+        assertEquals(443, route.getTargetHost().getPort());
+        assertTrue(route.isSecure());
+
+        route = ConnectionPrewarmer.route(new HttpHost("remote.server.net", -1, "http"));
+        assertEquals(80, route.getTargetHost().getPort());
+        assertEquals(route, ConnectionPrewarmer.route(new HttpHost("remote.server.net", 80, "http")));
+    }
+
+    @Test
+    public void testPrewarm() throws Exception {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setDefaultMaxPerRoute(4);
+        HttpClientContext context = HttpClientContext.create();
+        HttpRoute route = ConnectionPrewarmer.route(TARGET);
+
+        assertEquals(4, new ConnectionPrewarmer(manager, context, 10000).prewarm(TARGET, 4));
+        assertEquals(4, manager.getStats(route).getAvailable());
+        assertEquals(0, manager.getStats(route).getLeased());
+
+        //requests use pre-warmed connections
+        try (CloseableHttpClient client = HttpClients.custom().setConnectionManager(manager).build()) {
+            try (CloseableHttpResponse response = client.execute(TARGET, HTTPHelper.prepareGet(URI.create(Client.MODEL_URI)), context)) {
+                EntityUtils.consume(response.getEntity());
+            }
+            assertEquals(4, manager.getStats(route).getAvailable());
+        }
+    }
+
+    @Test
+    public void testPrewarmSmallPool() throws Exception {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setDefaultMaxPerRoute(2);
+
+        assertEquals(2, new ConnectionPrewarmer(manager, HttpClientContext.create(), 100).prewarm(TARGET, 3));
+        assertEquals(2, manager.getStats(ConnectionPrewarmer.route(TARGET)).getAvailable());
+        manager.shutdown();
+    }
+
+    @Test
+    public void testPrewarmUnreachable() throws Exception {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        HttpHost target = new HttpHost("localhost", 8124, "http");
+
+        assertEquals(0, new ConnectionPrewarmer(manager, HttpClientContext.create(), 1000).prewarm(target, 2));
+        assertEquals(0, manager.getStats(ConnectionPrewarmer.route(target)).getAvailable());
+        manager.shutdown();
+    }
+}
@@ -1,9 +1,23 @@
 package cz.cesnet.cloud.occi.api.http;
 
+import com.github.tomakehurst.wiremock.client.RequestPatternBuilder;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import cz.cesnet.cloud.occi.Model;
+import cz.cesnet.cloud.occi.api.Client;
+import cz.cesnet.cloud.occi.api.CompactLocationList;
+import cz.cesnet.cloud.occi.api.Deadline;
 import cz.cesnet.cloud.occi.api.EntityBuilder;
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
 import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
 import cz.cesnet.cloud.occi.api.http.auth.BasicAuthentication;
 import cz.cesnet.cloud.occi.api.http.auth.NoAuthentication;
 import cz.cesnet.cloud.occi.core.ActionInstance;
@@ -24,13 +38,19 @@ import cz.cesnet.cloud.occi.infrastructure.enumeration.StorageState;
 import cz.cesnet.cloud.occi.parser.MediaType;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Set;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import org.apache.http.message.BasicHeader;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.Rule;
@@ -97,6 +117,134 @@ public class HTTPClientTest {
         assertTrue(client.isConnected());
     }
 
+    @Test
+    public void testLazyModelLoading() throws Exception {
+        client.setModelLoading(ModelLoading.LAZY);
+        client.connect();
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+
+        client.list();
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+
+        assertNotNull(client.getModel());
+        assertNotNull(client.getModel());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+    }
+
+    @Test
+    public void testEagerModelLoading() throws Exception {
+        assertEquals(ModelLoading.EAGER, client.getModelLoading());
+        client.connect();
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+
+        assertNotNull(client.getModel());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+    }
+
+    @Test
+    public void testFailedModelLoading() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo(Client.MODEL_URI)).willReturn(aResponse().withStatus(500)));
+        try {
+            client.connect();
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+
+        client.setModelLoading(ModelLoading.LAZY);
+        client.connect();
+        assertEquals(listOfAll(), client.list());
+        assertNull(client.getModel());
+        try {
+            client.list("compute");
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+
+        wireMockRule.resetToDefaultMappings();
+        assertEquals(listOfComputes(), client.list("compute"));
+        assertNotNull(client.getModel());
+    }
+
+    @Test
+    public void testAuthenticationModelLoading() throws Exception {
+        client.setModelLoading(ModelLoading.AUTHENTICATION);
+        client.connect();
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+        wireMockRule.verify(0, new RequestPatternBuilder(RequestMethod.HEAD, urlEqualTo(Client.MODEL_URI)));
+
+        assertNotNull(client.getModel());
+        assertEquals(listOfComputes(), client.list("compute"));
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+    }
+
+    @Test
+    public void testInvalidAuthenticationModelLoading() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo(Client.MODEL_URI)).willReturn(aResponse().withStatus(401)));
+        client.setModelLoading(ModelLoading.AUTHENTICATION);
+        try {
+            client.connect();
+            fail();
+        } catch (AuthenticationException ex) {
+            //cool
+        }
+        assertFalse(client.isConnected());
+    }
+
+    @Test
+    public void testPrewarmedConnections() throws Exception {
+        client.setPrewarmedConnections(4);
+        client.connect();
+
+        assertEquals(listOfComputes(), client.list("compute"));
+        try {
+            client.setPrewarmedConnections(-1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testBackgroundModelLoading() throws Exception {
+        client.setModelLoading(ModelLoading.BACKGROUND);
+        client.connect();
+
+        assertEquals(listOfComputes(), client.list("compute"));
+        assertNotNull(client.getModel());
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+    }
+
+    @Test
+    public void testConcurrentModelLoading() throws Exception {
+        client.setModelLoading(ModelLoading.LAZY);
+        client.connect();
+
+        final List<Model> models = Collections.synchronizedList(new ArrayList<Model>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    models.add(client.getModel());
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8, models.size());
+        for (Model model : models) {
+            assertTrue(model == models.get(0));
+        }
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo(Client.MODEL_URI)));
+    }
+
     @Test
     public void testList() throws Exception {
         List<URI> list = listOfAll();
@@ -117,6 +265,272 @@ public class HTTPClientTest {
         assertEquals(list, client.list("compute"));
     }
 
+    @Test
+    public void testListWithCompactLocations() throws Exception {
+        List<URI> list = listOfComputes();
+        client.connect();
+
+        List<URI> locations = client.list("compute");
+        assertFalse(client.isCompactLocations());
+        assertFalse(locations instanceof CompactLocationList);
+        locations.add(URI.create("http://localhost:8123/compute/new"));
+
+        client.setCompactLocations(true);
+        locations = client.list("compute");
+        assertTrue(locations instanceof CompactLocationList);
+        assertEquals(list, locations);
+        try {
+            locations.add(URI.create("http://localhost:8123/compute/new"));
+            fail();
+        } catch (UnsupportedOperationException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testListWithResponseLimits() throws Exception {
+        List<URI> list = listOfComputes();
+        client.connect();
+
+        client.setResponseSpillThreshold(0);
+        assertEquals(list, client.list("compute"));
+
+        client.setMaxResponseSize(10);
+        try {
+            client.list("compute");
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testListWithRequestLimiter() throws Exception {
+        List<URI> list = listOfComputes();
+        client.connect();
+        client.setRequestLimiter(new RequestLimiter(0, 1, 1, 0, TimeUnit.SECONDS));
+
+        assertEquals(list, client.list("compute"));
+        assertEquals(list, client.list("compute"));
+        assertTrue(client.delete("network"));
+        assertTrue(client.delete("network"));
+    }
+
+    @Test
+    public void testConcurrentListWithRequestCoalescing() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("Accept", equalTo("text/plain"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withFixedDelay(500)
+                        .withBody("X-OCCI-Location: http://localhost:8123/compute/a\n")));
+        client.connect();
+        client.getModel();
+        client.setRequestCoalescing(true);
+        assertTrue(client.isRequestCoalescing());
+
+        final List<List<URI>> results = Collections.synchronizedList(new ArrayList<List<URI>>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        results.add(client.list("compute"));
+                    } catch (CommunicationException ex) {
+                        //results will be incomplete
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8, results.size());
+        for (List<URI> result : results) {
+            assertTrue(result == results.get(0));
+        }
+        wireMockRule.verify(1, getRequestedFor(urlEqualTo("/compute/")));
+
+        //finished requests are not cached
+        client.list("compute");
+        wireMockRule.verify(2, getRequestedFor(urlEqualTo("/compute/")));
+        client.setRequestCoalescing(false);
+        assertFalse(client.isRequestCoalescing());
+    }
+
+    @Test
+    public void testListWithDeadline() throws Exception {
+        client.connect();
+        assertEquals(listOfComputes(), client.list("compute", Deadline.after(10, TimeUnit.SECONDS)));
+
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("Accept", equalTo("text/plain"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withFixedDelay(3000)
+                        .withBody("X-OCCI-Location: http://localhost:8123/compute/a\n")));
+        long start = System.currentTimeMillis();
+        try {
+            client.list("compute", Deadline.after(300, TimeUnit.MILLISECONDS));
+            fail();
+        } catch (DeadlineExceededException ex) {
+            //cool
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    @Test
+    public void testDescribeWithExpiredDeadline() throws Exception {
+        client.connect();
+        client.getModel();
+        try {
+            client.describe("compute", Deadline.after(0, TimeUnit.SECONDS));
+            fail();
+        } catch (DeadlineExceededException ex) {
+            //cool
+        }
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo("/compute/")));
+
+        //deadline doesn't outlive the call
+        assertFalse(client.describe("compute").isEmpty());
+    }
+
+    @Test
+    public void testCancelledDescribe() throws Exception {
+        client.connect();
+        client.getModel();
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("Accept", equalTo("text/plain"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withFixedDelay(3000)
+                        .withBody("X-OCCI-Location: http://localhost:8123/compute/a\n")));
+
+        final CancellationHandle handle = new CancellationHandle();
+        Thread canceller = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                handle.cancel();
+            }
+        };
+        long start = System.currentTimeMillis();
+        canceller.start();
+        try {
+            client.describe("compute", handle);
+            fail();
+        } catch (OperationCancelledException ex) {
+            //cool
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertTrue(handle.isCancelled());
+        canceller.join();
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo("/compute/a")));
+    }
+
+    @Test
+    public void testDescribeWithCancelledHandle() throws Exception {
+        client.connect();
+        client.getModel();
+        CancellationHandle handle = new CancellationHandle();
+        handle.cancel();
+        try {
+            client.describe("compute", handle);
+            fail();
+        } catch (OperationCancelledException ex) {
+            //cool
+        }
+        wireMockRule.verify(0, getRequestedFor(urlEqualTo("/compute/")));
+
+        //handle doesn't outlive the call
+        assertFalse(client.describe("compute").isEmpty());
+    }
+
+    @Test
+    public void testReauthentication() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("X-Auth-Token", equalTo("expired"))
+                .willReturn(aResponse().withStatus(401).withFixedDelay(200)));
+        final TokenAuthentication auth = new TokenAuthentication();
+        final HTTPClient client = new HTTPClient(URI.create("http://localhost:8123"), auth, MediaType.TEXT_PLAIN, false);
+        client.connect();
+        client.getModel();
+        assertTrue(client.isReauthenticationEnabled());
+
+        final List<List<URI>> results = Collections.synchronizedList(new ArrayList<List<URI>>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        results.add(client.list("compute"));
+                    } catch (CommunicationException ex) {
+                        //results will be incomplete
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //all rejected requests were replayed after a single renewal
+        assertEquals(8, results.size());
+        for (List<URI> result : results) {
+            assertEquals(listOfComputes(), result);
+        }
+        assertEquals(1, auth.renewals.get());
+    }
+
+    @Test
+    public void testDisabledReauthentication() throws Exception {
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("X-Auth-Token", equalTo("expired"))
+                .willReturn(aResponse().withStatus(401)));
+        TokenAuthentication auth = new TokenAuthentication();
+        HTTPClient client = new HTTPClient(URI.create("http://localhost:8123"), auth, MediaType.TEXT_PLAIN, false);
+        client.setReauthenticationEnabled(false);
+        client.connect();
+        client.getModel();
+        try {
+            client.list("compute");
+            fail();
+        } catch (AuthenticationException ex) {
+            //cool
+        }
+        assertEquals(0, auth.renewals.get());
+    }
+
+    @Test
+    public void testDeleteWithReauthentication() throws Exception {
+        wireMockRule.stubFor(delete(urlEqualTo("/network/")).withHeader("X-Auth-Token", equalTo("expired"))
+                .willReturn(aResponse().withStatus(401)));
+        TokenAuthentication auth = new TokenAuthentication();
+        HTTPClient client = new HTTPClient(URI.create("http://localhost:8123"), auth, MediaType.TEXT_PLAIN, false);
+        client.connect();
+        assertTrue(client.delete("network"));
+        assertEquals(1, auth.renewals.get());
+    }
+
+    @Test
+    public void testRejectedDelete() throws Exception {
+        wireMockRule.stubFor(delete(urlEqualTo("/network/")).willReturn(aResponse().withStatus(401)));
+        TokenAuthentication auth = new TokenAuthentication();
+        HTTPClient client = new HTTPClient(URI.create("http://localhost:8123"), auth, MediaType.TEXT_PLAIN, false);
+        client.connect();
+
+        //rejected even with renewed credentials
+        assertFalse(client.delete("network"));
+        assertEquals(1, auth.renewals.get());
+
+        client.setReauthenticationEnabled(false);
+        assertFalse(client.delete("network"));
+        assertEquals(1, auth.renewals.get());
+    }
+
     @Test
     public void testInvalidListWithString() throws Exception {
         client.connect();
@@ -646,4 +1060,22 @@ public class HTTPClientTest {
         client.refresh();
         assertFalse(model.equals(client.getModel()));
     }
+
+    private static class TokenAuthentication extends NoAuthentication {
+
+        private final AtomicInteger renewals = new AtomicInteger();
+
+        @Override
+        public void authenticate() throws CommunicationException {
+            super.authenticate();
+            getConnection().addHeader(new BasicHeader("X-Auth-Token", "expired"));
+        }
+
+        @Override
+        public void renew() throws CommunicationException {
+            super.renew();
+            renewals.incrementAndGet();
+            getConnection().addHeader(new BasicHeader("X-Auth-Token", "valid"));
+        }
+    }
 }
@@ -10,6 +10,7 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicHeader;
@@ -260,4 +261,18 @@ public class HTTPHelperTest {
         isOk = HTTPHelper.runRequestForStatus(httpRequest, target, client, context);
         assertFalse(isOk);
     }
+
+    @Test
+    public void testReadErrorBody() throws Exception {
+        assertEquals("", HTTPHelper.readErrorBody(null));
+        assertEquals("error", HTTPHelper.readErrorBody(new StringEntity("error")));
+
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() <= HTTPHelper.ERROR_BODY_LIMIT) {
+            sb.append("error ");
+        }
+        String body = HTTPHelper.readErrorBody(new StringEntity(sb.toString()));
+        assertTrue(body.startsWith(sb.substring(0, HTTPHelper.ERROR_BODY_LIMIT)));
+        assertTrue(body.endsWith("(truncated)"));
+    }
 }
@@ -0,0 +1,120 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.infrastructure.Compute;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class InventoryMirrorTest {
+
+    private static final String OS_TPL = "http://occi.example.org/occi/infrastructure/os_tpl#debian6";
+    private HTTPClient client;
+    private InventoryMirror mirror;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    @Before
+    public void setUp() throws Exception {
+        client = new HTTPClient(URI.create("http://localhost:8123"), null, MediaType.TEXT_PLAIN, false);
+        client.connect();
+        mirror = new InventoryMirror(client, "compute", Arrays.asList(Compute.STATE_ATTRIBUTE_NAME, Compute.HOSTNAME_ATTRIBUTE_NAME));
+    }
+
+    private void stubList(String... ids) {
+        StringBuilder body = new StringBuilder();
+        for (String id : ids) {
+            body.append("X-OCCI-Location: http://localhost:8123/compute/").append(id).append("\n");
+        }
+        wireMockRule.stubFor(get(urlEqualTo("/compute/")).withHeader("Accept", equalTo("text/plain"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withBody(body.toString())));
+    }
+
+    private void stubCompute(String id, String state, boolean withMixin) {
+        String body = "Category: compute;scheme=\"http://schemas.ogf.org/occi/infrastructure#\";class=\"kind\";location=\"/compute/\";title=\"compute resource\"\n"
+                + (withMixin ? "Category: debian6;scheme=\"http://occi.example.org/occi/infrastructure/os_tpl#\";class=\"mixin\";location=\"/mixin/os_tpl/debian6/\";title=\"debian\"\n" : "")
+                + "X-OCCI-Attribute: occi.core.id=\"" + id + "\"\n"
+                + "X-OCCI-Attribute: occi.compute.hostname=\"host-" + id + "\"\n"
+                + "X-OCCI-Attribute: occi.compute.state=\"" + state + "\"\n";
+        wireMockRule.stubFor(get(urlEqualTo("/compute/" + id)).withHeader("Accept", equalTo("text/plain"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "text/plain").withBody(body)));
+    }
+
+    @Test
+    public void testSync() throws Exception {
+        stubList("a", "b", "c");
+        stubCompute("a", "active", true);
+        stubCompute("b", "inactive", false);
+        stubCompute("c", "inactive", true);
+        mirror.sync();
+
+        assertEquals(3, mirror.size());
+        assertEquals(3, mirror.getEntities().size());
+        assertEquals(3, mirror.findByKind(Compute.KIND_IDENTIFIER_DEFAULT).size());
+        assertEquals(2, mirror.findByMixin(OS_TPL).size());
+        assertEquals(2, mirror.findByAttribute(Compute.STATE_ATTRIBUTE_NAME, "inactive").size());
+        assertEquals(1, mirror.findByAttribute(Compute.HOSTNAME_ATTRIBUTE_NAME, "host-a").size());
+        assertEquals(2, mirror.findByAttribute(Compute.KIND_IDENTIFIER_DEFAULT, Compute.STATE_ATTRIBUTE_NAME, "inactive").size());
+        assertTrue(mirror.findByAttribute("http://nonexisting.org/occi#kind", Compute.STATE_ATTRIBUTE_NAME, "inactive").isEmpty());
+        assertEquals("b", mirror.findByLocation(URI.create("http://localhost:8123/compute/b")).get(0).getId());
+        assertTrue(mirror.getLastSyncTime() > 0);
+
+        stubList("a", "b");
+        stubCompute("b", "active", false);
+        mirror.sync();
+
+        assertEquals(2, mirror.size());
+        assertEquals(2, mirror.findByAttribute(Compute.STATE_ATTRIBUTE_NAME, "active").size());
+        assertTrue(mirror.findByAttribute(Compute.STATE_ATTRIBUTE_NAME, "inactive").isEmpty());
+        assertEquals(1, mirror.findByMixin(OS_TPL).size());
+        assertTrue(mirror.findByLocation(URI.create("http://localhost:8123/compute/c")).isEmpty());
+    }
+
+    @Test
+    public void testStart() throws Exception {
+        stubList("a");
+        stubCompute("a", "active", false);
+        mirror.start(1, TimeUnit.HOURS);
+        try {
+            for (int i = 0; i < 100 && mirror.getLastSyncTime() == 0; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, mirror.size());
+
+            try {
+                mirror.start(1, TimeUnit.HOURS);
+                fail();
+            } catch (IllegalStateException ex) {
+                //cool
+            }
+        } finally {
+            mirror.stop();
+        }
+    }
+
+    @Test
+    public void testInvalidFindByAttribute() {
+        try {
+            mirror.findByAttribute("occi.compute.cores", "1");
+            fail();
+        } catch (IllegalArgumentException ex) {
+            //cool
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.Deadline;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RequestCoalescerTest {
+
+    private static final String KEY = "GET /compute/";
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+    private CountDownLatch started;
+    private CountDownLatch release;
+    private AtomicInteger calls;
+    private AtomicReference<CancellationHandle> handle;
+    private Callable<String> call;
+
+    @Before
+    public void setUp() {
+        coalescer = new RequestCoalescer();
+        executor = Executors.newCachedThreadPool();
+        started = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        calls = new AtomicInteger();
+        handle = new AtomicReference<>();
+        call = new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+                calls.incrementAndGet();
+                handle.set(CancellationHandle.current());
+                started.countDown();
+                while (!release.await(10, TimeUnit.MILLISECONDS)) {
+                    CancellationHandle.current().check();
+                }
+                return "result";
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    private Future<String> submit(final Deadline deadline, final CancellationHandle cancellation) {
+        return executor.submit(new Callable<String>() {
+
+            @Override
+            public String call() throws Exception {
+                Deadline previousDeadline = deadline == null ? null : RequestDeadlines.enter(deadline);
+                CancellationHandle previousHandle = cancellation == null ? null : CancellationHandle.enter(cancellation);
+                try {
+                    return coalescer.execute(KEY, call);
+                } finally {
+                    if (cancellation != null) {
+                        CancellationHandle.exit(previousHandle);
+                    }
+                    if (deadline != null) {
+                        RequestDeadlines.exit(previousDeadline);
+                    }
+                }
+            }
+        });
+    }
+
+    private void assertFailure(Future<String> future, Class<?> type) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause().toString(), type.isInstance(ex.getCause()));
+        }
+    }
+
+    @Test
+    public void testLeaderDeadline() throws Exception {
+        Future<String> leader = submit(Deadline.after(200, TimeUnit.MILLISECONDS), null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> follower = submit(null, null);
+
+        assertFailure(leader, DeadlineExceededException.class);
+        release.countDown();
+        assertEquals("result", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testFollowerCancellation() throws Exception {
+        Future<String> leader = submit(null, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CancellationHandle cancellation = new CancellationHandle();
+        Future<String> follower = submit(null, cancellation);
+
+        cancellation.cancel();
+        assertFailure(follower, OperationCancelledException.class);
+        release.countDown();
+        assertEquals("result", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testAbandonedCall() throws Exception {
+        Future<String> caller = submit(Deadline.after(100, TimeUnit.MILLISECONDS), null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFailure(caller, DeadlineExceededException.class);
+        //request of a call nobody waits for is aborted
+        assertTrue(handle.get().isCancelled());
+
+        //next caller starts a new call
+        Future<String> next = submit(null, null);
+        release.countDown();
+        assertEquals("result", next.get(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+    }
+}
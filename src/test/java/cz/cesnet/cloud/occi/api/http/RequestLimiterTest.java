@@ -0,0 +1,176 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.Deadline;
+import cz.cesnet.cloud.occi.api.exception.DeadlineExceededException;
+import cz.cesnet.cloud.occi.api.exception.OperationCancelledException;
+import cz.cesnet.cloud.occi.api.exception.RequestRejectedException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RequestLimiterTest {
+
+    @Test
+    public void testRateLimitReject() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(1, 2, 0, 0, TimeUnit.SECONDS);
+        limiter.acquire();
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail();
+        } catch (RequestRejectedException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testRateLimitBlock() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(20, 1, 0, 1, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+            limiter.release();
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(0, 1, 1, 0, TimeUnit.SECONDS);
+        limiter.acquire();
+        try {
+            limiter.acquire();
+            fail();
+        } catch (RequestRejectedException ex) {
+            //cool
+        }
+        limiter.release();
+        limiter.acquire();
+        limiter.release();
+    }
+
+    private void acquire(RequestLimiter limiter, Deadline deadline) throws Exception {
+        Deadline previous = RequestDeadlines.enter(deadline);
+        try {
+            limiter.acquire();
+        } finally {
+            RequestDeadlines.exit(previous);
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(1, 1, 0, 10, TimeUnit.SECONDS);
+        limiter.acquire();
+        long start = System.nanoTime();
+        try {
+            acquire(limiter, Deadline.after(100, TimeUnit.MILLISECONDS));
+            fail();
+        } catch (DeadlineExceededException ex) {
+            //cool
+        }
+
+        limiter = new RequestLimiter(0, 1, 1, 10, TimeUnit.SECONDS);
+        limiter.acquire();
+        try {
+            acquire(limiter, Deadline.after(100, TimeUnit.MILLISECONDS));
+            fail();
+        } catch (DeadlineExceededException ex) {
+            //cool
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    public void testRefund() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(2, 1, 1, 10, TimeUnit.SECONDS);
+        limiter.acquire();
+        //gets the token after 500ms but not the permit
+        try {
+            acquire(limiter, Deadline.after(700, TimeUnit.MILLISECONDS));
+            fail();
+        } catch (DeadlineExceededException ex) {
+            //cool
+        }
+        limiter.release();
+
+        //without the returned token the next one would be available in 300ms
+        acquire(limiter, Deadline.after(200, TimeUnit.MILLISECONDS));
+        limiter.release();
+    }
+
+    @Test
+    public void testCancellation() throws Exception {
+        RequestLimiter limiter = new RequestLimiter(0.1, 1, 1, 10, TimeUnit.SECONDS);
+        limiter.acquire();
+        limiter.release();
+        final CancellationHandle handle = new CancellationHandle();
+        Thread canceller = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                handle.cancel();
+            }
+        });
+
+        long start = System.nanoTime();
+        canceller.start();
+        CancellationHandle previous = CancellationHandle.enter(handle);
+        try {
+            limiter.acquire();
+            fail();
+        } catch (OperationCancelledException ex) {
+            //cool
+        } finally {
+            CancellationHandle.exit(previous);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        canceller.join();
+
+        limiter = new RequestLimiter(0, 1, 1, 10, TimeUnit.SECONDS);
+        limiter.acquire();
+        previous = CancellationHandle.enter(handle);
+        try {
+            limiter.acquire();
+            fail();
+        } catch (OperationCancelledException ex) {
+            //cool
+        } finally {
+            CancellationHandle.exit(previous);
+        }
+    }
+
+    @Test
+    public void testInvalidConstructor() {
+        try {
+            new RequestLimiter(1, 0, 1, 0, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            //cool
+        }
+
+        try {
+            new RequestLimiter(1, 1, 1, -1, TimeUnit.SECONDS);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            //cool
+        }
+
+        try {
+            new RequestLimiter(1, 1, 1, 0, null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ResponseBodyReaderTest {
+
+    private static final String BODY = "Category: compute; scheme=\"http://schemas.ogf.org/occi/infrastructure#\"; class=\"kind\"; title=\"žluťoučký kůň\"\n";
+
+    private HttpEntity chunkedEntity(String body) {
+        byte[] bytes = body.getBytes(Charset.forName("UTF-8"));
+        return new InputStreamEntity(new ByteArrayInputStream(bytes), -1, ContentType.create("text/plain", "UTF-8"));
+    }
+
+    private String repeat(String text, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(text);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        ResponseBodyReader reader = new ResponseBodyReader(-1, -1);
+        assertEquals("", reader.read(null));
+        assertEquals(BODY, reader.read(new StringEntity(BODY, ContentType.create("text/plain", "UTF-8"))));
+        assertEquals(BODY, reader.read(chunkedEntity(BODY)));
+    }
+
+    @Test
+    public void testReadWithSpill() throws Exception {
+        String body = repeat(BODY, 1000);
+        ResponseBodyReader reader = new ResponseBodyReader(-1, 100);
+        assertEquals(body, reader.read(new StringEntity(body, ContentType.create("text/plain", "UTF-8"))));
+        assertEquals(body, reader.read(chunkedEntity(body)));
+        assertEquals(body, new ResponseBodyReader(-1, 100).read(new StringEntity(body, ContentType.create("text/plain", "ISO-8859-2"))));
+    }
+
+    @Test
+    public void testReadWithSpillHeapPeak() throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        String body = repeat("Location: http://localhost:3000/compute/9b36c234-7e4a-400d-bab8-58dead9e0ef8\n", 50000);
+        byte[] bytes = body.getBytes(Charset.forName("UTF-8"));
+        ResponseBodyReader reader = new ResponseBodyReader(-1, 0);
+        reader.read(new InputStreamEntity(new ByteArrayInputStream(bytes), bytes.length, ContentType.create("text/plain", "UTF-8")));
+
+        //builder and the resulting string are the only allocations
+        //proportional to the body
+        long before = threads.getThreadAllocatedBytes(thread);
+        String copy = new StringBuilder(body).toString();
+        long twoCopies = threads.getThreadAllocatedBytes(thread) - before;
+
+        before = threads.getThreadAllocatedBytes(thread);
+        String read = reader.read(new InputStreamEntity(new ByteArrayInputStream(bytes), bytes.length, ContentType.create("text/plain", "UTF-8")));
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(copy, read);
+        assertTrue("allocated " + allocated + " bytes for body of " + bytes.length + " bytes", allocated < twoCopies * 5 / 4);
+    }
+
+    @Test
+    public void testReadOverLimit() throws Exception {
+        String body = repeat(BODY, 1000);
+        ResponseBodyReader reader = new ResponseBodyReader(1000, 100);
+        try {
+            reader.read(new StringEntity(body));
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+
+        try {
+            reader.read(chunkedEntity(body));
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+
+        try {
+            new ResponseBodyReader(1000, -1).read(chunkedEntity(body));
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import com.github.tomakehurst.wiremock.client.RequestPatternBuilder;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.api.Client;
+import cz.cesnet.cloud.occi.api.http.auth.BasicAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.HTTPAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.NoAuthentication;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.net.URI;
+import java.util.List;
+import org.apache.http.client.protocol.HttpClientContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class SessionRegistryTest {
+
+    private static final URI ENDPOINT = URI.create("http://localhost:8123");
+    private SessionRegistry registry;
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    @Before
+    public void setUp() {
+        registry = new SessionRegistry();
+    }
+
+    private HTTPClient createClient() throws Exception {
+        HTTPClient client = new HTTPClient(ENDPOINT, new NoAuthentication(), MediaType.TEXT_PLAIN, false);
+        client.setSessionRegistry(registry);
+        return client;
+    }
+
+    private void verifyAuthentications(int count) {
+        wireMockRule.verify(count, new RequestPatternBuilder(RequestMethod.HEAD, urlEqualTo(Client.MODEL_URI)));
+    }
+
+    @Test
+    public void testSharedSession() throws Exception {
+        HTTPClient first = createClient();
+        HTTPClient second = createClient();
+        first.connect();
+        second.connect();
+
+        verifyAuthentications(1);
+        assertEquals(1, registry.size());
+        assertEquals(first.list("compute"), second.list("compute"));
+
+        first.close();
+        assertFalse(first.isConnected());
+        assertEquals(1, registry.size());
+        assertFalse(second.list("compute").isEmpty());
+
+        second.close();
+        assertEquals(0, registry.size());
+    }
+
+    private HttpClientContext context(HTTPClient client) {
+        return HttpClientContext.adapt(((HTTPAuthentication) client.getAuthentication()).getConnection().getContext());
+    }
+
+    @Test
+    public void testSeparateContexts() throws Exception {
+        HTTPClient first = createClient();
+        HTTPClient second = createClient();
+        first.connect();
+        second.connect();
+        first.list("compute");
+        second.list("compute");
+
+        //per-request state such as the route or the auth state isn't shared
+        assertNotSame(context(first), context(second));
+        assertNotSame(context(first).getHttpRoute(), context(second).getHttpRoute());
+        assertSame(context(first).getAuthCache(), context(second).getAuthCache());
+        assertSame(context(first).getCookieStore(), context(second).getCookieStore());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testReconnectAfterClose() throws Exception {
+        HTTPClient client = createClient();
+        client.connect();
+        client.close();
+        assertEquals(0, registry.size());
+
+        //client reconnects on demand
+        assertFalse(client.list("compute").isEmpty());
+        assertTrue(client.isConnected());
+        assertEquals(1, registry.size());
+        verifyAuthentications(2);
+        client.close();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testSessionWithoutKey() throws Exception {
+        HTTPClient first = createClient();
+        HTTPClient second = new HTTPClient(ENDPOINT, new NoAuthentication(), MediaType.TEXT_OCCI, false);
+        second.setSessionRegistry(registry);
+        //model is not needed
+        second.setModelLoading(ModelLoading.LAZY);
+        first.connect();
+        second.connect();
+        //media type is not a part of the session
+        assertEquals(1, registry.size());
+
+        HTTPAuthenticationStub auth = new HTTPAuthenticationStub();
+        HTTPClient third = new HTTPClient(ENDPOINT, auth, MediaType.TEXT_PLAIN, false);
+        third.setSessionRegistry(registry);
+        third.connect();
+        //authentication method without session key has private session
+        assertEquals(1, registry.size());
+        verifyAuthentications(2);
+
+        first.close();
+        second.close();
+        third.close();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testSessionKey() {
+        BasicAuthentication auth = new BasicAuthentication("user", "password");
+        assertEquals(auth.getSessionKey(), new BasicAuthentication("user", "password").getSessionKey());
+        assertFalse(auth.getSessionKey().equals(new BasicAuthentication("user", "other").getSessionKey()));
+
+        BasicAuthentication withCA = new BasicAuthentication("user", "password");
+        withCA.setCAPath("/etc/grid-security/certificates/");
+        assertFalse(auth.getSessionKey().equals(withCA.getSessionKey()));
+
+        assertNull(new HTTPAuthenticationStub().getSessionKey());
+    }
+
+    private static class HTTPAuthenticationStub extends NoAuthentication {
+
+        @Override
+        public List<Object> getSessionKey() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package cz.cesnet.cloud.occi.api.http;
+
+import cz.cesnet.cloud.occi.core.Kind;
+import cz.cesnet.cloud.occi.core.Resource;
+import cz.cesnet.cloud.occi.exception.RenderingException;
+import cz.cesnet.cloud.occi.infrastructure.Compute;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class TextRenderingEntityTest {
+
+    private void assertSameAsStringEntity(Resource resource) throws Exception {
+        StringEntity expected = new StringEntity(resource.toText());
+        TextRenderingEntity entity = TextRenderingEntity.forEntity(resource);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        byte[] expectedBytes = EntityUtils.toByteArray(expected);
+        assertArrayEquals(expectedBytes, out.toByteArray());
+        assertEquals(expected.getContentLength(), entity.getContentLength());
+        assertEquals(expected.getContentType().getValue(), entity.getContentType().getValue());
+        assertArrayEquals(expectedBytes, EntityUtils.toByteArray(entity));
+        assertTrue(entity.isRepeatable());
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        Compute compute = new Compute("87f3bfc3-42d4-4474-b45c-757e55e093e9", Compute.getDefaultKind());
+        compute.setHostname("compute1");
+        compute.setCores(2);
+        assertSameAsStringEntity(compute);
+    }
+
+    @Test
+    public void testWriteToLargeAttribute() throws Exception {
+        Resource resource = new Resource("87f3bfc3-42d4-4474-b45c-757e55e093e9", new Kind(URI.create("http://schemas.ogf.org/occi/core#"), "resource"));
+        StringBuilder userData = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            userData.append("line ").append(i).append(" žluťoučký kůň 😀\n");
+        }
+        resource.addAttribute("org.openstack.compute.user_data", userData.toString());
+        assertSameAsStringEntity(resource);
+    }
+
+    private static class CountingEntity extends TextRenderingEntity {
+
+        private final Resource resource;
+        private int renders;
+
+        private CountingEntity(Resource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        protected String render() throws RenderingException {
+            renders++;
+            return resource.toText();
+        }
+    }
+
+    private static String send(TextRenderingEntity entity) throws Exception {
+        //same order as HttpClient, content length is read before the body is written
+        long length = entity.getContentLength();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        assertEquals(length, out.size());
+        return out.toString("ISO-8859-1");
+    }
+
+    @Test
+    public void testRenderedOncePerSend() throws Exception {
+        Compute compute = new Compute("87f3bfc3-42d4-4474-b45c-757e55e093e9", Compute.getDefaultKind());
+        compute.setHostname("compute1");
+        CountingEntity entity = new CountingEntity(compute);
+        entity.prepare();
+        assertEquals(compute.toText(), send(entity));
+        assertEquals(1, entity.renders);
+
+        //rendered text is not kept between sends
+        compute.setHostname("much-longer-hostname");
+        assertEquals(compute.toText(), send(entity));
+        assertEquals(2, entity.renders);
+    }
+
+    @Test
+    public void testRenderingFailure() throws Exception {
+        TextRenderingEntity entity = new TextRenderingEntity() {
+
+            @Override
+            protected String render() throws RenderingException {
+                throw new RenderingException("cannot render");
+            }
+        };
+
+        try {
+            entity.prepare();
+            fail();
+        } catch (RenderingException ex) {
+            //ok
+        }
+        try {
+            entity.getContentLength();
+            fail();
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getCause() instanceof RenderingException);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import java.io.File;
+import java.io.InputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class CADirectoryTrustManagerTest {
+
+    private static File directory(String name) throws Exception {
+        return new File(CADirectoryTrustManagerTest.class.getResource("/certificates/" + name).toURI());
+    }
+
+    private static X509Certificate certificate(String path) throws Exception {
+        try (InputStream in = CADirectoryTrustManagerTest.class.getResourceAsStream("/certificates/" + path)) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(in);
+        }
+    }
+
+    @Test
+    public void testHash() throws Exception {
+        //computed by 'openssl x509 -subject_hash', subject has mixed case and multiple spaces
+        X509Certificate ca = certificate("hashed/b29a2fc5.0");
+        assertEquals("b29a2fc5", CADirectoryTrustManager.hash(ca.getSubjectX500Principal()));
+        assertEquals("b29a2fc5", CADirectoryTrustManager.hash(certificate("chains/server.pem").getIssuerX500Principal()));
+    }
+
+    @Test
+    public void testLazyLoading() throws Exception {
+        CADirectoryTrustManager manager = new CADirectoryTrustManager(directory("hashed"));
+        assertEquals(0, manager.getAcceptedIssuers().length);
+
+        X509Certificate server = certificate("chains/server.pem");
+        manager.checkServerTrusted(new X509Certificate[]{server}, "RSA");
+        assertEquals(1, manager.getAcceptedIssuers().length);
+        assertEquals(server.getIssuerX500Principal(), manager.getAcceptedIssuers()[0].getSubjectX500Principal());
+        //cached
+        manager.checkServerTrusted(new X509Certificate[]{server}, "RSA");
+        assertEquals(1, manager.getAcceptedIssuers().length);
+    }
+
+    @Test
+    public void testUntrustedChain() throws Exception {
+        CADirectoryTrustManager manager = new CADirectoryTrustManager(directory("hashed"));
+        try {
+            manager.checkServerTrusted(new X509Certificate[]{certificate("chains/untrusted.pem")}, "RSA");
+            fail();
+        } catch (CertificateException ex) {
+            //cool
+        }
+
+        manager.checkServerTrusted(new X509Certificate[]{certificate("chains/server.pem")}, "RSA");
+        try {
+            manager.checkServerTrusted(new X509Certificate[]{certificate("chains/untrusted.pem")}, "RSA");
+            fail();
+        } catch (CertificateException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testFallbackScan() throws Exception {
+        //directory without hash links
+        CADirectoryTrustManager manager = new CADirectoryTrustManager(directory("named"));
+        assertTrue(manager.resolve(certificate("chains/server.pem").getIssuerX500Principal()).isEmpty());
+        manager.checkServerTrusted(new X509Certificate[]{certificate("chains/server.pem")}, "RSA");
+        assertEquals(1, manager.getAcceptedIssuers().length);
+    }
+}
@@ -0,0 +1,104 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
+import cz.cesnet.cloud.occi.api.http.HTTPConnection;
+import java.util.List;
+import javax.net.ssl.SSLContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.apache.http.HttpHost;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class HTTPAuthenticationTest {
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    @Test
+    public void testSharedSSLContext() throws Exception {
+        SSLContext context = new BasicAuthentication("user", "password").getSSLContext();
+        assertTrue(context == new BasicAuthentication("user", "password").getSSLContext());
+        //passwords and methods not adding key material don't affect the context
+        assertTrue(context == new BasicAuthentication("user", "other").getSSLContext());
+        assertTrue(context == new DigestAuthentication("user", "password").getSSLContext());
+
+        BasicAuthentication withCA = new BasicAuthentication("user", "password");
+        withCA.setCAPath(System.getProperty("java.io.tmpdir"));
+        assertFalse(context == withCA.getSSLContext());
+    }
+
+    @Test
+    public void testKeysWithoutSecrets() {
+        BasicAuthentication auth = new BasicAuthentication("user", "secret");
+        assertFalse(auth.getSessionKey().toString().contains("secret"));
+        assertFalse(auth.getSSLContextKey().toString().contains("secret"));
+
+        X509Authentication certificateAuth = new X509Authentication("/nonexisting/usercert.pem", "secret");
+        assertFalse(certificateAuth.getSessionKey().toString().contains("secret"));
+        assertFalse(certificateAuth.getSSLContextKey().toString().contains("secret"));
+        assertFalse(certificateAuth.getSSLContextKey().equals(new X509Authentication("/nonexisting/usercert.pem", "other").getSSLContextKey()));
+    }
+
+    @Test
+    public void testSSLSessionSettings() throws Exception {
+        BasicAuthentication auth = new BasicAuthentication("user", "password");
+        auth.setSSLSessionCacheSize(100);
+        auth.setSSLSessionTimeout(600);
+        SSLContext context = auth.getSSLContext();
+        assertEquals(100, context.getClientSessionContext().getSessionCacheSize());
+        assertEquals(600, context.getClientSessionContext().getSessionTimeout());
+        assertTrue(context == auth.getSSLContext());
+
+        auth.setSSLSessionTimeout(60);
+        assertFalse(context == auth.getSSLContext());
+        assertEquals(60, auth.getSSLContext().getClientSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void testUnsharedSSLContext() throws Exception {
+        NoAuthentication auth = new NoAuthentication() {
+            @Override
+            public List<Object> getSessionKey() {
+                return null;
+            }
+        };
+        auth.setSSLSessionCacheSize(10);
+
+        SSLContext context = auth.getSSLContext();
+        assertFalse(context == auth.getSSLContext());
+        assertEquals(10, context.getClientSessionContext().getSessionCacheSize());
+    }
+
+    @Test
+    public void testDeferredSSLContext() throws Exception {
+        wireMockRule.stubFor(WireMock.head(urlEqualTo("/-/")).willReturn(aResponse().withStatus(200)));
+        NoAuthentication auth = new NoAuthentication();
+        auth.setCAFile("/nonexisting/ca/file");
+        auth.setTarget(new HttpHost("localhost", 8123, "http"));
+        auth.setConnection(new HTTPConnection());
+        //plain endpoint doesn't need the ssl context
+        auth.authenticate();
+        assertNotNull(auth.getConnection().getClient());
+        auth.getConnection().getClient().close();
+
+        auth.setTarget(new HttpHost("localhost", 8123, "https"));
+        try {
+            auth.authenticate();
+            fail();
+        } catch (AuthenticationException ex) {
+            //cool
+        }
+    }
+}
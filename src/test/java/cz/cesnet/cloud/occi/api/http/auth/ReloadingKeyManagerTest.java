@@ -0,0 +1,126 @@
+package cz.cesnet.cloud.occi.api.http.auth;
+
+import cz.cesnet.cloud.occi.api.exception.AuthenticationException;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.Key;
+import java.security.KeyStore;
+import javax.net.ssl.SSLContext;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ReloadingKeyManagerTest {
+
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final String[] KEY_TYPES = {"RSA"};
+    private static final String ALIAS = "private_key";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static KeyStore loadKeyStore(String name) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = ReloadingKeyManagerTest.class.getResourceAsStream("/certificates/users/" + name + ".p12")) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    private static Key privateKey(KeyStore keyStore) throws Exception {
+        return keyStore.getKey(ALIAS, PASSWORD);
+    }
+
+    @Test
+    public void testReload() throws Exception {
+        File file = folder.newFile("proxy");
+        file.setLastModified(System.currentTimeMillis() - 10000);
+        KeyStore first = loadKeyStore("first");
+        KeyStore second = loadKeyStore("second");
+        final KeyStore[] keyStore = {first};
+        ReloadingKeyManager manager = new ReloadingKeyManager(file, new ReloadingKeyManager.KeyStoreLoader() {
+
+            @Override
+            public KeyStore load() {
+                return keyStore[0];
+            }
+        }, PASSWORD);
+
+        String alias = manager.chooseClientAlias(KEY_TYPES, null, null);
+        assertEquals(privateKey(first), manager.getPrivateKey(alias));
+        assertEquals("CN=first", manager.getCertificateChain(alias)[0].getSubjectX500Principal().getName());
+        //nothing changed
+        assertFalse(manager.reload());
+
+        keyStore[0] = second;
+        file.setLastModified(System.currentTimeMillis());
+        assertTrue(manager.reload());
+
+        String newAlias = manager.chooseClientAlias(KEY_TYPES, null, null);
+        assertFalse(alias.equals(newAlias));
+        assertEquals(privateKey(second), manager.getPrivateKey(newAlias));
+        assertEquals("CN=second", manager.getCertificateChain(newAlias)[0].getSubjectX500Principal().getName());
+        //handshake which chose its alias before the reload still gets matching key material
+        assertEquals(privateKey(first), manager.getPrivateKey(alias));
+        assertNull(manager.getPrivateKey(ALIAS));
+    }
+
+    @Test
+    public void testFailedReload() throws Exception {
+        File file = folder.newFile("proxy");
+        file.setLastModified(System.currentTimeMillis() - 10000);
+        final KeyStore keyStore = loadKeyStore("first");
+        final boolean[] broken = {false};
+        ReloadingKeyManager manager = new ReloadingKeyManager(file, new ReloadingKeyManager.KeyStoreLoader() {
+
+            @Override
+            public KeyStore load() throws AuthenticationException {
+                if (broken[0]) {
+                    throw new AuthenticationException("cannot load user certificate");
+                }
+                return keyStore;
+            }
+        }, PASSWORD);
+        String alias = manager.chooseClientAlias(KEY_TYPES, null, null);
+
+        broken[0] = true;
+        file.setLastModified(System.currentTimeMillis());
+        assertFalse(manager.reload());
+        assertEquals(alias, manager.chooseClientAlias(KEY_TYPES, null, null));
+        assertEquals(privateKey(keyStore), manager.getPrivateKey(alias));
+
+        //file is tried again on the next check
+        broken[0] = false;
+        assertTrue(manager.reload());
+    }
+
+    @Test
+    public void testCertificateAuthentication() throws Exception {
+        File file = folder.newFile("proxy.pem");
+        try (InputStream in = ReloadingKeyManagerTest.class.getResourceAsStream("/certificates/users/user.pem")) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        X509Authentication auth = new X509Authentication(file.getAbsolutePath(), "password");
+        assertEquals(CertificateAuthentication.DEFAULT_RELOAD_INTERVAL, auth.getReloadInterval());
+        SSLContext context = auth.getSSLContext();
+        assertNotNull(context);
+        //certificate changes don't need a new context
+        file.setLastModified(System.currentTimeMillis() + 10000);
+        assertTrue(context == auth.getSSLContext());
+
+        auth.setReloadInterval(0);
+        assertFalse(context == auth.getSSLContext());
+    }
+}
@@ -0,0 +1,77 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import cz.cesnet.cloud.occi.api.http.HTTPClient;
+import cz.cesnet.cloud.occi.api.http.auth.BasicAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.DigestAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.HTTPAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.VOMSAuthentication;
+import cz.cesnet.cloud.occi.api.http.auth.X509Authentication;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.security.Security;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Program measuring time to the first request of a fresh JVM, run by
+ * {@link ColdStartBenchmarkTest} in a separate process for every
+ * authentication method. Connects to the endpoint, lists all resources and
+ * prints a single line starting with {@link #RESULT_PREFIX} followed by
+ * milliseconds spent connecting, milliseconds spent by the first request,
+ * milliseconds since the JVM start, number of loaded classes and whether
+ * Bouncy Castle provider got registered.
+ *
+ * <p>
+ * Arguments: method (basic, digest, x509, voms or keystone), endpoint and for
+ * certificate methods path to the PEM certificate and path to the keystore
+ * with the server's CA.</p>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ColdStart {
+
+    public static final String RESULT_PREFIX = "COLDSTART";
+    public static final String PASSWORD = "password";
+
+    public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
+        String method = args[0];
+        URI endpoint = URI.create(args[1]);
+
+        HTTPAuthentication authentication;
+        switch (method) {
+            case "basic":
+            case "keystone":
+                authentication = new BasicAuthentication("user", PASSWORD);
+                break;
+            case "digest":
+                authentication = new DigestAuthentication("user", PASSWORD);
+                break;
+            case "x509":
+                authentication = new X509Authentication(args[2], PASSWORD);
+                authentication.setCAFile(args[3]);
+                break;
+            case "voms":
+                authentication = new VOMSAuthentication(args[2]);
+                authentication.setCAFile(args[3]);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown method " + method);
+        }
+
+        HTTPClient client = new HTTPClient(endpoint, authentication, MediaType.TEXT_PLAIN, true);
+        long connected = System.nanoTime();
+        client.list();
+        long listed = System.nanoTime();
+        client.close();
+
+        System.out.println(RESULT_PREFIX
+                + " " + TimeUnit.NANOSECONDS.toMillis(connected - start)
+                + " " + TimeUnit.NANOSECONDS.toMillis(listed - connected)
+                + " " + ManagementFactory.getRuntimeMXBean().getUptime()
+                + " " + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount()
+                + " " + (Security.getProvider("BC") != null));
+        //certificate watcher must not keep the JVM running
+        System.exit(0);
+    }
+}
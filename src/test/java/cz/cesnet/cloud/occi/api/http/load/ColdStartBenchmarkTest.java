@@ -0,0 +1,167 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures time to the first request of a fresh JVM for every authentication
+ * method. Every run starts {@link ColdStart} in a new JVM against the
+ * stand-in server, certificate methods connect over https with a client
+ * certificate, Keystone fallback is triggered by the challenge of the server.
+ * Certificates are fixtures from src/test/resources/certificates. Every fork
+ * takes seconds, so the benchmark is skipped unless system property
+ * occi.coldstart.runs is set, which the 'load' profile does. Medians are
+ * reported.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class ColdStartBenchmarkTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ColdStartBenchmarkTest.class);
+    private static final char[] PASSWORD = ColdStart.PASSWORD.toCharArray();
+    private static final String RUNS_PROPERTY = "occi.coldstart.runs";
+    private static final String[] HEADINGS = {"connect", "first request", "since JVM start", "loaded classes"};
+
+    private StandInServer server;
+    private StandInServer secureServer;
+    private File certificate;
+    private File CAFile;
+
+    @BeforeClass
+    public static void setUpClass() {
+        Assume.assumeTrue(System.getProperty(RUNS_PROPERTY) != null);
+    }
+
+    private static File resource(String name) throws Exception {
+        return new File(ColdStartBenchmarkTest.class.getResource("/certificates/" + name).toURI());
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        certificate = resource("users/user.pem");
+        CAFile = resource("servers/localhost-ca.jks");
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = ColdStartBenchmarkTest.class.getResourceAsStream("/certificates/servers/localhost.p12")) {
+            keyStore.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD);
+        KeyStore trustStore = KeyStore.getInstance("JKS");
+        trustStore.load(null);
+        try (InputStream in = ColdStartBenchmarkTest.class.getResourceAsStream("/certificates/users/user.pem")) {
+            //first PEM block of the file is the user's self-signed certificate
+            trustStore.setCertificateEntry("user", CertificateFactory.getInstance("X.509").generateCertificate(in));
+        }
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+
+        server = new StandInServer(10);
+        server.start();
+        secureServer = new StandInServer(10);
+        secureServer.start(sslContext);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        secureServer.stop();
+    }
+
+    @Test
+    public void testColdStart() throws Exception {
+        int runs = Integer.getInteger(RUNS_PROPERTY);
+        StringBuilder report = new StringBuilder(String.format("%-10s", "method"));
+        for (String heading : HEADINGS) {
+            report.append(String.format("%18s", heading));
+        }
+
+        server.setChallenge("Basic realm=\"occi\"");
+        report.append(measure("basic", server, runs, false));
+        server.setChallenge("Digest realm=\"occi\", nonce=\"dcd98b7102dd2f0e8b11d0f600bfb0c093\", qop=\"auth\"");
+        report.append(measure("digest", server, runs, false));
+        server.setChallenge("Keystone uri='" + server.getEndpoint() + "/'");
+        report.append(measure("keystone", server, runs, false));
+        report.append(measure("x509", secureServer, runs, true));
+        report.append(measure("voms", secureServer, runs, true));
+
+        LOGGER.info("Cold start medians of {} runs in milliseconds:\n{}", runs, report);
+    }
+
+    private String measure(String method, StandInServer target, int runs, boolean certificateMethod) throws Exception {
+        List<List<Long>> values = new ArrayList<>();
+        for (int i = 0; i < HEADINGS.length; i++) {
+            values.add(new ArrayList<Long>());
+        }
+
+        for (int run = 0; run < runs; run++) {
+            String[] result = fork(method, target, certificateMethod);
+            for (int i = 0; i < HEADINGS.length; i++) {
+                values.get(i).add(Long.parseLong(result[i + 1]));
+            }
+            //only methods reading PEM files need Bouncy Castle
+            assertEquals(method, String.valueOf(certificateMethod), result[HEADINGS.length + 1]);
+        }
+
+        StringBuilder line = new StringBuilder(String.format("%n%-10s", method));
+        for (List<Long> list : values) {
+            Collections.sort(list);
+            line.append(String.format("%18d", list.get(list.size() / 2)));
+        }
+
+        return line.toString();
+    }
+
+    private String[] fork(String method, StandInServer target, boolean certificateMethod) throws IOException, InterruptedException {
+        String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        List<String> command = new ArrayList<>(Arrays.asList(
+                new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                "-cp", classpath, ColdStart.class.getName(), method, target.getEndpoint().toString()));
+        if (certificateMethod) {
+            command.add(certificate.getPath());
+            command.add(CAFile.getPath());
+        }
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String result = null;
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(ColdStart.RESULT_PREFIX + " ")) {
+                    result = line;
+                } else {
+                    output.append(line).append('\n');
+                }
+            }
+        }
+
+        assertEquals(method + " failed:\n" + output, 0, process.waitFor());
+        assertNotNull(method + " reported nothing:\n" + output, result);
+        return result.split(" ");
+    }
+}
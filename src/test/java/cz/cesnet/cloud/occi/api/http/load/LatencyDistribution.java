@@ -0,0 +1,133 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import java.util.Random;
+
+/**
+ * Distribution of latencies added by {@link StandInServer} to its responses.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public abstract class LatencyDistribution {
+
+    /**
+     * Returns next latency.
+     *
+     * @param random random number generator
+     * @return latency in milliseconds
+     */
+    public abstract long next(Random random);
+
+    /**
+     * No latency at all.
+     *
+     * @return distribution
+     */
+    public static LatencyDistribution none() {
+        return fixed(0);
+    }
+
+    /**
+     * Same latency for every response.
+     *
+     * @param latency latency in milliseconds
+     * @return distribution
+     */
+    public static LatencyDistribution fixed(final long latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency cannot be negative");
+        }
+
+        return new LatencyDistribution() {
+
+            @Override
+            public long next(Random random) {
+                return latency;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed(" + latency + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Latency uniformly distributed between min and max.
+     *
+     * @param min minimal latency in milliseconds
+     * @param max maximal latency in milliseconds
+     * @return distribution
+     */
+    public static LatencyDistribution uniform(final long min, final long max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("invalid latency range " + min + "-" + max);
+        }
+
+        return new LatencyDistribution() {
+
+            @Override
+            public long next(Random random) {
+                return min + (long) (random.nextDouble() * (max - min + 1));
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + min + "-" + max + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Exponentially distributed latency, most responses are fast but some
+     * take several times the mean, like on a loaded server.
+     *
+     * @param mean mean latency in milliseconds
+     * @param max latency cap in milliseconds
+     * @return distribution
+     */
+    public static LatencyDistribution exponential(final double mean, final long max) {
+        if (mean <= 0 || max < 0) {
+            throw new IllegalArgumentException("invalid mean or cap");
+        }
+
+        return new LatencyDistribution() {
+
+            @Override
+            public long next(Random random) {
+                return Math.min(max, Math.round(-mean * Math.log(1 - random.nextDouble())));
+            }
+
+            @Override
+            public String toString() {
+                return "exponential(mean " + mean + "ms, max " + max + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Parses distribution from a string, e.g. {@code fixed:5},
+     * {@code uniform:1-20} or {@code exponential:10-500}.
+     *
+     * @param description distribution description
+     * @return distribution
+     */
+    public static LatencyDistribution parse(String description) {
+        String[] parts = description.split(":", 2);
+        switch (parts[0]) {
+            case "none":
+                return none();
+            case "fixed":
+                return fixed(Long.parseLong(parts[1]));
+            case "uniform": {
+                String[] range = parts[1].split("-");
+                return uniform(Long.parseLong(range[0]), Long.parseLong(range[1]));
+            }
+            case "exponential": {
+                String[] range = parts[1].split("-");
+                return exponential(Double.parseDouble(range[0]), Long.parseLong(range[1]));
+            }
+            default:
+                throw new IllegalArgumentException("unknown latency distribution '" + description + "'");
+        }
+    }
+}
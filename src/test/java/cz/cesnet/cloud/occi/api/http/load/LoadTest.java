@@ -0,0 +1,291 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import cz.cesnet.cloud.occi.Model;
+import cz.cesnet.cloud.occi.api.EntityBuilder;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.exception.EntityBuildingException;
+import cz.cesnet.cloud.occi.api.http.HTTPClient;
+import cz.cesnet.cloud.occi.core.ActionInstance;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives {@link HTTPClient} with a mix of operations from concurrent workers
+ * and measures their latencies. Intended to run against
+ * {@link StandInServer}, but any OCCI server with computes will do.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * LoadTest test = new LoadTest(client);
+ *test.setConcurrency(16);
+ *test.setOperations(10000);
+ *test.setWeight(LoadTest.Operation.CREATE, 0);
+ *LoadTestReport report = test.run();}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class LoadTest {
+
+    /**
+     * Operations run by the workers.
+     */
+    public enum Operation {
+
+        /**
+         * list of compute locations
+         */
+        LIST,
+        /**
+         * description of a single compute
+         */
+        DESCRIBE,
+        /**
+         * creation of a new compute
+         */
+        CREATE,
+        /**
+         * start action triggered on a single compute
+         */
+        TRIGGER
+    }
+
+    private final HTTPClient client;
+    private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    private int concurrency = 4;
+    private int operations = 1000;
+    private Model model;
+    private List<URI> inventory;
+
+    /**
+     * Constructor. All operations have the same weight by default.
+     *
+     * @param client client under test, cannot be null
+     */
+    public LoadTest(HTTPClient client) {
+        if (client == null) {
+            throw new NullPointerException("client cannot be null");
+        }
+
+        this.client = client;
+        for (Operation operation : Operation.values()) {
+            weights.put(operation, 1);
+        }
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets number of concurrent workers.
+     *
+     * @param concurrency number of workers, has to be positive
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency has to be positive");
+        }
+
+        this.concurrency = concurrency;
+    }
+
+    public int getOperations() {
+        return operations;
+    }
+
+    /**
+     * Sets total number of operations run by all workers.
+     *
+     * @param operations number of operations, has to be positive
+     */
+    public void setOperations(int operations) {
+        if (operations <= 0) {
+            throw new IllegalArgumentException("number of operations has to be positive");
+        }
+
+        this.operations = operations;
+    }
+
+    /**
+     * Sets relative frequency of an operation in the mix.
+     *
+     * @param operation operation, cannot be null
+     * @param weight weight, 0 excludes the operation
+     */
+    public void setWeight(Operation operation, int weight) {
+        if (operation == null) {
+            throw new NullPointerException("operation cannot be null");
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight cannot be negative");
+        }
+
+        weights.put(operation, weight);
+    }
+
+    /**
+     * Prepares the test. Client connects if it's not connected yet, its
+     * connection pool is enlarged to fit all workers, and the computes the
+     * workers operate on are listed. Called by {@link #run()} if not called
+     * before, calling it first allows e.g. injecting server errors only into
+     * the measured operations.
+     *
+     * @throws CommunicationException if the inventory cannot be listed
+     */
+    public void prepare() throws CommunicationException {
+        if (client.getPrewarmedConnections() < concurrency) {
+            client.setPrewarmedConnections(concurrency);
+            client.connect();
+        }
+
+        List<URI> computes = client.list("compute");
+        if (computes.isEmpty()) {
+            throw new IllegalStateException("server has no computes to describe and trigger actions on");
+        }
+
+        model = client.getModel();
+        inventory = computes;
+    }
+
+    /**
+     * Runs the test, preparing it first if it wasn't prepared yet.
+     *
+     * @return report
+     * @throws CommunicationException if the inventory cannot be listed
+     * before the test
+     * @throws InterruptedException
+     */
+    public LoadTestReport run() throws CommunicationException, InterruptedException {
+        final Operation[] mix = createMix();
+        if (inventory == null) {
+            prepare();
+        }
+
+        final Model model = this.model;
+        final List<URI> inventory = this.inventory;
+        final AtomicInteger remaining = new AtomicInteger(operations);
+        final List<Samples> samples = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            final Samples workerSamples = new Samples();
+            samples.add(workerSamples);
+            workers.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    EntityBuilder builder = new EntityBuilder(model);
+                    Random random = ThreadLocalRandom.current();
+                    while (remaining.getAndDecrement() > 0) {
+                        Operation operation = mix[random.nextInt(mix.length)];
+                        URI location = inventory.get(random.nextInt(inventory.size()));
+                        long start = System.nanoTime();
+                        boolean failed;
+                        try {
+                            failed = !execute(operation, builder, location);
+                        } catch (CommunicationException | EntityBuildingException ex) {
+                            failed = true;
+                        }
+                        workerSamples.add(operation, System.nanoTime() - start, failed);
+                    }
+                }
+            }, "occi-load-worker-" + i));
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        LoadTestReport report = new LoadTestReport(System.nanoTime() - start, concurrency);
+        for (Operation operation : Operation.values()) {
+            if (weights.get(operation) == 0) {
+                continue;
+            }
+
+            long[] latencies = new long[0];
+            int errors = 0;
+            for (Samples workerSamples : samples) {
+                latencies = workerSamples.append(operation, latencies);
+                errors += workerSamples.errors[operation.ordinal()];
+            }
+            report.add(operation, latencies, errors);
+        }
+
+        return report;
+    }
+
+    private Operation[] createMix() {
+        List<Operation> mix = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                mix.add(entry.getKey());
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalStateException("all operations have zero weight");
+        }
+
+        return mix.toArray(new Operation[mix.size()]);
+    }
+
+    private boolean execute(Operation operation, EntityBuilder builder, URI location) throws CommunicationException, EntityBuildingException {
+        switch (operation) {
+            case LIST:
+                client.list("compute");
+                return true;
+            case DESCRIBE:
+                client.describe(location);
+                return true;
+            case CREATE:
+                client.create(builder.getResource("compute"));
+                return true;
+            case TRIGGER: {
+                //rejected action is reported by the return value
+                ActionInstance action = builder.getActionInstance("start");
+                return client.trigger(location, action);
+            }
+            default:
+                throw new IllegalArgumentException("unknown operation " + operation);
+        }
+    }
+
+    /**
+     * Latencies recorded by a single worker, not thread-safe.
+     */
+    private static class Samples {
+
+        private final long[][] latencies = new long[Operation.values().length][16];
+        private final int[] counts = new int[Operation.values().length];
+        private final int[] errors = new int[Operation.values().length];
+
+        private void add(Operation operation, long latency, boolean failed) {
+            int index = operation.ordinal();
+            if (counts[index] == latencies[index].length) {
+                latencies[index] = Arrays.copyOf(latencies[index], counts[index] * 2);
+            }
+            latencies[index][counts[index]++] = latency;
+            if (failed) {
+                errors[index]++;
+            }
+        }
+
+        private long[] append(Operation operation, long[] to) {
+            int index = operation.ordinal();
+            long[] result = Arrays.copyOf(to, to.length + counts[index]);
+            System.arraycopy(latencies[index], 0, result, to.length, counts[index]);
+            return result;
+        }
+    }
+}
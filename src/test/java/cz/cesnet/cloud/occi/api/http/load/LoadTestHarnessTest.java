@@ -0,0 +1,85 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import cz.cesnet.cloud.occi.api.http.HTTPClient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the load test against the stand-in server. Default sizes keep the
+ * test short, the 'load' profile sets the following system properties for a
+ * real measurement:
+ *
+ * <ul>
+ * <li>occi.load.inventory - number of computes on the server</li>
+ * <li>occi.load.concurrency - number of workers</li>
+ * <li>occi.load.operations - total number of operations</li>
+ * <li>occi.load.latency - server latency, e.g. uniform:1-20 (see
+ * {@link LatencyDistribution#parse(java.lang.String)})</li>
+ * <li>occi.load.errorRate - probability of a server error</li>
+ * </ul>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class LoadTestHarnessTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestHarnessTest.class);
+    private StandInServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StandInServer(Integer.getInteger("occi.load.inventory", 200));
+        server.setLatency(LatencyDistribution.parse(System.getProperty("occi.load.latency", "uniform:0-2")));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        HTTPClient client = new HTTPClient(server.getEndpoint());
+        LoadTest test = new LoadTest(client);
+        test.setConcurrency(Integer.getInteger("occi.load.concurrency", 4));
+        test.setOperations(Integer.getInteger("occi.load.operations", 400));
+        //errors are injected only after the inventory is listed
+        test.prepare();
+        server.setErrorRate(Double.parseDouble(System.getProperty("occi.load.errorRate", "0.02")));
+
+        LoadTestReport report = test.run();
+        LOGGER.info("Load test against {} computes, latency {}:\n{}", server.getInventorySize(), server.getLatency(), report);
+        client.close();
+
+        assertEquals(test.getOperations(), report.getCount());
+        //every simulated error fails exactly one operation
+        assertEquals(server.getErrors(), report.getErrors());
+        assertTrue(report.getThroughput() > 0);
+        for (LoadTest.Operation operation : LoadTest.Operation.values()) {
+            assertTrue(report.getCount(operation) > 0);
+            assertTrue(report.getPercentile(operation, 50) <= report.getPercentile(operation, 99));
+        }
+    }
+
+    @Test
+    public void testWithoutErrors() throws Exception {
+        HTTPClient client = new HTTPClient(server.getEndpoint());
+        LoadTest test = new LoadTest(client);
+        test.setOperations(100);
+        test.setWeight(LoadTest.Operation.LIST, 0);
+        test.setWeight(LoadTest.Operation.CREATE, 3);
+
+        int inventory = server.getInventorySize();
+        LoadTestReport report = test.run();
+        client.close();
+
+        assertEquals(0, report.getErrors());
+        assertEquals(0, report.getCount(LoadTest.Operation.LIST));
+        assertEquals(inventory + report.getCount(LoadTest.Operation.CREATE), server.getInventorySize());
+    }
+}
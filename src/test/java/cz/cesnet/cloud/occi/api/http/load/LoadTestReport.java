@@ -0,0 +1,133 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of a {@link LoadTest} run: throughput and latency percentiles of
+ * each operation.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class LoadTestReport {
+
+    private final long duration;
+    private final int concurrency;
+    private final Map<LoadTest.Operation, long[]> latencies = new EnumMap<>(LoadTest.Operation.class);
+    private final Map<LoadTest.Operation, Integer> errors = new EnumMap<>(LoadTest.Operation.class);
+
+    /**
+     * Constructor.
+     *
+     * @param duration wall clock duration of the run in nanoseconds
+     * @param concurrency number of concurrent workers
+     */
+    LoadTestReport(long duration, int concurrency) {
+        this.duration = duration;
+        this.concurrency = concurrency;
+    }
+
+    void add(LoadTest.Operation operation, long[] operationLatencies, int operationErrors) {
+        long[] sorted = operationLatencies.clone();
+        Arrays.sort(sorted);
+        latencies.put(operation, sorted);
+        errors.put(operation, operationErrors);
+    }
+
+    /**
+     * Returns number of finished operations of given type, including failed
+     * ones.
+     *
+     * @param operation operation
+     * @return number of operations
+     */
+    public int getCount(LoadTest.Operation operation) {
+        long[] values = latencies.get(operation);
+        return values == null ? 0 : values.length;
+    }
+
+    /**
+     * Returns number of all finished operations.
+     *
+     * @return number of operations
+     */
+    public int getCount() {
+        int count = 0;
+        for (LoadTest.Operation operation : latencies.keySet()) {
+            count += getCount(operation);
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns number of failed operations of given type.
+     *
+     * @param operation operation
+     * @return number of failures
+     */
+    public int getErrors(LoadTest.Operation operation) {
+        Integer count = errors.get(operation);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Returns number of all failed operations.
+     *
+     * @return number of failures
+     */
+    public int getErrors() {
+        int count = 0;
+        for (int operationErrors : errors.values()) {
+            count += operationErrors;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns overall throughput.
+     *
+     * @return operations per second
+     */
+    public double getThroughput() {
+        return duration == 0 ? 0 : getCount() * (double) TimeUnit.SECONDS.toNanos(1) / duration;
+    }
+
+    /**
+     * Returns latency percentile of given operation (nearest rank).
+     *
+     * @param operation operation
+     * @param percentile percentile between 0 (exclusive) and 100
+     * @return latency in milliseconds, 0 if there are no such operations
+     */
+    public double getPercentile(LoadTest.Operation operation, double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile has to be in (0, 100]");
+        }
+
+        long[] values = latencies.get(operation);
+        if (values == null || values.length == 0) {
+            return 0;
+        }
+
+        int rank = (int) Math.ceil(percentile / 100 * values.length);
+        return values[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d operations in %.2f s with %d workers, %.1f ops/s, %d errors%n",
+                getCount(), duration / 1e9, concurrency, getThroughput(), getErrors()));
+        builder.append(String.format("%-10s %8s %7s %9s %9s %9s %9s%n", "operation", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (LoadTest.Operation operation : latencies.keySet()) {
+            builder.append(String.format("%-10s %8d %7d %9.2f %9.2f %9.2f %9.2f%n", operation, getCount(operation), getErrors(operation),
+                    getPercentile(operation, 50), getPercentile(operation, 90), getPercentile(operation, 99), getPercentile(operation, 100)));
+        }
+
+        return builder.toString();
+    }
+}
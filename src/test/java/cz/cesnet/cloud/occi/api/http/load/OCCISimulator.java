@@ -0,0 +1,713 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory OCCI server simulating a cloud of production size. Hosts
+ * computes, storages and networks with storage links and network interfaces
+ * connecting every compute to a storage and a network. Entities are rendered
+ * in text/plain or text/occi according to the Accept header, in the same
+ * format as the recordings in the test resources.
+ *
+ * <p>
+ * Resources can be listed, described, created, deleted and actions can be
+ * triggered on them. Actions change entity states according to the OCCI
+ * infrastructure state diagrams, actions not allowed in the current state are
+ * rejected with 409 Conflict. State changes and provisioning of created
+ * resources can be delayed to test clients watching for a state.</p>
+ *
+ * <p>
+ * Generated entities have stable identifiers, see
+ * {@link #getLocation(EntityType, int)}. Data are held in a compact form, so
+ * a simulator with 100 000 resources of each type fits in the default test
+ * heap.</p>
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * OCCISimulator simulator = new OCCISimulator(100000, 100000, 100000);
+ *simulator.setTransitionDelay(500);
+ *simulator.start();
+ *Client client = new HTTPClient(simulator.getEndpoint(), null, MediaType.TEXT_OCCI, true);
+ *...
+ *simulator.stop();}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class OCCISimulator extends SimulatedServer {
+
+    /**
+     * Types of simulated entities.
+     */
+    public enum EntityType {
+
+        /**
+         * compute resource
+         */
+        COMPUTE("compute", "/compute/", false),
+        /**
+         * storage resource
+         */
+        STORAGE("storage", "/storage/", false),
+        /**
+         * network resource
+         */
+        NETWORK("network", "/network/", false),
+        /**
+         * link between a compute and a storage
+         */
+        STORAGELINK("storagelink", "/link/storagelink/", true),
+        /**
+         * link between a compute and a network
+         */
+        NETWORKINTERFACE("networkinterface", "/link/networkinterface/", true);
+
+        private final String term;
+        private final String location;
+        private final boolean link;
+
+        private EntityType(String term, String location, boolean link) {
+            this.term = term;
+            this.location = location;
+            this.link = link;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public boolean isLink() {
+            return link;
+        }
+    }
+
+    private static final String MODEL_RESOURCE = "/__files/body---xaO7k.json";
+    private static final String INFRASTRUCTURE_SCHEME = "http://schemas.ogf.org/occi/infrastructure#";
+    private static final String RESOURCE_TPL_SCHEME = "http://occi.example.org/occi/infrastructure/resource_tpl#";
+    private static final String TEXT_PLAIN = "text/plain";
+    private static final String TEXT_OCCI = "text/occi";
+    private static final String LOCATION_HEADER = "Location";
+    private static final String PLAIN_LOCATION_HEADER = "X-OCCI-Location";
+    private static final String ACTION_PARAMETER = "action=";
+    private static final Pattern PATTERN_TITLE = Pattern.compile("occi\\.core\\.title=\"([^\"]*)\"");
+    private static final String[][] TEMPLATES = {{"small", "Small Instance - 1 core and 2 GB RAM", "1", "2"},
+    {"medium", "Medium Instance - 2 cores and 4 GB RAM", "2", "4"},
+    {"large", "Large Instance - 4 cores and 8 GB RAM", "4", "8"}};
+    private static final Map<EntityType, Map<String, Transition>> TRANSITIONS = new HashMap<>();
+
+    static {
+        //see OCCI Infrastructure specification, section 3
+        TRANSITIONS.put(EntityType.COMPUTE, transitions(
+                new Transition("start", "active", "inactive", "suspended"),
+                new Transition("stop", "inactive", "active"),
+                new Transition("restart", "active", "active"),
+                new Transition("suspend", "suspended", "active")));
+        TRANSITIONS.put(EntityType.STORAGE, transitions(
+                new Transition("online", "online", "offline"),
+                new Transition("offline", "offline", "online"),
+                new Transition("backup", "online", "online"),
+                new Transition("snapshot", "online", "online"),
+                new Transition("resize", "online", "online")));
+        TRANSITIONS.put(EntityType.NETWORK, transitions(
+                new Transition("up", "active", "inactive"),
+                new Transition("down", "inactive", "active")));
+        TRANSITIONS.put(EntityType.STORAGELINK, transitions(
+                new Transition("online", "active", "inactive"),
+                new Transition("offline", "inactive", "active")));
+        TRANSITIONS.put(EntityType.NETWORKINTERFACE, transitions(
+                new Transition("up", "active", "inactive"),
+                new Transition("down", "inactive", "active")));
+    }
+
+    private final Map<EntityType, ConcurrentMap<UUID, SimulatedEntity>> entities = new EnumMap<>(EntityType.class);
+    private final AtomicInteger seeds = new AtomicInteger();
+    private final String plainModel;
+    private final Map<String, List<String>> occiModel;
+    private volatile long transitionDelay;
+
+    /**
+     * Constructor. Compute number i is linked to storage number i modulo the
+     * number of storages and network number i modulo the number of networks.
+     *
+     * @param computes number of computes
+     * @param storages number of storages
+     * @param networks number of networks
+     * @throws IOException if the model cannot be loaded
+     */
+    public OCCISimulator(int computes, int storages, int networks) throws IOException {
+        super("occi-simulator");
+        if (computes < 0 || storages < 0 || networks < 0) {
+            throw new IllegalArgumentException("number of resources cannot be negative");
+        }
+
+        for (EntityType type : EntityType.values()) {
+            entities.put(type, new ConcurrentHashMap<UUID, SimulatedEntity>());
+        }
+        SimulatedEntity[] storageList = generate(EntityType.STORAGE, storages);
+        SimulatedEntity[] networkList = generate(EntityType.NETWORK, networks);
+        SimulatedEntity[] computeList = generate(EntityType.COMPUTE, computes);
+        for (int i = 0; i < computes; i++) {
+            if (storages > 0) {
+                link(new SimulatedEntity(EntityType.STORAGELINK, generatedId(EntityType.STORAGELINK, i), i, "active"), computeList[i], storageList[i % storages]);
+            }
+            if (networks > 0) {
+                link(new SimulatedEntity(EntityType.NETWORKINTERFACE, generatedId(EntityType.NETWORKINTERFACE, i), i, "active"), computeList[i], networkList[i % networks]);
+            }
+        }
+        seeds.set(Math.max(computes, Math.max(storages, networks)));
+
+        try (InputStream in = OCCISimulator.class.getResourceAsStream(MODEL_RESOURCE)) {
+            plainModel = new String(read(in), StandardCharsets.UTF_8);
+        }
+        occiModel = toHeaders(plainModel);
+    }
+
+    public long getTransitionDelay() {
+        return transitionDelay;
+    }
+
+    /**
+     * Sets time it takes an entity to reach the target state of an action or
+     * a created resource to be provisioned. Until then the entity stays in its
+     * original state and further actions on it are rejected.
+     *
+     * @param transitionDelay delay in milliseconds, 0 for immediate changes
+     */
+    public void setTransitionDelay(long transitionDelay) {
+        if (transitionDelay < 0) {
+            throw new IllegalArgumentException("transition delay cannot be negative");
+        }
+
+        this.transitionDelay = transitionDelay;
+    }
+
+    /**
+     * Returns number of entities of given type currently hosted.
+     *
+     * @param type entity type
+     * @return number of entities
+     */
+    public int getSize(EntityType type) {
+        return entities.get(type).size();
+    }
+
+    /**
+     * Returns location of a generated entity relative to the endpoint. Link
+     * number i belongs to compute number i.
+     *
+     * @param type entity type
+     * @param index index of the entity
+     * @return location
+     */
+    public URI getLocation(EntityType type, int index) {
+        return URI.create(type.getLocation() + generatedId(type, index));
+    }
+
+    /**
+     * Returns current state of an entity.
+     *
+     * @param type entity type
+     * @param id entity identifier
+     * @return state or null if there is no such entity
+     */
+    public String getState(EntityType type, String id) {
+        SimulatedEntity entity = entities.get(type).get(UUID.fromString(id));
+        return entity == null ? null : entity.getState();
+    }
+
+    private SimulatedEntity[] generate(EntityType type, int count) {
+        SimulatedEntity[] generated = new SimulatedEntity[count];
+        ConcurrentMap<UUID, SimulatedEntity> map = entities.get(type);
+        for (int i = 0; i < count; i++) {
+            String state;
+            switch (type) {
+                case COMPUTE:
+                    state = i % 10 == 9 ? "inactive" : "active";
+                    break;
+                case STORAGE:
+                    state = "online";
+                    break;
+                default:
+                    state = "active";
+            }
+            generated[i] = new SimulatedEntity(type, generatedId(type, i), i, state);
+            map.put(generated[i].id, generated[i]);
+        }
+
+        return generated;
+    }
+
+    private static UUID generatedId(EntityType type, int index) {
+        return new UUID(type.ordinal() + 1, index);
+    }
+
+    private void link(SimulatedEntity link, SimulatedEntity source, SimulatedEntity target) {
+        link.source = source;
+        link.target = target;
+        source.links.add(link);
+        target.links.add(link);
+        entities.get(link.type).put(link.id, link);
+    }
+
+    private void remove(SimulatedEntity entity) {
+        if (entities.get(entity.type).remove(entity.id) == null) {
+            return;
+        }
+
+        if (entity.type.isLink()) {
+            entity.source.links.remove(entity);
+            entity.target.links.remove(entity);
+        } else {
+            for (SimulatedEntity link : entity.links) {
+                remove(link);
+            }
+        }
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        byte[] requestBody = read(exchange.getRequestBody());
+        if (!simulateLatency()) {
+            return;
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        Response response = new Response(accept != null && accept.contains(TEXT_OCCI));
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (path.equals("/-/") || path.equals("/.well-known/org/ogf/occi/-/")) {
+            if (response.occi) {
+                response.headers.putAll(occiModel);
+            } else {
+                response.body.append(plainModel);
+            }
+            response.send(exchange, 200, !method.equals("HEAD"));
+            return;
+        }
+        if (path.equals("/") && method.equals("GET")) {
+            List<URI> locations = new ArrayList<>();
+            for (EntityType type : EntityType.values()) {
+                if (!type.isLink()) {
+                    addLocations(type, locations);
+                }
+            }
+            response.locations(locations);
+            response.send(exchange, 200, true);
+            return;
+        }
+
+        EntityType type = null;
+        for (EntityType candidate : EntityType.values()) {
+            if (path.startsWith(candidate.getLocation())) {
+                type = candidate;
+            }
+        }
+        if (type == null) {
+            response.send(exchange, 404, "not found");
+            return;
+        }
+
+        String id = path.substring(type.getLocation().length());
+        SimulatedEntity entity = null;
+        if (!id.isEmpty()) {
+            entity = find(type, id);
+            if (entity == null) {
+                response.send(exchange, 404, "not found");
+                return;
+            }
+        }
+
+        switch (method) {
+            case "GET":
+                if (entity == null) {
+                    List<URI> locations = new ArrayList<>();
+                    addLocations(type, locations);
+                    response.locations(locations);
+                } else {
+                    render(entity, response);
+                }
+                response.send(exchange, 200, true);
+                break;
+            case "POST":
+                if (query != null && query.startsWith(ACTION_PARAMETER)) {
+                    trigger(type, entity, query.substring(ACTION_PARAMETER.length()), response, exchange);
+                } else if (entity == null && !type.isLink()) {
+                    String representation = new String(requestBody, StandardCharsets.UTF_8)
+                            + exchange.getRequestHeaders().get("X-OCCI-Attribute");
+                    SimulatedEntity created = create(type, representation);
+                    response.locations(Collections.singletonList(URI.create(getEndpoint() + type.getLocation() + created.id)));
+                    response.send(exchange, 201, true);
+                } else {
+                    response.send(exchange, 405, "method not allowed");
+                }
+                break;
+            case "DELETE":
+                if (entity == null) {
+                    for (SimulatedEntity member : entities.get(type).values()) {
+                        remove(member);
+                    }
+                } else {
+                    remove(entity);
+                }
+                response.send(exchange, 200, "OK");
+                break;
+            default:
+                response.send(exchange, 405, "method not allowed");
+        }
+    }
+
+    private SimulatedEntity find(EntityType type, String id) {
+        try {
+            return entities.get(type).get(UUID.fromString(id));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private void addLocations(EntityType type, List<URI> locations) {
+        for (UUID id : entities.get(type).keySet()) {
+            locations.add(URI.create(getEndpoint() + type.getLocation() + id));
+        }
+    }
+
+    private SimulatedEntity create(EntityType type, String representation) {
+        String initial;
+        String target;
+        switch (type) {
+            case COMPUTE:
+            case NETWORK:
+                initial = "inactive";
+                target = "active";
+                break;
+            default:
+                initial = "offline";
+                target = "online";
+        }
+
+        SimulatedEntity entity = new SimulatedEntity(type, UUID.randomUUID(), seeds.getAndIncrement(), initial);
+        Matcher matcher = PATTERN_TITLE.matcher(representation);
+        if (matcher.find()) {
+            entity.title = matcher.group(1);
+        }
+        entity.change(target, transitionDelay);
+        entities.get(type).put(entity.id, entity);
+        return entity;
+    }
+
+    private void trigger(EntityType type, SimulatedEntity entity, String action, Response response, HttpExchange exchange) throws IOException {
+        Transition transition = TRANSITIONS.get(type).get(action);
+        if (transition == null) {
+            response.send(exchange, 400, "unknown action '" + action + "'");
+            return;
+        }
+
+        if (entity != null) {
+            if (entity.apply(transition, transitionDelay)) {
+                response.send(exchange, 200, "OK");
+            } else {
+                response.send(exchange, 409, "action '" + action + "' is not allowed in state '" + entity.getState() + "'");
+            }
+            return;
+        }
+
+        //action on the whole collection is applied to entities in a suitable state only
+        for (SimulatedEntity member : entities.get(type).values()) {
+            member.apply(transition, transitionDelay);
+        }
+        response.send(exchange, 200, "OK");
+    }
+
+    private void render(SimulatedEntity entity, Response response) {
+        int seed = entity.seed;
+        response.add("Category", category(entity.type.getTerm(), INFRASTRUCTURE_SCHEME, "kind", entity.type.getLocation(), entity.type.getTerm()));
+        String[] template = TEMPLATES[seed % TEMPLATES.length];
+        if (entity.type == EntityType.COMPUTE) {
+            response.add("Category", category(template[0], RESOURCE_TPL_SCHEME, "mixin", "/mixin/resource_tpl/" + template[0] + "/", template[1]));
+        }
+
+        response.add("X-OCCI-Attribute", "occi.core.id=\"" + entity.id + "\"");
+        if (entity.type.isLink()) {
+            response.add("X-OCCI-Attribute", "occi.core.source=\"" + entity.source.getLocation() + "\"");
+            response.add("X-OCCI-Attribute", "occi.core.target=\"" + entity.target.getLocation() + "\"");
+        } else {
+            response.add("X-OCCI-Attribute", "occi.core.title=\"" + entity.getTitle() + "\"");
+        }
+        for (String attribute : attributes(entity)) {
+            response.add("X-OCCI-Attribute", attribute);
+        }
+
+        for (SimulatedEntity link : entity.links) {
+            if (link.source != entity) {
+                continue;
+            }
+
+            StringBuilder builder = new StringBuilder();
+            builder.append('<').append(link.target.getLocation()).append(">;rel=\"").append(INFRASTRUCTURE_SCHEME).append(link.target.type.getTerm())
+                    .append("\";self=\"").append(link.getLocation()).append("\";category=\"").append(INFRASTRUCTURE_SCHEME).append(link.type.getTerm())
+                    .append("\";occi.core.id=\"").append(link.id).append("\";occi.core.target=\"").append(link.target.getLocation())
+                    .append("\";occi.core.source=\"").append(entity.getLocation()).append('"');
+            for (String attribute : attributes(link)) {
+                builder.append(';').append(attribute);
+            }
+            response.add("Link", builder.toString());
+        }
+    }
+
+    private static String category(String term, String scheme, String categoryClass, String location, String title) {
+        return term + ";scheme=\"" + scheme + "\";class=\"" + categoryClass + "\";location=\"" + location + "\";title=\"" + title + "\"";
+    }
+
+    private static List<String> attributes(SimulatedEntity entity) {
+        int seed = entity.seed;
+        String state = entity.getState();
+        switch (entity.type) {
+            case COMPUTE: {
+                String[] template = TEMPLATES[seed % TEMPLATES.length];
+                return Arrays.asList("occi.compute.architecture=\"" + (seed % 2 == 0 ? "x64" : "x86") + "\"",
+                        "occi.compute.cores=" + template[2],
+                        "occi.compute.hostname=\"vm-" + seed + ".example.org\"",
+                        "occi.compute.memory=" + template[3],
+                        "occi.compute.speed=2",
+                        "occi.compute.state=\"" + state + "\"");
+            }
+            case STORAGE:
+                return Arrays.asList("occi.storage.size=" + (10 * (1 + seed % 50)),
+                        "occi.storage.state=\"" + state + "\"");
+            case NETWORK:
+                return Arrays.asList("occi.network.vlan=" + (seed % 4096),
+                        "occi.network.label=\"private\"",
+                        "occi.network.state=\"" + state + "\"");
+            case STORAGELINK:
+                return Arrays.asList("occi.storagelink.deviceid=\"/dev/vdb\"",
+                        "occi.storagelink.mountpoint=\"/mnt/data\"",
+                        "occi.storagelink.state=\"" + state + "\"");
+            case NETWORKINTERFACE:
+                return Arrays.asList("occi.networkinterface.interface=\"eth0\"",
+                        String.format("occi.networkinterface.mac=\"02:00:%02x:%02x:%02x:%02x\"", seed >>> 24, (seed >>> 16) & 0xff, (seed >>> 8) & 0xff, seed & 0xff),
+                        "occi.networkinterface.state=\"" + state + "\"");
+            default:
+                throw new IllegalArgumentException("unknown entity type " + entity.type);
+        }
+    }
+
+    private static Map<String, Transition> transitions(Transition... transitions) {
+        Map<String, Transition> map = new HashMap<>();
+        for (Transition transition : transitions) {
+            map.put(transition.action, transition);
+        }
+
+        return map;
+    }
+
+    private static Map<String, List<String>> toHeaders(String plain) {
+        Response response = new Response(true);
+        for (String line : plain.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                response.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+
+        return response.headers;
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder builder = new StringBuilder();
+        for (String value : values) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(value);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Action with states it can be triggered in and the state it leads to.
+     */
+    private static class Transition {
+
+        private final String action;
+        private final String to;
+        private final List<String> from;
+
+        private Transition(String action, String to, String... from) {
+            this.action = action;
+            this.to = to;
+            this.from = Arrays.asList(from);
+        }
+    }
+
+    /**
+     * Simulated entity. Attributes are derived from the seed, only the title
+     * of created resources is stored.
+     */
+    private static class SimulatedEntity {
+
+        private final EntityType type;
+        private final UUID id;
+        private final int seed;
+        private final List<SimulatedEntity> links;
+        private volatile String title;
+        private SimulatedEntity source;
+        private SimulatedEntity target;
+        private String state;
+        private String nextState;
+        private long nextStateTime;
+
+        private SimulatedEntity(EntityType type, UUID id, int seed, String state) {
+            this.type = type;
+            this.id = id;
+            this.seed = seed;
+            this.state = state;
+            this.links = type.isLink() ? Collections.<SimulatedEntity>emptyList() : new CopyOnWriteArrayList<SimulatedEntity>();
+        }
+
+        private String getLocation() {
+            return type.getLocation() + id;
+        }
+
+        private String getTitle() {
+            if (title != null) {
+                return title;
+            }
+
+            switch (type) {
+                case COMPUTE:
+                    return "vm-" + seed;
+                case STORAGE:
+                    return "disk-" + seed;
+                default:
+                    return "net-" + seed;
+            }
+        }
+
+        private synchronized String getState() {
+            if (nextState != null && System.currentTimeMillis() >= nextStateTime) {
+                state = nextState;
+                nextState = null;
+            }
+
+            return state;
+        }
+
+        private synchronized void change(String to, long delay) {
+            if (delay == 0) {
+                state = to;
+            } else {
+                nextState = to;
+                nextStateTime = System.currentTimeMillis() + delay;
+            }
+        }
+
+        private synchronized boolean apply(Transition transition, long delay) {
+            String current = getState();
+            if (nextState != null || !transition.from.contains(current)) {
+                return false;
+            }
+
+            change(transition.to, delay);
+            return true;
+        }
+    }
+
+    /**
+     * Response rendered either in the body (text/plain) or in headers
+     * (text/occi).
+     */
+    private static class Response {
+
+        private final boolean occi;
+        private final Map<String, List<String>> headers = new LinkedHashMap<>();
+        private final StringBuilder body = new StringBuilder();
+
+        private Response(boolean occi) {
+            this.occi = occi;
+        }
+
+        private void add(String name, String value) {
+            List<String> values = headers.get(name);
+            if (values == null) {
+                values = new ArrayList<>();
+                headers.put(name, values);
+            }
+            values.add(value);
+            if (!occi) {
+                body.append(name).append(": ").append(value).append('\n');
+            }
+        }
+
+        private void locations(List<URI> locations) {
+            if (occi) {
+                headers.put(LOCATION_HEADER, new ArrayList<String>());
+                for (URI location : locations) {
+                    headers.get(LOCATION_HEADER).add(location.toString());
+                }
+            } else {
+                body.ensureCapacity(locations.size() * 90);
+                for (URI location : locations) {
+                    body.append(PLAIN_LOCATION_HEADER).append(": ").append(location).append('\n');
+                }
+            }
+        }
+
+        private void send(HttpExchange exchange, int status, String message) throws IOException {
+            body.setLength(0);
+            headers.clear();
+            body.append(message).append('\n');
+            //errors are always in the body
+            exchange.getResponseHeaders().set("Content-Type", TEXT_PLAIN + "; charset=utf-8");
+            write(exchange, status, true);
+        }
+
+        private void send(HttpExchange exchange, int status, boolean withBody) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", (occi ? TEXT_OCCI : TEXT_PLAIN) + "; charset=utf-8");
+            if (occi) {
+                for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                    exchange.getResponseHeaders().set(header.getKey(), join(header.getValue()));
+                }
+            }
+            write(exchange, status, withBody);
+        }
+
+        private void write(HttpExchange exchange, int status, boolean withBody) throws IOException {
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            if (!withBody || bytes.length == 0) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import cz.cesnet.cloud.occi.api.EntityBuilder;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.http.HTTPClient;
+import cz.cesnet.cloud.occi.core.Entity;
+import cz.cesnet.cloud.occi.core.Link;
+import cz.cesnet.cloud.occi.core.Resource;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.net.URI;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the client against the simulator in both text renderings. Default
+ * size keeps the test short, the 'load' profile sets system property
+ * occi.simulator.size to run it at production scale.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class OCCISimulatorTest {
+
+    private static final int SIZE = Integer.getInteger("occi.simulator.size", 1000);
+    private OCCISimulator simulator;
+
+    @Before
+    public void setUp() throws Exception {
+        simulator = new OCCISimulator(SIZE, SIZE, SIZE);
+        simulator.start();
+    }
+
+    @After
+    public void tearDown() {
+        simulator.stop();
+    }
+
+    @Test
+    public void testListAtScale() throws Exception {
+        HTTPClient client = new HTTPClient(simulator.getEndpoint());
+        client.connect();
+
+        assertEquals(SIZE, client.list("compute").size());
+        assertEquals(SIZE, client.list("storage").size());
+        assertEquals(SIZE, client.list("network").size());
+        client.close();
+    }
+
+    @Test
+    public void testDescribe() throws Exception {
+        testDescribe(MediaType.TEXT_PLAIN);
+        testDescribe(MediaType.TEXT_OCCI);
+    }
+
+    private void testDescribe(String mediaType) throws Exception {
+        HTTPClient client = new HTTPClient(simulator.getEndpoint(), null, mediaType, true);
+        int index = SIZE - 1;
+        List<Entity> entities = client.describe(simulator.getLocation(OCCISimulator.EntityType.COMPUTE, index));
+        assertEquals(1, entities.size());
+        Resource compute = (Resource) entities.get(0);
+        assertEquals("vm-" + index, compute.getTitle());
+        assertEquals("inactive", compute.getValue("occi.compute.state"));
+        assertEquals(2, compute.getLinks().size());
+        for (Link link : compute.getLinks()) {
+            assertEquals(simulator.getLocation(OCCISimulator.EntityType.COMPUTE, index).toString(), link.getSource().toString());
+        }
+
+        entities = client.describe(simulator.getLocation(OCCISimulator.EntityType.STORAGELINK, index));
+        Link link = (Link) entities.get(0);
+        assertEquals(simulator.getLocation(OCCISimulator.EntityType.STORAGE, index).toString(), link.getTarget().toString());
+        assertEquals("active", link.getValue("occi.storagelink.state"));
+
+        entities = client.describe(simulator.getLocation(OCCISimulator.EntityType.NETWORK, 0));
+        assertEquals("active", entities.get(0).getValue("occi.network.state"));
+        client.close();
+    }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        testLifecycle(MediaType.TEXT_PLAIN);
+        testLifecycle(MediaType.TEXT_OCCI);
+    }
+
+    private void testLifecycle(String mediaType) throws Exception {
+        HTTPClient client = new HTTPClient(simulator.getEndpoint(), null, mediaType, true);
+        EntityBuilder builder = new EntityBuilder(client.getModel());
+        Resource resource = builder.getResource("compute");
+        resource.setTitle("created");
+        URI location = client.create(resource);
+        assertEquals(SIZE + 1, simulator.getSize(OCCISimulator.EntityType.COMPUTE));
+
+        Entity created = client.describe(location).get(0);
+        assertEquals("created", created.getTitle());
+        assertEquals("active", created.getValue("occi.compute.state"));
+
+        assertTrue(client.trigger(location, builder.getActionInstance("suspend")));
+        assertEquals("suspended", client.describe(location).get(0).getValue("occi.compute.state"));
+        assertFalse(client.trigger(location, builder.getActionInstance("stop")));
+        assertTrue(client.trigger(location, builder.getActionInstance("start")));
+        assertTrue(client.trigger(location, builder.getActionInstance("stop")));
+        assertEquals("inactive", client.describe(location).get(0).getValue("occi.compute.state"));
+
+        assertTrue(client.delete(location));
+        assertEquals(SIZE, simulator.getSize(OCCISimulator.EntityType.COMPUTE));
+        try {
+            client.describe(location);
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+        client.close();
+    }
+
+    @Test
+    public void testDeleteRemovesLinks() throws Exception {
+        HTTPClient client = new HTTPClient(simulator.getEndpoint());
+        client.connect();
+        URI storageLink = simulator.getLocation(OCCISimulator.EntityType.STORAGELINK, 0);
+
+        assertTrue(client.delete(simulator.getLocation(OCCISimulator.EntityType.STORAGE, 0)));
+        assertEquals(SIZE - 1, simulator.getSize(OCCISimulator.EntityType.STORAGELINK));
+        assertEquals(SIZE, simulator.getSize(OCCISimulator.EntityType.NETWORKINTERFACE));
+        try {
+            client.describe(storageLink);
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+        Resource compute = (Resource) client.describe(simulator.getLocation(OCCISimulator.EntityType.COMPUTE, 0)).get(0);
+        assertEquals(1, compute.getLinks().size());
+        client.close();
+    }
+
+    @Test
+    public void testDelayedTransition() throws Exception {
+        simulator.setTransitionDelay(300);
+        HTTPClient client = new HTTPClient(simulator.getEndpoint());
+        client.connect();
+        EntityBuilder builder = new EntityBuilder(client.getModel());
+        URI location = simulator.getLocation(OCCISimulator.EntityType.COMPUTE, 0);
+
+        assertTrue(client.trigger(location, builder.getActionInstance("stop")));
+        assertEquals("active", client.describe(location).get(0).getValue("occi.compute.state"));
+        //change in progress
+        assertFalse(client.trigger(location, builder.getActionInstance("start")));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        String state;
+        do {
+            Thread.sleep(50);
+            state = client.describe(location).get(0).getValue("occi.compute.state");
+        } while (!state.equals("inactive") && System.currentTimeMillis() < timeout);
+        assertEquals("inactive", state);
+        client.close();
+    }
+}
@@ -0,0 +1,171 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the in-process servers used in load tests. Runs JDK's HTTP server on
+ * a free local port with a thread per request and delays responses according
+ * to a latency distribution. Subclasses handle the exchanges.
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public abstract class SimulatedServer {
+
+    private final String threadName;
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+    private HttpServer server;
+    private ExecutorService executor;
+    private URI endpoint;
+
+    static {
+        //headers and body are written separately, Nagle's algorithm would add delayed ACK latency to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threadName name of threads handling requests
+     */
+    protected SimulatedServer(String threadName) {
+        this.threadName = threadName;
+    }
+
+    public LatencyDistribution getLatency() {
+        return latency;
+    }
+
+    /**
+     * Sets distribution of latencies added to responses.
+     *
+     * @param latency latency distribution, cannot be null
+     */
+    public void setLatency(LatencyDistribution latency) {
+        if (latency == null) {
+            throw new NullPointerException("latency cannot be null");
+        }
+
+        this.latency = latency;
+    }
+
+    /**
+     * Starts the server on a free local port.
+     *
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        start(HttpServer.create(new InetSocketAddress("localhost", 0), 1024), "http");
+    }
+
+    /**
+     * Starts given server.
+     *
+     * @param server server bound to a local port
+     * @param scheme scheme of the endpoint
+     */
+    protected void start(HttpServer server, String scheme) {
+        this.server = server;
+        //latencies are simulated by sleeping, so every request needs its own thread
+        executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    SimulatedServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        endpoint = URI.create(scheme + "://localhost:" + server.getAddress().getPort());
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    /**
+     * Returns endpoint of the running server.
+     *
+     * @return endpoint
+     */
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Handles a single exchange, exchange is closed afterwards.
+     *
+     * @param exchange exchange
+     * @throws IOException
+     */
+    protected abstract void handle(HttpExchange exchange) throws IOException;
+
+    /**
+     * Sleeps for a latency drawn from the distribution.
+     *
+     * @return false if the thread was interrupted and the exchange should be
+     * dropped, true otherwise
+     */
+    protected boolean simulateLatency() {
+        long delay = latency.next(ThreadLocalRandom.current());
+        if (delay > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the whole stream.
+     *
+     * @param in stream
+     * @return content of the stream
+     * @throws IOException
+     */
+    protected static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,290 @@
+package cz.cesnet.cloud.occi.api.http.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+
+/**
+ * In-memory OCCI server standing in for a real cloud in load tests. Serves
+ * the model of the test fixture and an inventory of compute resources of
+ * configurable size in text/plain rendering. Supports listing, describing,
+ * creating, deleting and triggering actions on computes. Every response can
+ * be delayed according to a latency distribution and every response to a
+ * compute request can be replaced by an error with given probability.
+ * Server can run over https requiring client certificates and can challenge
+ * clients without credentials, including a minimal Keystone token service.
+ *
+ * <p>
+ * Example:</p>
+ *
+ * <pre>{@code
+ * StandInServer server = new StandInServer(10000);
+ *server.setLatency(LatencyDistribution.uniform(1, 20));
+ *server.setErrorRate(0.01);
+ *server.start();
+ *Client client = new HTTPClient(server.getEndpoint());
+ *...
+ *server.stop();}</pre>
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class StandInServer extends SimulatedServer {
+
+    private static final String MODEL_RESOURCE = "/__files/body---xaO7k.json";
+    private static final String COMPUTE_LOCATION = "/compute/";
+    private static final String TEXT_PLAIN = "text/plain; charset=utf-8";
+    private static final String KEYSTONE_PATH = "/v2.0/";
+    private static final String KEYSTONE_TOKEN = "{\"access\":{\"token\":{\"id\":\"stand-in-token\"}}}";
+    private static final String KEYSTONE_TENANTS = "{\"tenants\":[{\"name\":\"stand-in\"}]}";
+    private final ConcurrentMap<String, String> computes = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final byte[] model;
+    private volatile double errorRate;
+    private volatile String challenge;
+
+    /**
+     * Constructor.
+     *
+     * @param inventorySize number of computes in the inventory
+     * @throws IOException if the model cannot be loaded
+     */
+    public StandInServer(int inventorySize) throws IOException {
+        super("occi-stand-in-server");
+        if (inventorySize < 0) {
+            throw new IllegalArgumentException("inventory size cannot be negative");
+        }
+
+        for (int i = 0; i < inventorySize; i++) {
+            computes.put(new UUID(0, i).toString(), "active");
+        }
+        try (InputStream in = StandInServer.class.getResourceAsStream(MODEL_RESOURCE)) {
+            model = read(in);
+        }
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    /**
+     * Sets probability of a response being replaced by 500 Internal Server
+     * Error.
+     *
+     * @param errorRate probability between 0 and 1
+     */
+    public void setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("error rate has to be between 0 and 1");
+        }
+
+        this.errorRate = errorRate;
+    }
+
+    public String getChallenge() {
+        return challenge;
+    }
+
+    /**
+     * Sets WWW-Authenticate challenge of 401 Unauthorized responses to
+     * requests without Authorization nor X-Auth-Token header, e.g.
+     * {@code Basic realm="occi"} or {@code Keystone uri='http://localhost:1234/'}.
+     * Credentials themselves are not verified. Keystone requests under /v2.0/
+     * are never challenged.
+     *
+     * @param challenge challenge, null to serve requests without credentials
+     */
+    public void setChallenge(String challenge) {
+        this.challenge = challenge;
+    }
+
+    /**
+     * Starts the server on a free local port over https. Clients have to
+     * present a certificate trusted by the ssl context.
+     *
+     * @param sslContext server's ssl context, cannot be null
+     * @throws IOException
+     */
+    public void start(SSLContext sslContext) throws IOException {
+        if (sslContext == null) {
+            throw new NullPointerException("sslContext cannot be null");
+        }
+
+        HttpsServer httpsServer = HttpsServer.create(new InetSocketAddress("localhost", 0), 1024);
+        httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext) {
+
+            @Override
+            public void configure(HttpsParameters params) {
+                SSLParameters parameters = getSSLContext().getDefaultSSLParameters();
+                parameters.setNeedClientAuth(true);
+                params.setSSLParameters(parameters);
+            }
+        });
+        start(httpsServer, "https");
+    }
+
+    /**
+     * Returns number of computes currently in the inventory.
+     *
+     * @return inventory size
+     */
+    public int getInventorySize() {
+        return computes.size();
+    }
+
+    /**
+     * Returns number of requests handled so far.
+     *
+     * @return number of requests
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * Returns number of simulated errors returned so far.
+     *
+     * @return number of errors
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        //request body has to be read before responding
+        read(exchange.getRequestBody());
+        if (!simulateLatency()) {
+            return;
+        }
+
+        Random random = ThreadLocalRandom.current();
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getQuery();
+        if (path.startsWith(KEYSTONE_PATH)) {
+            respond(exchange, 200, path.equals(KEYSTONE_PATH + "tenants") ? KEYSTONE_TENANTS : KEYSTONE_TOKEN);
+            return;
+        }
+        String challenge = this.challenge;
+        if (challenge != null && !exchange.getRequestHeaders().containsKey("Authorization")
+                && !exchange.getRequestHeaders().containsKey("X-Auth-Token")) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", challenge);
+            respond(exchange, 401, method.equals("HEAD") ? "" : "unauthorized\n");
+            return;
+        }
+        if (path.equals("/-/") || path.equals("/.well-known/org/ogf/occi/-/")) {
+            if (method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Content-Type", TEXT_PLAIN);
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                respond(exchange, 200, model);
+            }
+            return;
+        }
+
+        if (path.equals("/") && method.equals("GET")) {
+            respond(exchange, 200, renderLocations(new ArrayList<>(computes.keySet())));
+            return;
+        }
+
+        if (!path.startsWith(COMPUTE_LOCATION)) {
+            respond(exchange, 404, "not found\n");
+            return;
+        }
+        //model is never broken, so clients can always connect
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            errors.incrementAndGet();
+            respond(exchange, 500, "simulated error\n");
+            return;
+        }
+
+        String id = path.substring(COMPUTE_LOCATION.length());
+        switch (method) {
+            case "GET":
+                if (id.isEmpty()) {
+                    respond(exchange, 200, renderLocations(new ArrayList<>(computes.keySet())));
+                } else if (computes.containsKey(id)) {
+                    respond(exchange, 200, renderCompute(id, computes.get(id)));
+                } else {
+                    respond(exchange, 404, "not found\n");
+                }
+                break;
+            case "POST":
+                if (query != null && query.startsWith("action=")) {
+                    String state = "stop".equals(query.substring("action=".length())) ? "inactive" : "active";
+                    if (!id.isEmpty() && computes.replace(id, state) == null) {
+                        respond(exchange, 404, "not found\n");
+                    } else {
+                        respond(exchange, 200, "");
+                    }
+                } else if (id.isEmpty()) {
+                    String created = UUID.randomUUID().toString();
+                    computes.put(created, "inactive");
+                    respond(exchange, 201, "X-OCCI-Location: " + getEndpoint() + COMPUTE_LOCATION + created + "\n");
+                } else {
+                    respond(exchange, 405, "method not allowed\n");
+                }
+                break;
+            case "DELETE":
+                if (computes.remove(id) == null) {
+                    respond(exchange, 404, "not found\n");
+                } else {
+                    respond(exchange, 200, "");
+                }
+                break;
+            default:
+                respond(exchange, 405, "method not allowed\n");
+        }
+    }
+
+    private String renderLocations(List<String> ids) {
+        StringBuilder builder = new StringBuilder(ids.size() * 80);
+        for (String id : ids) {
+            builder.append("X-OCCI-Location: ").append(getEndpoint()).append(COMPUTE_LOCATION).append(id).append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    private static String renderCompute(String id, String state) {
+        return "Category: compute;scheme=\"http://schemas.ogf.org/occi/infrastructure#\";class=\"kind\";location=\"/compute/\";title=\"compute resource\"\n"
+                + "X-OCCI-Attribute: occi.core.id=\"" + id + "\"\n"
+                + "X-OCCI-Attribute: occi.core.title=\"stand-in\"\n"
+                + "X-OCCI-Attribute: occi.compute.cores=1\n"
+                + "X-OCCI-Attribute: occi.compute.memory=2\n"
+                + "X-OCCI-Attribute: occi.compute.state=\"" + state + "\"\n";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", TEXT_PLAIN);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+}
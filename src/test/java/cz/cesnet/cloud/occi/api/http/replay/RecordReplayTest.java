@@ -0,0 +1,176 @@
+package cz.cesnet.cloud.occi.api.http.replay;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import cz.cesnet.cloud.occi.api.exception.CommunicationException;
+import cz.cesnet.cloud.occi.api.http.HTTPClient;
+import cz.cesnet.cloud.occi.core.Entity;
+import cz.cesnet.cloud.occi.parser.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class RecordReplayTest {
+
+    private static final URI ENDPOINT = URI.create("http://localhost:8123");
+    private static final URI COMPUTE = URI.create("http://rocci-server-1-1-x.herokuapp.com:80/compute/9b36c234-7e4a-400d-bab8-58dead9e0ef8");
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(8123);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        ExchangeArchive archive = new ExchangeArchive();
+        HTTPClient client = new HTTPClient(ENDPOINT, null, MediaType.TEXT_PLAIN, false);
+        client.setTransport(new RecordingTransport(archive));
+        client.connect();
+        List<URI> locations = client.list("compute");
+        List<Entity> description = client.describe(COMPUTE);
+        client.close();
+        assertTrue(archive.size() >= 3);
+
+        File file = folder.newFile("recording.occirec");
+        archive.save(file);
+        //no server is needed from now on
+        wireMockRule.stop();
+
+        ReplayTransport transport = new ReplayTransport(ExchangeArchive.load(file));
+        transport.setLatencyScale(0);
+        client = new HTTPClient(ENDPOINT, null, MediaType.TEXT_PLAIN, false);
+        client.setTransport(transport);
+        client.connect();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(locations, client.list("compute"));
+            assertEquals(new HashSet<>(description), new HashSet<>(client.describe(COMPUTE)));
+        }
+
+        try {
+            client.list("storage");
+            fail();
+        } catch (CommunicationException ex) {
+            //cool
+        }
+        client.close();
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testWrappedClient() throws Exception {
+        CloseableHttpClient client = HttpClients.createDefault();
+        CloseableHttpClient replay = new ReplayTransport(new ExchangeArchive()).wrap(client);
+        CloseableHttpClient recording = new RecordingTransport(new ExchangeArchive()).wrap(client);
+
+        //wrapped client provides the adapters
+        assertNotNull(replay.getConnectionManager());
+        assertNotNull(recording.getConnectionManager());
+        assertNotNull(replay.getParams());
+        replay.close();
+    }
+
+    @Test
+    public void testArchiveRoundTrip() throws Exception {
+        ExchangeArchive archive = new ExchangeArchive();
+        StringBuilder longHeader = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longHeader.append("http://localhost/compute/").append(i).append(',');
+        }
+        archive.add(new RecordedExchange("GET", "/compute/", "text/occi", 200, "OK",
+                new String[]{"Content-Type", "text/occi", "Location", longHeader.toString()}, new byte[0], 1500));
+        archive.add(new RecordedExchange("HEAD", "/-/", null, 200, null, new String[0], null, 0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archive.write(out);
+        ExchangeArchive read = ExchangeArchive.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(2, read.size());
+        RecordedExchange first = read.getExchanges().get(0);
+        assertEquals("GET /compute/ text/occi", first.getKey());
+        assertEquals(longHeader.toString(), first.getHeaders()[3]);
+        assertArrayEquals(new byte[0], first.getBody());
+        assertEquals(1500, first.getLatency());
+        RecordedExchange second = read.getExchanges().get(1);
+        assertNull(second.getAccept());
+        assertNull(second.getReason());
+        assertNull(second.getBody());
+
+        try {
+            ExchangeArchive.read(new ByteArrayInputStream("garbage".getBytes(StandardCharsets.UTF_8)));
+            fail();
+        } catch (java.io.IOException ex) {
+            //cool
+        }
+    }
+
+    @Test
+    public void testExchangesInTurns() {
+        ExchangeArchive archive = new ExchangeArchive();
+        archive.add(new RecordedExchange("GET", "/compute/1", "text/plain", 200, "OK", new String[0], "first".getBytes(StandardCharsets.UTF_8), 0));
+        archive.add(new RecordedExchange("GET", "/compute/1", "text/plain", 200, "OK", new String[0], "second".getBytes(StandardCharsets.UTF_8), 0));
+        ReplayTransport transport = new ReplayTransport(archive);
+
+        HttpGet get = new HttpGet("http://anywhere:8080/compute/1");
+        get.setHeader("Accept", "text/plain");
+        assertEquals("first", new String(transport.next(get).getBody(), StandardCharsets.UTF_8));
+        assertEquals("second", new String(transport.next(get).getBody(), StandardCharsets.UTF_8));
+        assertEquals("first", new String(transport.next(get).getBody(), StandardCharsets.UTF_8));
+
+        get.setHeader("Accept", "text/occi");
+        assertNull(transport.next(get));
+    }
+
+    @Test
+    public void testScaledLatency() throws Exception {
+        ExchangeArchive archive = new ExchangeArchive();
+        HTTPClient client = new HTTPClient(ENDPOINT, null, MediaType.TEXT_PLAIN, false);
+        client.setTransport(new RecordingTransport(archive));
+        client.connect();
+        client.close();
+
+        ExchangeArchive slow = new ExchangeArchive();
+        for (RecordedExchange exchange : archive.getExchanges()) {
+            slow.add(new RecordedExchange(exchange.getMethod(), exchange.getPath(), exchange.getAccept(), exchange.getStatus(), exchange.getReason(),
+                    exchange.getHeaders(), exchange.getBody(), TimeUnit.MILLISECONDS.toNanos(400)));
+        }
+        ReplayTransport transport = new ReplayTransport(slow);
+        transport.setLatencyScale(0.25);
+        client = new HTTPClient(ENDPOINT, null, MediaType.TEXT_PLAIN, false);
+        client.setTransport(transport);
+
+        long start = System.nanoTime();
+        client.connect();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        client.close();
+        assertTrue(elapsed >= 100 * archive.size());
+        assertTrue(elapsed < 400 * archive.size());
+
+        try {
+            transport.setLatencyScale(-1);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            //cool
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package cz.cesnet.cloud.occi.api.id;
+
+import cz.cesnet.cloud.occi.api.IdGenerator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Michal Kimle <kimle.michal@gmail.com>
+ */
+public class IdGeneratorTest {
+
+    private static final int COUNT = 10000;
+
+    private void assertUnique(IdGenerator generator) {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(ids.add(generator.generate()));
+        }
+    }
+
+    @Test
+    public void testSecureRandomIdGenerator() {
+        IdGenerator generator = new SecureRandomIdGenerator();
+        UUID uuid = UUID.fromString(generator.generate());
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertUnique(generator);
+    }
+
+    @Test
+    public void testThreadLocalRandomIdGenerator() {
+        IdGenerator generator = new ThreadLocalRandomIdGenerator();
+        UUID uuid = UUID.fromString(generator.generate());
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertUnique(generator);
+    }
+
+    @Test
+    public void testTimeOrderedIdGenerator() throws Exception {
+        IdGenerator generator = new TimeOrderedIdGenerator();
+        UUID first = UUID.fromString(generator.generate());
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        Thread.sleep(2);
+        UUID second = UUID.fromString(generator.generate());
+        assertTrue((first.getMostSignificantBits() >>> 16) < (second.getMostSignificantBits() >>> 16));
+        assertUnique(generator);
+    }
+
+    @Test
+    public void testCounterIdGenerator() {
+        IdGenerator generator = new CounterIdGenerator("batch-");
+        assertEquals("batch-1", generator.generate());
+        assertEquals("batch-2", generator.generate());
+        assertEquals("batch-11", new CounterIdGenerator("batch-", 10).generate());
+        assertUnique(generator);
+    }
+
+    @Test
+    public void testInvalidCounterIdGenerator() {
+        try {
+            new CounterIdGenerator(null);
+            fail();
+        } catch (NullPointerException ex) {
+            //cool
+        }
+    }
+}